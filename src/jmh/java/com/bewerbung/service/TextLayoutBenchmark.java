@@ -0,0 +1,124 @@
+package com.bewerbung.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cover letter line breaking: the previous {@code PdfGenerationService.wrapText}, which re-measures
+ * the whole growing line for every word, against {@link TextLayout#breakLines}, which measures each
+ * word once. Both take their widths from the same {@link FontRegistry}, so only the algorithm differs.
+ * <p>
+ * Inputs are the sample letters from static/, split into paragraphs the way drawWrappedText splits
+ * them ({@code paragraphs}) or joined into one long paragraph ({@code single}), where the quadratic
+ * cost of the old algorithm shows most. Run with {@code mvn -Pjmh test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextLayoutBenchmark {
+
+    /** As in PdfGenerationService: 11 pt on A4 with 2.5 cm side margins. */
+    private static final float FONT_SIZE = 11f;
+    private static final float MAX_WIDTH = 595.27563f - 2 * (72f * 2.5f / 2.54f);
+
+    @Param({"de", "en", "ru"})
+    public String language;
+
+    @Param({"paragraphs", "single"})
+    public String shape;
+
+    private FontRegistry fontRegistry;
+    private TextLayout.WidthMeasure measure;
+    private List<String> paragraphs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fontRegistry = new FontRegistry(new ClasspathResourceRegistry(), 1, 10_000);
+        fontRegistry.init();
+        fontRegistry.requireAvailable();
+        measure = (s, start, end) -> fontRegistry.stringWidth(s, start, end) * FONT_SIZE;
+
+        String file = "de".equals(language) ? "static/sample_coverLetter.txt" : "static/sample_coverLetter_" + language + ".txt";
+        String text;
+        try (InputStream in = TextLayoutBenchmark.class.getClassLoader().getResourceAsStream(file)) {
+            if (in == null) throw new IOException("Sample letter not found: " + file);
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> split = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String paragraph = line.strip();
+            if (!paragraph.isEmpty()) split.add(paragraph);
+        }
+        paragraphs = "single".equals(shape) ? List.of(String.join(" ", split)) : split;
+
+        // Timing is only meaningful if both produce the same lines
+        for (String paragraph : paragraphs) {
+            if (!legacyWrapText(paragraph).equals(TextLayout.breakLines(paragraph, MAX_WIDTH, measure))) {
+                throw new IllegalStateException("wrapText and TextLayout break differently: " + paragraph);
+            }
+        }
+    }
+
+    @Benchmark
+    public void wrapText(Blackhole blackhole) {
+        for (String paragraph : paragraphs) {
+            blackhole.consume(legacyWrapText(paragraph));
+        }
+    }
+
+    @Benchmark
+    public void textLayout(Blackhole blackhole) throws IOException {
+        for (String paragraph : paragraphs) {
+            blackhole.consume(TextLayout.breakLines(paragraph, MAX_WIDTH, measure));
+        }
+    }
+
+    /** The previous PdfGenerationService.wrapText, unchanged except for the width source. */
+    private List<String> legacyWrapText(String text) {
+        List<String> lines = new ArrayList<>();
+        String[] words = text.split(" ");
+        StringBuilder currentLine = new StringBuilder();
+
+        for (String word : words) {
+            String testLine = currentLine.length() == 0 ? word : currentLine + " " + word;
+            float width = fontRegistry.stringWidth(testLine) * FONT_SIZE;
+
+            if (width > MAX_WIDTH && currentLine.length() > 0) {
+                lines.add(currentLine.toString());
+                currentLine = new StringBuilder(word);
+            } else {
+                if (currentLine.length() > 0) {
+                    currentLine.append(" ");
+                }
+                currentLine.append(word);
+            }
+        }
+
+        if (currentLine.length() > 0) {
+            lines.add(currentLine.toString());
+        }
+
+        return lines;
+    }
+}
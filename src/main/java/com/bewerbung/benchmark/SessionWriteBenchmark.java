@@ -0,0 +1,174 @@
+package com.bewerbung.benchmark;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.repository.JdbcSessionArtifactWriter;
+import com.bewerbung.repository.JpaSessionArtifactWriter;
+import com.bewerbung.repository.SessionArtifactRepository;
+import com.bewerbung.repository.SessionArtifactWrite;
+import com.bewerbung.repository.SessionArtifactWriter;
+import com.bewerbung.repository.SessionDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Сравнение путей записи сессий в Oracle: JPA (UPDATE/save по артефакту) и JDBC (MERGE, батчи).
+ * Включается только явно: benchmark.session-writes.enabled=true. Пишет во временные сессии
+ * "bench-..." и удаляет их после прогона; результаты — в лог.
+ * <p>
+ * Сценарии: обновление одного артефакта, unit of work (несколько артефактов одной сессии в одной
+ * транзакции) и новая сессия (все артефакты вставляются).
+ */
+@Component
+@ConditionalOnBean(DataSource.class)
+@ConditionalOnProperty(name = "benchmark.session-writes.enabled", havingValue = "true")
+public class SessionWriteBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionWriteBenchmark.class);
+    private static final SessionArtifactType[] TEXT_TYPES = {
+            SessionArtifactType.VACANCY, SessionArtifactType.CV, SessionArtifactType.STATE_JSON,
+            SessionArtifactType.ANSCHREIBEN_TXT, SessionArtifactType.ANSCHREIBEN_MD, SessionArtifactType.LEBENSLAUF_HTML,
+            SessionArtifactType.NOTES_JSON, SessionArtifactType.ANALYSIS_MD, SessionArtifactType.MANIFEST_JSON
+    };
+
+    private final JdbcSessionArtifactWriter jdbcWriter;
+    private final JpaSessionArtifactWriter jpaWriter;
+    private final SessionDataRepository sessionDataRepository;
+    private final SessionArtifactRepository sessionArtifactRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${benchmark.session-writes.iterations:200}")
+    private int iterations;
+
+    @Value("${benchmark.session-writes.warmup:20}")
+    private int warmup;
+
+    @Value("${benchmark.session-writes.text-bytes:16384}")
+    private int textBytes;
+
+    @Value("${benchmark.session-writes.artifacts-per-request:6}")
+    private int artifactsPerRequest;
+
+    public SessionWriteBenchmark(JdbcSessionArtifactWriter jdbcWriter, JpaSessionArtifactWriter jpaWriter,
+                                 SessionDataRepository sessionDataRepository,
+                                 SessionArtifactRepository sessionArtifactRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcWriter = jdbcWriter;
+        this.jpaWriter = jpaWriter;
+        this.sessionDataRepository = sessionDataRepository;
+        this.sessionArtifactRepository = sessionArtifactRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String payload = payload(textBytes);
+        int perRequest = Math.max(1, Math.min(artifactsPerRequest, TEXT_TYPES.length));
+        log.info("Session write benchmark: {} iterations (+{} warmup), {} chars per text, {} artifacts per unit of work",
+                iterations, warmup, textBytes, perRequest);
+        List<String> sessionIds = new ArrayList<>();
+        try {
+            for (SessionArtifactWriter writer : List.of(jpaWriter, jdbcWriter)) {
+                String existing = newSessionId(sessionIds);
+                write(writer, requestWrites(existing, payload, perRequest));
+
+                report(writer, "single update", measure(i -> write(writer, List.of(
+                        SessionArtifactWrite.text(existing, SessionArtifactType.STATE_JSON, payload + i, null)))));
+                report(writer, "unit of work", measure(i -> write(writer, requestWrites(existing, payload + i, perRequest))));
+                report(writer, "new session", measure(i -> write(writer, requestWrites(newSessionId(sessionIds), payload, perRequest))));
+            }
+        } catch (Exception e) {
+            log.error("Session write benchmark failed: {}", e.getMessage(), e);
+        } finally {
+            cleanup(sessionIds);
+        }
+    }
+
+    private long[] measure(IterationBody body) {
+        for (int i = 0; i < warmup; i++) {
+            body.run(-i - 1);
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            body.run(i);
+            nanos[i] = System.nanoTime() - started;
+        }
+        return nanos;
+    }
+
+    private void write(SessionArtifactWriter writer, List<SessionArtifactWrite> writes) {
+        transactionTemplate.executeWithoutResult(status -> writer.write(writes, Instant.now()));
+    }
+
+    private static List<SessionArtifactWrite> requestWrites(String sessionId, String payload, int count) {
+        List<SessionArtifactWrite> writes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            writes.add(SessionArtifactWrite.text(sessionId, TEXT_TYPES[i], payload, null));
+        }
+        return writes;
+    }
+
+    private static void report(SessionArtifactWriter writer, String scenario, long[] nanos) {
+        if (nanos.length == 0) return;
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+        log.info(String.format(Locale.ROOT, "Session write benchmark [%-4s] %-13s mean %7.2f ms  p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms",
+                writer.getName(), scenario, mean, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99)));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static String newSessionId(List<String> sessionIds) {
+        String sessionId = "bench-" + UUID.randomUUID().toString().replace("-", "");
+        sessionIds.add(sessionId);
+        return sessionId;
+    }
+
+    /** Текст без длинных повторов, чтобы размер LOB был близок к реальному. */
+    private static String payload(int length) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append((char) ('a' + random.nextInt(26)));
+            if (random.nextInt(7) == 0) sb.append(' ');
+        }
+        return sb.substring(0, length);
+    }
+
+    private void cleanup(List<String> sessionIds) {
+        for (int from = 0; from < sessionIds.size(); from += 500) {
+            List<String> batch = sessionIds.subList(from, Math.min(from + 500, sessionIds.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                sessionArtifactRepository.deleteBySessionIds(batch);
+                sessionDataRepository.deleteBySessionIds(batch);
+            });
+        }
+        log.info("Session write benchmark: removed {} benchmark sessions", sessionIds.size());
+    }
+
+    @FunctionalInterface
+    private interface IterationBody {
+        void run(int iteration);
+    }
+}
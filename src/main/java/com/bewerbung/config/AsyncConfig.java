@@ -1,15 +1,38 @@
 package com.bewerbung.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
-public class AsyncConfig {
+public class AsyncConfig implements WebMvcConfigurer {
+
+    /**
+     * Request attribute (Long, ms) that replaces pdf.stream.timeout-ms for one streamed response;
+     * set by handlers whose body takes longer to write, like batch ZIPs and bundles.
+     */
+    public static final String STREAM_TIMEOUT_ATTRIBUTE = AsyncConfig.class.getName() + ".streamTimeoutMs";
+
+    @Value("${pdf.stream.pool-size:8}")
+    private int streamPoolSize;
+
+    @Value("${pdf.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
+
+    @Value("${pdf.batch.pool-size:4}")
+    private int batchPoolSize;
 
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
@@ -21,5 +44,50 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
 
+    /**
+     * Writes StreamingResponseBody responses (PDF downloads). Without it Spring MVC falls back to
+     * SimpleAsyncTaskExecutor, which starts an unbounded thread per download.
+     */
+    @Bean(name = "mvcStreamingExecutor")
+    public ThreadPoolTaskExecutor mvcStreamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, streamPoolSize));
+        executor.setMaxPoolSize(Math.max(1, streamPoolSize));
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("pdf-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Renders the letters of batch PDF downloads. Kept apart from the streaming threads, which wait
+     * for these results; sized like font.pool-size, since each rendering leases a parsed font.
+     */
+    @Bean(name = "pdfBatchExecutor")
+    public ThreadPoolTaskExecutor pdfBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, batchPoolSize));
+        executor.setMaxPoolSize(Math.max(1, batchPoolSize));
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("pdf-batch-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcStreamingExecutor());
+        configurer.setDefaultTimeout(streamTimeoutMs);
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Runs before the async request is started, so the container timeout picks this up
+                if (request instanceof AsyncWebRequest asyncRequest
+                        && request.getAttribute(STREAM_TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long timeoutMs) {
+                    asyncRequest.setTimeout(timeoutMs);
+                }
+            }
+        });
+    }
+}
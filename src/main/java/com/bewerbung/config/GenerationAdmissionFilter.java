@@ -0,0 +1,129 @@
+package com.bewerbung.config;
+
+import com.bewerbung.dto.ApiError;
+import com.bewerbung.service.AdmissionControlService;
+import com.bewerbung.service.AdmissionControlService.Admission;
+import com.google.gson.Gson;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Puts the LLM-backed generation endpoints and the batch PDF download behind
+ * {@link AdmissionControlService}. Rejected requests get 503 with Retry-After before any pipeline
+ * work starts. A streamed response (the batch ZIP) keeps its slot until the async request completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class GenerationAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationAdmissionFilter.class);
+    private static final Set<String> GENERATION_PATHS = Set.of(
+            "/api/generate",
+            "/api/generate/cover-letter",
+            "/api/generate/from-file"
+    );
+    /** Admitted like generation, but without the session unit of work and LLM priority filters. */
+    private static final String PDF_BATCH_PATH = "/api/generate/pdf/batch";
+
+    private final AdmissionControlService admissionControl;
+    private final Gson gson = new Gson();
+
+    public GenerationAdmissionFilter(AdmissionControlService admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !isGenerationRequest(request) && !isPdfBatchRequest(request);
+    }
+
+    /** POST to one of the pipeline endpoints (LLM analysis and letter generation). */
+    static boolean isGenerationRequest(HttpServletRequest request) {
+        return "POST".equalsIgnoreCase(request.getMethod()) && GENERATION_PATHS.contains(path(request));
+    }
+
+    /** POST /api/generate/pdf/batch: up to pdf.batch.max-letters renderings on the shared batch pool. */
+    static boolean isPdfBatchRequest(HttpServletRequest request) {
+        return "POST".equalsIgnoreCase(request.getMethod()) && PDF_BATCH_PATH.equals(path(request));
+    }
+
+    private static String path(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.endsWith("/") && path.length() > 1) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Admission admission = admissionControl.tryAdmit();
+        boolean releasedOnAsyncComplete = false;
+        try {
+            if (!admission.isAdmitted()) {
+                logger.warn("Generation request shed ({}), retry after {}s",
+                        request.getRequestURI(), admission.getRetryAfterSeconds());
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                response.getWriter().write(gson.toJson(new ApiError("SERVICE_BUSY",
+                        "Server is busy. Please try again in " + admission.getRetryAfterSeconds() + " seconds.")));
+                return;
+            }
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(admission));
+                releasedOnAsyncComplete = true;
+            }
+        } finally {
+            if (!releasedOnAsyncComplete) {
+                admission.close();
+            }
+        }
+    }
+
+    /** Releases the admission when a streamed response ends (also after a timeout or error). */
+    private static final class ReleaseOnComplete implements AsyncListener {
+        private final Admission admission;
+
+        private ReleaseOnComplete(Admission admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admission.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bewerbung.config;
+
+import com.bewerbung.service.LlmScheduler;
+import com.bewerbung.service.LlmScheduler.Priority;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs each generation request under an {@link LlmScheduler} priority, so all LLM calls of its
+ * pipeline are scheduled as one class. Requests are INTERACTIVE unless the client marks them with
+ * {@value #PRIORITY_HEADER}: background (prefetch, regenerating after an edit) or batch (bulk runs).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+public class LlmPriorityFilter extends OncePerRequestFilter {
+
+    static final String PRIORITY_HEADER = "X-Generation-Priority";
+
+    private final LlmScheduler llmScheduler;
+
+    public LlmPriorityFilter(LlmScheduler llmScheduler) {
+        this.llmScheduler = llmScheduler;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !GenerationAdmissionFilter.isGenerationRequest(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Priority priority = Priority.parse(request.getHeader(PRIORITY_HEADER));
+        try {
+            llmScheduler.callAs(priority, () -> {
+                try {
+                    chain.doFilter(request, response);
+                } catch (IOException | ServletException e) {
+                    throw new ChainException(e);
+                }
+                return null;
+            });
+        } catch (ChainException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw (ServletException) e.getCause();
+        }
+    }
+
+    /** Carries the checked exceptions of the filter chain through the Supplier of callAs. */
+    private static final class ChainException extends RuntimeException {
+        private ChainException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bewerbung.config;
+
+import com.bewerbung.entity.SessionArtifactType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One-time migration of the old single-row layout: copies the LOB columns of BEWERB_SESSION_DATA
+ * into BEWERB_SESSION_ARTIFACT rows (one per session and type) and clears the old columns.
+ * Runs on every start but does nothing once the old columns are empty or absent. Runs before the
+ * web server is started, so requests never see a session whose artifacts are only half moved.
+ */
+@Component
+@ConditionalOnBean(DataSource.class)
+public class SessionArtifactMigration implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionArtifactMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SessionArtifactMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<SessionArtifactType> legacyTypes = new ArrayList<>();
+        for (SessionArtifactType type : SessionArtifactType.values()) {
+            if (hasLegacyColumn(type.getLegacyColumn())) {
+                legacyTypes.add(type);
+            }
+        }
+        if (legacyTypes.isEmpty()) {
+            log.debug("Session artifact migration: no legacy columns in BEWERB_SESSION_DATA");
+            return;
+        }
+        try {
+            Integer migrated = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (SessionArtifactType type : legacyTypes) {
+                    rows += migrate(type);
+                }
+                return rows;
+            });
+            if (migrated != null && migrated > 0) {
+                log.info("Session artifact migration: moved {} values from BEWERB_SESSION_DATA to BEWERB_SESSION_ARTIFACT", migrated);
+            }
+        } catch (Exception e) {
+            log.error("Session artifact migration failed, legacy data left in place: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean hasLegacyColumn(String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM USER_TAB_COLUMNS WHERE TABLE_NAME = 'BEWERB_SESSION_DATA' AND COLUMN_NAME = ?",
+                Integer.class, column.toUpperCase(Locale.ROOT));
+        return count != null && count > 0;
+    }
+
+    /** Set-based copy inside the database: the LOBs never pass through the application. */
+    private int migrate(SessionArtifactType type) {
+        String column = type.getLegacyColumn();
+        String contentColumn = type.isBinary() ? "binary_content" : "text_content";
+        String mimeSelect = type.isBinary() && hasLegacyColumn("photo_mime") ? "d.photo_mime" : "NULL";
+        int copied = jdbcTemplate.update(
+                "INSERT INTO BEWERB_SESSION_ARTIFACT (session_id, artifact_type, " + contentColumn + ", mime_type, updated_at) "
+                        + "SELECT d.session_id, ?, d." + column + ", " + mimeSelect + ", d.updated_at "
+                        + "FROM BEWERB_SESSION_DATA d WHERE d." + column + " IS NOT NULL "
+                        + "AND NOT EXISTS (SELECT 1 FROM BEWERB_SESSION_ARTIFACT a "
+                        + "WHERE a.session_id = d.session_id AND a.artifact_type = ?)",
+                type.name(), type.name());
+        jdbcTemplate.update("UPDATE BEWERB_SESSION_DATA SET " + column + " = NULL WHERE " + column + " IS NOT NULL");
+        if (copied > 0) {
+            log.info("Session artifact migration: {} -> {} ({} rows)", column, type, copied);
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,75 @@
+package com.bewerbung.config;
+
+import com.bewerbung.service.SessionStorageService;
+import com.bewerbung.service.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Copies all sessions from another storage backend into the active one on start, e.g.
+ * session.storage.migrate-from=files with session.storage.backend=mvstore. Sessions that already
+ * exist in the target are skipped, so the migration can be left enabled and re-run safely; the
+ * source is never modified. Remove the property once the log reports the copy as complete.
+ * <p>
+ * Runs once all singletons exist but before the web server is started, so no request can read or
+ * write a session while it is being copied (an ApplicationRunner would run with traffic already served).
+ */
+@Component
+@ConditionalOnProperty(name = "session.storage.migrate-from")
+public class SessionStoreMigration implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionStoreMigration.class);
+
+    private final SessionStorageService sessionStorage;
+    private final String sourceName;
+
+    public SessionStoreMigration(SessionStorageService sessionStorage,
+                                 @Value("${session.storage.migrate-from}") String sourceName) {
+        this.sessionStorage = sessionStorage;
+        this.sourceName = sourceName.trim();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SessionStore target = sessionStorage.getStore();
+        SessionStore source = sessionStorage.findStore(sourceName).orElse(null);
+        if (source == null) {
+            log.error("Session store migration: source backend '{}' is not available", sourceName);
+            return;
+        }
+        if (source == target) {
+            log.warn("Session store migration: source and target are both '{}', nothing to do", sourceName);
+            return;
+        }
+        long started = System.nanoTime();
+        Set<String> existing = new HashSet<>(target.listSessionIds());
+        List<String> sessionIds = source.listSessionIds();
+        int copied = 0;
+        int skipped = 0;
+        int failed = 0;
+        int artifacts = 0;
+        for (String sessionId : sessionIds) {
+            if (existing.contains(sessionId)) {
+                skipped++;
+                continue;
+            }
+            try {
+                artifacts += sessionStorage.importSession(source, sessionId);
+                copied++;
+            } catch (Exception e) {
+                failed++;
+                log.warn("Session store migration: session {} failed: {}", sessionId, e.getMessage(), e);
+            }
+        }
+        log.info("Session store migration {} -> {}: {} sessions copied ({} artifacts), {} already present, {} failed in {} ms",
+                source.getName(), target.getName(), copied, artifacts, skipped, failed, (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.bewerbung.config;
+
+import com.bewerbung.service.SessionStorageService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Wraps the generation requests in a session storage unit of work: the many set* calls of one
+ * pipeline run are written as a single UPDATE (one session.pack rewrite on the file backend). {@link SessionUnitOfWorkFlushAdvice} writes them
+ * before the response body; the finally here only covers responses that never reach it.
+ * Only the pipeline endpoints use it; PDF rendering lets Chrome read the session HTML in a second
+ * request, which must see the data already committed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class SessionUnitOfWorkFilter extends OncePerRequestFilter {
+
+    private final SessionStorageService sessionStorage;
+
+    public SessionUnitOfWorkFilter(SessionStorageService sessionStorage) {
+        this.sessionStorage = sessionStorage;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !GenerationAdmissionFilter.isGenerationRequest(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        sessionStorage.beginUnitOfWork();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            sessionStorage.endUnitOfWork();
+        }
+    }
+}
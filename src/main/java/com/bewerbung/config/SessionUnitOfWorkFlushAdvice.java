@@ -0,0 +1,41 @@
+package com.bewerbung.config;
+
+import com.bewerbung.service.SessionStorageService;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Flushes the session unit of work opened by {@link SessionUnitOfWorkFilter} right before the
+ * response body is written, so the client gets its 200 only once the data is stored and a failed
+ * write becomes a 500 instead of a silently lost update. A follow-up request (e.g. the Lebenslauf
+ * PDF right after /api/generate) then reads what this one wrote. The filter still closes the unit
+ * of work for responses without a body.
+ */
+@ControllerAdvice
+public class SessionUnitOfWorkFlushAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SessionStorageService sessionStorage;
+
+    public SessionUnitOfWorkFlushAdvice(SessionStorageService sessionStorage) {
+        this.sessionStorage = sessionStorage;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        // No-op outside a unit of work and on the second pass when the error response is written
+        sessionStorage.endUnitOfWork();
+        return body;
+    }
+}
@@ -1,37 +1,59 @@
 package com.bewerbung.controller;
 
+import com.bewerbung.config.AsyncConfig;
+import com.bewerbung.dto.BatchPdfRequestDto;
 import com.bewerbung.dto.GenerateRequestDto;
 import com.bewerbung.dto.GenerateResponseDto;
 import com.bewerbung.dto.PdfRequestDto;
 import com.bewerbung.model.Biography;
 import com.bewerbung.model.JobRequirements;
 import com.bewerbung.service.AnschreibenGeneratorService;
+import com.bewerbung.service.ArtifactManifestService;
+import com.bewerbung.service.ArtifactManifestService.Artifact;
+import com.bewerbung.service.BatchPdfService;
 import com.bewerbung.service.BiographyAiAnalyzerService;
 import com.bewerbung.service.BiographyFileAnalyzerService;
 import com.bewerbung.service.BiographyService;
 import com.bewerbung.service.ChangeDetectionService;
+import com.bewerbung.service.ChromePdfPool;
+import com.bewerbung.service.ClasspathResourceRegistry;
+import com.bewerbung.service.CoverPdfCache;
+import com.bewerbung.service.DefaultSampleArtifactService;
 import com.bewerbung.service.FileOutputService;
+import com.bewerbung.service.HtmlPdfRenderer;
 import com.bewerbung.service.LebenslaufTemplateService;
+import com.bewerbung.service.PdfBundleService;
 import com.bewerbung.service.PdfGenerationService;
+import com.bewerbung.service.PdfOptimizationService;
+import com.bewerbung.service.PhotoStoreService;
 import com.bewerbung.service.TempPhotoStorageService;
 import com.bewerbung.service.VacancyAnalyzerService;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import java.io.IOException;
@@ -40,20 +62,23 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.Normalizer;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.io.InputStream;
-import java.util.Base64;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/generate")
@@ -70,6 +95,18 @@ public class GenerateController {
     );
     private static final Pattern HTML_TAGS_PATTERN = Pattern.compile("<[^>]+>");
     private static final Pattern NON_ASCII_FILENAME_PATTERN = Pattern.compile("[^A-Za-z0-9_-]");
+    /** GET resource of a cached cover letter PDF, named in the Content-Location of POST /pdf. */
+    private static final String COVER_PDF_URL_PREFIX = "/api/generate/pdf/cover/";
+    /** Tomcat request attributes for sendfile (the same ones its DefaultServlet uses). */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    /** Lebenslauf renderers selectable with pdf.lebenslauf.renderer. */
+    private static final String RENDERER_CHROME = "chrome";
+    private static final String RENDERER_WKHTMLTOPDF = "wkhtmltopdf";
+    private static final String RENDERER_JAVA = "java";
+
     /** One-time tokens for Chrome PDF: when Chrome loads lebenslauf/html it has no session cookie; token maps to sessionId. */
     private static final ConcurrentHashMap<String, String> PDF_SESSION_TOKENS = new ConcurrentHashMap<>();
 
@@ -82,12 +119,34 @@ public class GenerateController {
     private final FileOutputService fileOutputService;
     private final LebenslaufTemplateService lebenslaufTemplateService;
     private final PdfGenerationService pdfGenerationService;
+    private final CoverPdfCache coverPdfCache;
+    private final BatchPdfService batchPdfService;
+    private final PdfBundleService pdfBundleService;
+    private final PdfOptimizationService pdfOptimization;
+    private final ChromePdfPool chromePdfPool;
+    private final HtmlPdfRenderer htmlPdfRenderer;
     private final TempPhotoStorageService tempPhotoStorageService;
+    private final PhotoStoreService photoStore;
+    private final ArtifactManifestService artifactManifest;
+    private final DefaultSampleArtifactService defaultSampleArtifacts;
+    private final ClasspathResourceRegistry resourceRegistry;
     private final Gson gson;
 
     @Value("${pdf.lebenslauf.use-wkhtmltopdf:false}")
     private boolean pdfUseWkhtmltopdfByDefault;
 
+    @Value("${pdf.lebenslauf.renderer:chrome}")
+    private String lebenslaufRenderer;
+
+    @Value("${pdf.lebenslauf.benchmark.enabled:false}")
+    private boolean lebenslaufBenchmarkEnabled;
+
+    @Value("${pdf.batch.timeout-ms:600000}")
+    private long batchTimeoutMs;
+
+    @Value("${pdf.bundle.timeout-ms:300000}")
+    private long bundleTimeoutMs;
+
     @Autowired
     public GenerateController(VacancyAnalyzerService vacancyAnalyzerService,
                              BiographyService biographyService,
@@ -98,7 +157,17 @@ public class GenerateController {
                              FileOutputService fileOutputService,
                              LebenslaufTemplateService lebenslaufTemplateService,
                              PdfGenerationService pdfGenerationService,
-                             TempPhotoStorageService tempPhotoStorageService) {
+                             CoverPdfCache coverPdfCache,
+                             BatchPdfService batchPdfService,
+                             PdfBundleService pdfBundleService,
+                             PdfOptimizationService pdfOptimization,
+                             ChromePdfPool chromePdfPool,
+                             HtmlPdfRenderer htmlPdfRenderer,
+                             TempPhotoStorageService tempPhotoStorageService,
+                             PhotoStoreService photoStore,
+                             ArtifactManifestService artifactManifest,
+                             DefaultSampleArtifactService defaultSampleArtifacts,
+                             ClasspathResourceRegistry resourceRegistry) {
         this.vacancyAnalyzerService = vacancyAnalyzerService;
         this.biographyService = biographyService;
         this.biographyFileAnalyzerService = biographyFileAnalyzerService;
@@ -108,7 +177,17 @@ public class GenerateController {
         this.fileOutputService = fileOutputService;
         this.lebenslaufTemplateService = lebenslaufTemplateService;
         this.pdfGenerationService = pdfGenerationService;
+        this.coverPdfCache = coverPdfCache;
+        this.batchPdfService = batchPdfService;
+        this.pdfBundleService = pdfBundleService;
+        this.pdfOptimization = pdfOptimization;
+        this.chromePdfPool = chromePdfPool;
+        this.htmlPdfRenderer = htmlPdfRenderer;
         this.tempPhotoStorageService = tempPhotoStorageService;
+        this.photoStore = photoStore;
+        this.artifactManifest = artifactManifest;
+        this.defaultSampleArtifacts = defaultSampleArtifacts;
+        this.resourceRegistry = resourceRegistry;
         this.gson = new Gson();
     }
 
@@ -118,10 +197,11 @@ public class GenerateController {
 
     @PostMapping("/upload-photo")
     public ResponseEntity<Map<String, String>> uploadResumePhoto(HttpServletRequest request,
-                                                                  @RequestParam("photo") MultipartFile photo) {
+                                                                  @RequestParam("photo") MultipartFile photo,
+                                                                  @RequestParam(name = "keepOriginal", defaultValue = "false") boolean keepOriginal) {
         logger.info("Received CV photo upload request");
         String sessionId = request.getSession(true).getId();
-        String photoId = tempPhotoStorageService.saveTemporaryPhoto(sessionId, photo);
+        String photoId = tempPhotoStorageService.saveTemporaryPhoto(sessionId, photo, keepOriginal);
         return ResponseEntity.ok(Map.of(
                 "message", "Photo uploaded successfully",
                 "photoId", photoId
@@ -155,11 +235,10 @@ public class GenerateController {
                 fileOutputService.writeAnschreiben(sessionId, sampleCoverLetter, dataAnschreibenPath);
                 changeDetectionService.saveAnschreibenPath(sessionId, dataAnschreibenPath);
                 try {
-                    String biographyJsonString = gson.toJson(req.getBiography());
-                    JsonObject biographyJson = gson.fromJson(biographyJsonString, JsonObject.class);
-                    String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
-                    fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-                    logger.info("Lebenslauf regenerated for default data flow");
+                    JsonObject biographyJson = gson.fromJson(cvText, JsonObject.class);
+                    refreshLebenslaufHtml(sessionId, cvText, req.getLanguage(),
+                            () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
+                    logger.info("Lebenslauf checked for default data flow");
                 } catch (Exception e) {
                     logger.error("Failed to generate lebenslauf in default-data flow", e);
                     throw new RuntimeException("Failed to generate lebenslauf for default data", e);
@@ -189,10 +268,9 @@ public class GenerateController {
         if (!changeResult.hasChanges()) {
             logger.info("No changes detected. Skipping AI processing for anschreiben.");
             try {
-                logger.info("Generating lebenslauf from biography data (no changes detected, but generating CV)");
-                String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
-                fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-                logger.info("Lebenslauf generated and saved successfully");
+                logger.info("No changes detected, checking whether Lebenslauf needs to be rebuilt");
+                refreshLebenslaufHtml(sessionId, cvText, req.getLanguage(),
+                        () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
             } catch (Exception e) {
                 logger.error("Error generating lebenslauf, continuing without it", e);
             }
@@ -202,16 +280,21 @@ public class GenerateController {
         logger.info("Changes detected: {}", changeResult.getDescription());
 
         JobRequirements jobRequirements = null;
-        if (changeResult.isVacancyChanged()) {
+        ArtifactManifestService.Inputs analysisInputs = analysisInputs(vacancyText);
+        if (!isAnalysisUpToDate(sessionId, analysisInputs)) {
             jobRequirements = vacancyAnalyzerService.analyzeVacancy(req.getJobPosting());
             fileOutputService.writeAnalysis(sessionId, jobRequirements);
+            artifactManifest.record(sessionId, Artifact.ANALYSIS, analysisInputs);
         } else {
             logger.info("Vacancy unchanged, skipping analysis");
         }
 
         if (changeResult.isVacancyChanged() || changeResult.isCvChanged() || changeResult.isWishesChanged()) {
-            String coverLetter;
-            if (changeResult.isWishesChanged() && !changeResult.isVacancyChanged() && !changeResult.isCvChanged()) {
+            ArtifactManifestService.Inputs letterInputs = letterInputs(vacancyText, cvText, req.getWishes(), req.getLanguage());
+            String coverLetter = upToDateLetter(sessionId, letterInputs);
+            if (coverLetter != null) {
+                // Stored letter was built from the same inputs (see upToDateLetter)
+            } else if (changeResult.isWishesChanged() && !changeResult.isVacancyChanged() && !changeResult.isCvChanged()) {
                 boolean hasFactExclusion = anschreibenGeneratorService.containsFactExclusion(req.getWishes());
                 if (hasFactExclusion) {
                     logger.info("Wishes contain FACT_EXCLUSION (deletions) - must regenerate letter from scratch using all fields");
@@ -263,6 +346,7 @@ public class GenerateController {
             String dataAnschreibenPath = "data/" + safeSessionId(sessionId) + "/anschreiben.txt";
             fileOutputService.writeAnschreiben(sessionId, coverLetter, dataAnschreibenPath);
             changeDetectionService.saveAnschreibenPath(sessionId, dataAnschreibenPath);
+            artifactManifest.record(sessionId, Artifact.LETTER, letterInputs);
             logger.info("Anschreiben file write completed");
         } else {
             logger.info("No changes detected, skipping anschreiben generation");
@@ -270,9 +354,8 @@ public class GenerateController {
 
         try {
             logger.info("Generating lebenslauf from biography data");
-            String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
-            fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-            logger.info("Lebenslauf generated and saved successfully");
+            refreshLebenslaufHtml(sessionId, cvText, req.getLanguage(),
+                    () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
         } catch (Exception e) {
             logger.error("Error generating lebenslauf, continuing without it", e);
         }
@@ -322,10 +405,9 @@ public class GenerateController {
                     logger.info("Successfully loaded saved Anschreiben from session");
                     fileOutputService.writeAnschreiben(sessionId, savedAnschreiben);
                     try {
-                        logger.info("Generating lebenslauf from biography data (no changes detected, but generating CV)");
-                        String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
-                        fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-                        logger.info("Lebenslauf generated and saved successfully");
+                        logger.info("No changes detected, checking whether Lebenslauf needs to be rebuilt");
+                        refreshLebenslaufHtml(sessionId, cvText, language,
+                                () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
                     } catch (Exception e) {
                         logger.error("Error generating lebenslauf, continuing without it", e);
                     }
@@ -336,10 +418,9 @@ public class GenerateController {
             
             // Still generate lebenslauf even if no changes detected
             try {
-                logger.info("Generating lebenslauf from biography data (no changes detected, but generating CV)");
-                String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
-                fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-                logger.info("Lebenslauf generated and saved successfully");
+                logger.info("No changes detected, checking whether Lebenslauf needs to be rebuilt");
+                refreshLebenslaufHtml(sessionId, cvText, language,
+                        () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
             } catch (Exception e) {
                 logger.error("Error generating lebenslauf, continuing without it", e);
             }
@@ -347,13 +428,22 @@ public class GenerateController {
         }
 
         logger.info("Changes detected: {}", changeResult.getDescription());
-        JobRequirements jobRequirements = vacancyAnalyzerService.analyzeVacancy(req.getJobPosting());
-        if (changeResult.isVacancyChanged()) {
-            fileOutputService.writeAnalysis(sessionId, jobRequirements);
+        ArtifactManifestService.Inputs letterInputs = letterInputs(vacancyText, cvText, req.getWishes(), language);
+        String coverLetter = upToDateLetter(sessionId, letterInputs);
+        ArtifactManifestService.Inputs analysisInputs = analysisInputs(vacancyText);
+        boolean analysisUpToDate = isAnalysisUpToDate(sessionId, analysisInputs);
+        JobRequirements jobRequirements = null;
+        if (coverLetter == null || !analysisUpToDate) {
+            jobRequirements = vacancyAnalyzerService.analyzeVacancy(req.getJobPosting());
+            if (!analysisUpToDate) {
+                fileOutputService.writeAnalysis(sessionId, jobRequirements);
+                artifactManifest.record(sessionId, Artifact.ANALYSIS, analysisInputs);
+            }
         }
 
-        String coverLetter;
-        if (changeResult.isWishesChanged() && !changeResult.isVacancyChanged() && !changeResult.isCvChanged() && !changeResult.isLanguageChanged()) {
+        if (coverLetter != null) {
+            // Stored letter was built from the same inputs (see upToDateLetter)
+        } else if (changeResult.isWishesChanged() && !changeResult.isVacancyChanged() && !changeResult.isCvChanged() && !changeResult.isLanguageChanged()) {
             boolean hasFactExclusion = anschreibenGeneratorService.containsFactExclusion(req.getWishes());
             if (hasFactExclusion) {
                 logger.info("Wishes contain FACT_EXCLUSION (deletions) - must regenerate letter from scratch using all fields");
@@ -394,14 +484,12 @@ public class GenerateController {
         fileOutputService.writeAnschreiben(sessionId, coverLetter);
         fileOutputService.writeAnschreiben(sessionId, coverLetter, dataAnschreibenPath);
         changeDetectionService.saveAnschreibenPath(sessionId, dataAnschreibenPath);
+        artifactManifest.record(sessionId, Artifact.LETTER, letterInputs);
 
         try {
-            String biographyJsonStr = gson.toJson(req.getBiography());
-            JsonObject biographyJsonForLebenslauf = gson.fromJson(biographyJsonStr, JsonObject.class);
             logger.info("Generating lebenslauf from biography data");
-            String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJsonForLebenslauf);
-            fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-            logger.info("Lebenslauf generated and saved successfully");
+            refreshLebenslaufHtml(sessionId, cvText, language,
+                    () -> lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson));
         } catch (Exception e) {
             logger.error("Error generating lebenslauf, continuing without it", e);
         }
@@ -509,6 +597,13 @@ public class GenerateController {
             logger.info("Language changed to: {}. Must regenerate cover letter even if other data hasn't changed.", language);
         }
 
+        ArtifactManifestService.Inputs letterInputs = letterInputs(jobPosting, biographyText, wishes, language);
+        String storedLetter = upToDateLetter(sessionId, letterInputs);
+        if (storedLetter != null) {
+            fileOutputService.writeAnschreiben(sessionId, storedLetter);
+            return ResponseEntity.ok(new GenerateResponseDto(storedLetter));
+        }
+
         // Read file content and parse using AI
         Biography biography;
         try {
@@ -579,12 +674,13 @@ public class GenerateController {
         fileOutputService.writeAnschreiben(sessionId, coverLetter);
         fileOutputService.writeAnschreiben(sessionId, coverLetter, dataAnschreibenPath);
         changeDetectionService.saveAnschreibenPath(sessionId, dataAnschreibenPath);
+        artifactManifest.record(sessionId, Artifact.LETTER, letterInputs);
 
         try {
             logger.info("Generating lebenslauf from Biography object");
-            String lebenslaufHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biography);
-            fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
-            logger.info("Lebenslauf generated and saved successfully");
+            Biography parsedBiography = biography;
+            refreshLebenslaufHtml(sessionId, biographyText, languageForGeneration,
+                    () -> lebenslaufTemplateService.generateLebenslauf(sessionId, parsedBiography));
         } catch (Exception e) {
             logger.error("Error generating lebenslauf, continuing without it", e);
             // Не прерываем выполнение, если lebenslauf не удалось сгенерировать
@@ -597,6 +693,15 @@ public class GenerateController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Cover letter PDF. With pdf.cache.enabled the PDF comes from {@link CoverPdfCache} by content hash
+     * and the response names its cacheable GET resource in Content-Location (POST responses are never
+     * revalidated, so the ETag lives there).
+     * <p>
+     * Buffered by design, unlike the Lebenslauf and batch downloads: the letter is a few tens of KB,
+     * the cache keeps it as a byte array anyway, and rendering into memory returns the pooled font
+     * before any network I/O. The array is written on the request thread (no async streaming thread).
+     */
     @PostMapping("/pdf")
     public ResponseEntity<byte[]> generatePdf(@RequestBody PdfRequestDto request) {
         String coverLetterText = request.getCoverLetter();
@@ -606,48 +711,208 @@ public class GenerateController {
         if (coverLetterText == null || coverLetterText.trim().isEmpty()) {
             throw new IllegalArgumentException("Cover letter text must not be empty");
         }
-        
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "Anschreiben.pdf");
+
+        byte[] samplePdf = defaultSampleArtifacts.findSampleCoverPdf(coverLetterText).orElse(null);
+        if (samplePdf != null) {
+            headers.setContentLength(samplePdf.length);
+            return ResponseEntity.ok().headers(headers).body(samplePdf);
+        }
+
+        // Rendered before the response starts: the font lease is released before the client reads,
+        // and render errors (including 503 for a busy font pool) can still set the status.
+        // One date for both the cache key and the letter, so a render crossing midnight matches its key
+        LocalDate date = LocalDate.now();
+        String cacheKey = coverPdfCache.isEnabled() ? coverPdfCache.key(coverLetterText, date) : null;
+        byte[] pdf;
         try {
-            byte[] pdfBytes = pdfGenerationService.generatePdf(coverLetterText);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "Anschreiben.pdf");
-            headers.setContentLength(pdfBytes.length);
-            
-            logger.info("PDF generated successfully ({} bytes)", pdfBytes.length);
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfBytes);
+            pdf = cacheKey != null ? coverPdfCache.get(cacheKey, coverLetterText, date)
+                    : pdfGenerationService.generatePdf(coverLetterText, date);
         } catch (IOException e) {
             logger.error("IO error generating PDF: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Unexpected error generating PDF: {}", e.getMessage(), e);
+        }
+        if (cacheKey != null) {
+            headers.set(HttpHeaders.CONTENT_LOCATION, COVER_PDF_URL_PREFIX + cacheKey);
+        }
+        headers.setContentLength(pdf.length);
+        return ResponseEntity.ok().headers(headers).body(pdf);
+    }
+
+    /**
+     * A cover letter PDF already in {@link CoverPdfCache}, by the key from the Content-Location of
+     * POST /pdf. The content under a key never changes, so a matching If-None-Match is answered 304
+     * without touching the cache; a disk tier file is streamed rather than read into memory. 404 when
+     * the key is unknown or was evicted (the client then posts the letter again).
+     */
+    @GetMapping("/pdf/cover/{key}")
+    public ResponseEntity<Resource> getCachedPdf(
+            @PathVariable("key") String key,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!coverPdfCache.isEnabled() || !CoverPdfCache.isValidKey(key)) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = CoverPdfCache.etag(key);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl("private, max-age=86400");
+        if (etag.equals(ifNoneMatch)) {
+            coverPdfCache.recordNotModified();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "Anschreiben.pdf");
+        byte[] pdf = coverPdfCache.getIfPresent(key);
+        if (pdf != null) {
+            headers.setContentLength(pdf.length);
+            return ResponseEntity.ok().headers(headers).body(new ByteArrayResource(pdf));
+        }
+        return coverPdfCache.findFile(key)
+                .<ResponseEntity<Resource>>map(file -> ResponseEntity.ok().headers(headers).body(new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Several cover letters as one ZIP of PDFs, rendered in parallel and streamed entry by entry.
+     * Streams under pdf.batch.timeout-ms instead of the shorter pdf.stream.timeout-ms.
+     */
+    @PostMapping("/pdf/batch")
+    public ResponseEntity<StreamingResponseBody> generatePdfBatch(HttpServletRequest httpRequest,
+                                                                  @RequestBody BatchPdfRequestDto request) {
+        List<BatchPdfService.Letter> letters = request.getLetters() == null ? List.of() : request.getLetters().stream()
+                .map(letter -> new BatchPdfService.Letter(letter.getFileName(), letter.getCoverLetter()))
+                .toList();
+        logger.info("Received batch PDF generation request ({} letters)", letters.size());
+        try {
+            batchPdfService.validate(letters);
+        } catch (IOException e) {
+            logger.error("IO error generating PDF batch: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
+        }
+
+        httpRequest.setAttribute(AsyncConfig.STREAM_TIMEOUT_ATTRIBUTE, batchTimeoutMs);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "Anschreiben.zip");
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(out -> batchPdfService.writeZip(letters, out));
+    }
+
+    /**
+     * Anschreiben and Lebenslauf in one download: format=zip (both PDFs) or format=pdf (merged).
+     * The cover letter renders in the background while this thread renders the Lebenslauf.
+     * Streams under pdf.bundle.timeout-ms instead of pdf.stream.timeout-ms.
+     */
+    @PostMapping("/pdf/bundle")
+    public ResponseEntity<StreamingResponseBody> generateApplicationBundle(
+            HttpServletRequest request,
+            @RequestBody PdfRequestDto body,
+            @RequestParam(name = "format", defaultValue = "zip") String format,
+            @RequestParam(name = "defaultData", defaultValue = "false") boolean defaultData,
+            @RequestParam(name = "useWkhtmltopdf", defaultValue = "false") boolean useWkhtmltopdf) {
+        String coverLetterText = body.getCoverLetter();
+        if (coverLetterText == null || coverLetterText.trim().isEmpty()) {
+            throw new IllegalArgumentException("Cover letter text must not be empty");
+        }
+        boolean merged = "pdf".equalsIgnoreCase(format);
+        if (!merged && !"zip".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported bundle format: " + format + " (zip or pdf)");
+        }
+        logger.info("Received application bundle request (format: {})", merged ? "pdf" : "zip");
+
+        byte[] coverPdf;
+        LebenslaufPdf lebenslauf;
+        try {
+            pdfGenerationService.checkReady();
+            CompletableFuture<byte[]> coverRendering = pdfBundleService.renderCoverLetterAsync(coverLetterText);
+            try {
+                lebenslauf = ensureLebenslaufPdf(request, defaultData, false, useWkhtmltopdf);
+            } catch (RuntimeException e) {
+                coverRendering.cancel(true);
+                throw e;
+            }
+            coverPdf = pdfBundleService.awaitCoverLetter(coverRendering);
+        } catch (IOException e) {
+            logger.error("IO error generating application bundle: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to generate PDF: " + e.getMessage(), e);
         }
+
+        String baseName = lebenslauf.filename.replaceAll("(?i)_?lebenslauf\\.pdf$", "");
+        request.setAttribute(AsyncConfig.STREAM_TIMEOUT_ATTRIBUTE, bundleTimeoutMs);
+        HttpHeaders headers = new HttpHeaders();
+        if (merged) {
+            headers.setContentType(MediaType.APPLICATION_PDF);
+            headers.setContentDispositionFormData("attachment", baseName + "_Bewerbung.pdf");
+            return ResponseEntity.ok().headers(headers)
+                    .body(out -> pdfBundleService.writeMerged(coverPdf, lebenslauf.path, out));
+        }
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", baseName + "_Bewerbung.zip");
+        return ResponseEntity.ok().headers(headers)
+                .body(out -> pdfBundleService.writeZip(coverPdf, "Anschreiben.pdf", lebenslauf.path, lebenslauf.filename, out));
     }
 
     /**
      * Serves the same UTF-8 font used for Anschreiben PDF (from resources/fonts/).
      * Used by the Lebenslauf HTML so that PDF export uses the same font when rendered by Chrome.
+     * Served from the preloaded resource registry with an ETag; revalidation answers 304.
      */
     @GetMapping(value = "/fonts/LiberationSans-Regular.ttf", produces = "font/ttf")
-    public ResponseEntity<byte[]> getLebenslaufFont() {
-        try (InputStream fontStream = getClass().getResourceAsStream("/fonts/LiberationSans-Regular.ttf")) {
-            if (fontStream == null) {
-                logger.warn("Font resource /fonts/LiberationSans-Regular.ttf not found");
-                return ResponseEntity.notFound().build();
-            }
-            byte[] fontBytes = fontStream.readAllBytes();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("font/ttf"));
-            headers.setCacheControl("public, max-age=86400");
-            return ResponseEntity.ok().headers(headers).body(fontBytes);
-        } catch (IOException e) {
-            logger.error("Failed to read font resource", e);
-            return ResponseEntity.internalServerError().build();
+    public ResponseEntity<Resource> getLebenslaufFont(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = resourceRegistry.getEtag(ClasspathResourceRegistry.LEBENSLAUF_FONT);
+        if (etag == null) {
+            logger.warn("Font resource /{} not found", ClasspathResourceRegistry.LEBENSLAUF_FONT);
+            return ResponseEntity.notFound().build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("public, max-age=86400");
+        headers.setETag(etag);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(MediaType.parseMediaType("font/ttf"));
+        return resourceRegistry.asResource(ClasspathResourceRegistry.LEBENSLAUF_FONT)
+                .<ResponseEntity<Resource>>map(font -> ResponseEntity.ok().headers(headers).body(font))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Serves an uploaded photo by its content hash (print-size copy by default, ?variant=original for the upload).
+     * Content under a hash never changes, so the ETag is the hash and clients may cache it indefinitely.
+     */
+    @GetMapping("/photo/{hash}")
+    public ResponseEntity<byte[]> getPhoto(
+            HttpServletRequest request,
+            @PathVariable("hash") String hash,
+            @RequestParam(name = "variant", defaultValue = "print") String variant,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!PhotoStoreService.isValidHash(hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        // Only the caller's own photo: the same bytes uploaded by another user share the hash
+        HttpSession session = request.getSession(false);
+        if (session == null || !tempPhotoStorageService.isCurrentPhoto(session.getId(), hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        PhotoStoreService.Variant photoVariant = PhotoStoreService.Variant.parse(variant);
+        String etag = "\"" + hash + "-" + photoVariant.name().toLowerCase(Locale.ROOT) + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("private, max-age=31536000, immutable");
+        headers.setETag(etag);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
         }
+        return photoStore.get(hash, photoVariant)
+                .<ResponseEntity<byte[]>>map(photo -> {
+                    headers.setContentType(MediaType.parseMediaType(photo.getMimeType()));
+                    return ResponseEntity.ok().headers(headers).body(photo.getBytes());
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/lebenslauf/html")
@@ -669,6 +934,7 @@ public class GenerateController {
                         logger.info("Generating Lebenslauf HTML from stored CV for session (html requested)");
                         html = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
                         fileOutputService.writeLebenslauf(sessionId, html);
+                        artifactManifest.record(sessionId, Artifact.LEBENSLAUF_HTML, lebenslaufHtmlInputs(sessionId, cvText, changeDetectionService.getLanguage(sessionId)));
                     }
                 } catch (Exception e) {
                     logger.debug("Could not generate Lebenslauf from stored CV: {}", e.getMessage());
@@ -678,7 +944,8 @@ public class GenerateController {
                 throw new RuntimeException("Lebenslauf HTML not found for session. Please generate Lebenslauf first.");
             }
         }
-        html = embedPhotoAsDataUri(html, sessionId);
+        // Chrome loads the token URL without the session cookie, so it could not fetch the photo URL
+        html = pdfToken != null && !pdfToken.isBlank() ? embedPhotoAsDataUri(html, sessionId) : embedPhotoUrl(html, sessionId);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE)
                 .body(html);
@@ -686,32 +953,113 @@ public class GenerateController {
 
     @GetMapping("/lebenslauf/default-html")
     public ResponseEntity<String> getDefaultLebenslaufHtml(HttpServletRequest request) {
-        try {
-            ClassPathResource resource = new ClassPathResource("lebenslauf-filled.html");
-            if (!resource.exists()) {
-                throw new RuntimeException("Default lebenslauf HTML template not found in resources");
-            }
-            String html = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            html = html.replace("src=\"static/", "src=\"/static/");
-            String sessionId = request.getSession(true).getId();
-            html = embedPhotoAsDataUri(html, sessionId);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE)
-                    .body(html);
-        } catch (IOException e) {
-            logger.error("Failed to read default lebenslauf HTML template", e);
-            throw new RuntimeException("Failed to read default lebenslauf HTML template", e);
+        String html = defaultSampleArtifacts.getDefaultLebenslaufHtml();
+        if (html == null) {
+            throw new RuntimeException("Default lebenslauf HTML template not found in resources");
         }
+        String sessionId = request.getSession(true).getId();
+        html = embedPhotoUrl(html, sessionId);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE)
+                .body(html);
     }
 
     @GetMapping("/pdf/lebenslauf")
-    public ResponseEntity<byte[]> generateLebenslaufPdf(
+    public ResponseEntity<Resource> generateLebenslaufPdf(
             HttpServletRequest request,
             @RequestParam(name = "defaultData", defaultValue = "false") boolean defaultData,
             @RequestParam(name = "force", defaultValue = "false") boolean forceRegenerate,
             @RequestParam(name = "useWkhtmltopdf", defaultValue = "false") boolean useWkhtmltopdf
     ) {
+        LebenslaufPdf pdf = ensureLebenslaufPdf(request, defaultData, forceRegenerate, useWkhtmltopdf);
+        return lebenslaufPdfResponse(pdf.path, pdf.filename);
+    }
+
+    /**
+     * Times the Lebenslauf renderers against each other on the default sample without photo: one
+     * warm-up render, then {@code runs} timed renders each into a temp directory. chrome uses the
+     * persistent pool when it is available, otherwise one browser process per render. Only enabled
+     * with pdf.lebenslauf.benchmark.enabled=true, since it renders synchronously on the request thread.
+     */
+    @PostMapping("/pdf/lebenslauf/benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkLebenslaufRenderers(
+            HttpServletRequest request,
+            @RequestParam(name = "runs", defaultValue = "5") int runs
+    ) {
+        if (!lebenslaufBenchmarkEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        String html = defaultSampleArtifacts.getDefaultLebenslaufHtml();
+        if (html == null) {
+            throw new RuntimeException("Default Lebenslauf HTML not found");
+        }
+        int timedRuns = Math.max(1, Math.min(runs, 50));
+        String sourceUrl = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort()
+                + "/api/generate/lebenslauf/default-html";
+        Path dir;
+        try {
+            dir = Files.createTempDirectory("lebenslauf-benchmark-");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create benchmark directory", e);
+        }
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("runs", timedRuns);
+        try {
+            results.put(RENDERER_CHROME, benchmarkRenderer(timedRuns, dir.resolve("chrome.pdf"),
+                    out -> generateLebenslaufPdfWithChrome(sourceUrl, out)));
+            results.put(RENDERER_WKHTMLTOPDF, benchmarkRenderer(timedRuns, dir.resolve("wkhtmltopdf.pdf"),
+                    out -> runWkhtmltopdf(html, out, null)));
+            results.put(RENDERER_JAVA, benchmarkRenderer(timedRuns, dir.resolve("java.pdf"),
+                    out -> generateLebenslaufPdfInProcess(html, out, null)));
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(dir);
+            } catch (IOException e) {
+                logger.debug("Failed to clean up benchmark directory {}: {}", dir, e.getMessage());
+            }
+        }
+        logger.info("Lebenslauf renderer benchmark: {}", results);
+        return ResponseEntity.ok(results);
+    }
+
+    private Map<String, Object> benchmarkRenderer(int runs, Path outputPdfPath, Predicate<Path> render) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (!render.test(outputPdfPath)) {
+            result.put("available", false);
+            return result;
+        }
+        result.put("available", true);
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            if (!render.test(outputPdfPath)) {
+                result.put("error", "render " + (i + 1) + " of " + runs + " failed");
+                return result;
+            }
+            millis[i] = (System.nanoTime() - started) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        result.put("minMillis", millis[0]);
+        result.put("medianMillis", millis[runs / 2]);
+        result.put("maxMillis", millis[runs - 1]);
+        try {
+            result.put("bytes", Files.size(outputPdfPath));
+        } catch (IOException e) {
+            result.put("bytes", -1);
+        }
+        return result;
+    }
+
+    /**
+     * Renders the Lebenslauf PDF of the session to output/ unless the file on disk is up to date,
+     * and returns its location.
+     */
+    private LebenslaufPdf ensureLebenslaufPdf(HttpServletRequest request, boolean defaultData,
+                                              boolean forceRegenerate, boolean useWkhtmltopdf) {
         String sessionId = request.getSession(true).getId();
         final String filename;
         final Path outputPdfPath;
@@ -735,6 +1083,7 @@ public class GenerateController {
                             logger.info("Generating Lebenslauf HTML from stored CV for session (PDF requested without prior generate)");
                             sessionHtml = lebenslaufTemplateService.generateLebenslauf(sessionId, biographyJson);
                             fileOutputService.writeLebenslauf(sessionId, sessionHtml);
+                            artifactManifest.record(sessionId, Artifact.LEBENSLAUF_HTML, lebenslaufHtmlInputs(sessionId, cvText, changeDetectionService.getLanguage(sessionId)));
                         }
                     } catch (Exception e) {
                         logger.debug("Could not generate Lebenslauf from stored CV: {}", e.getMessage());
@@ -753,18 +1102,32 @@ public class GenerateController {
                     + "/api/generate/lebenslauf/html?pdfToken=" + pdfToken;
         }
 
-        // Keep a lightweight content signature next to the PDF to skip expensive re-rendering
-        // when the source HTML has not changed between requests.
-        String contentSignature = defaultData
-                ? calculateSha256(loadDefaultLebenslaufHtmlForSession(sessionId))
-                : calculateSha256(sessionHtml != null ? sessionHtml : "");
-        Path signaturePath = getPdfSignaturePath(outputPdfPath);
+        // The artifact manifest records which HTML, photo and renderer the PDF on disk was built from,
+        // so re-rendering is skipped when none of them changed between requests.
+        String renderer = useWkhtmltopdf ? RENDERER_WKHTMLTOPDF : defaultLebenslaufRenderer();
+        String optimization = pdfOptimization.fingerprint(PdfOptimizationService.LEBENSLAUF);
+        String photoHash = artifactManifest.getPhotoHash(sessionId);
+        ArtifactManifestService.Inputs pdfInputs = new ArtifactManifestService.Inputs()
+                .with("html", defaultData ? "default:" + defaultSampleArtifacts.getDefaultLebenslaufHtmlHash()
+                        : ArtifactManifestService.sha256(sessionHtml != null ? sessionHtml : ""))
+                .with("photo", photoHash)
+                .with("renderer", renderer)
+                .with("optimize", optimization);
+
+        // Default data without a photo renders identically for every session: serve the shared copy.
+        Path sharedDefaultPdf = defaultData && ArtifactManifestService.NO_PHOTO.equals(photoHash)
+                ? defaultSampleArtifacts.getSharedDefaultLebenslaufPdf(renderer + ":" + optimization)
+                : null;
+        if (sharedDefaultPdf != null && !forceRegenerate && isNonEmptyFile(sharedDefaultPdf)) {
+            logger.info("Serving shared pre-rendered default Lebenslauf PDF: {}", sharedDefaultPdf);
+            return new LebenslaufPdf(sharedDefaultPdf, filename);
+        }
 
         // Check if PDF needs to be regenerated
         // Regenerate if:
         // 1) force flag is set
         // 2) PDF file does not exist / empty
-        // 3) Source content signature differs from previously generated signature
+        // 3) Any manifest input differs from the one the existing PDF was built from
         boolean needsRegeneration = false;
         if (forceRegenerate) {
             needsRegeneration = true;
@@ -774,27 +1137,24 @@ public class GenerateController {
                 if (!Files.exists(outputPdfPath) || Files.size(outputPdfPath) == 0) {
                     needsRegeneration = true;
                     logger.debug("PDF file does not exist or is empty, will regenerate");
+                } else if (!artifactManifest.isUpToDate(sessionId, Artifact.LEBENSLAUF_PDF, filename, pdfInputs)) {
+                    needsRegeneration = true;
+                    logger.info("Lebenslauf PDF inputs changed (or not recorded), will regenerate PDF");
                 } else {
-                    String existingSignature = Files.exists(signaturePath)
-                            ? Files.readString(signaturePath, StandardCharsets.UTF_8).trim()
-                            : "";
-                    if (!contentSignature.equals(existingSignature)) {
-                        needsRegeneration = true;
-                        logger.info("Lebenslauf content changed (or signature missing), will regenerate PDF");
-                    } else {
-                        logger.info("Lebenslauf content unchanged, using cached PDF");
-                    }
+                    logger.info("Lebenslauf PDF inputs unchanged, using cached PDF");
                 }
             } catch (IOException e) {
-                logger.warn("Error checking PDF/signature, will regenerate PDF: {}", e.getMessage());
+                logger.warn("Error checking existing PDF, will regenerate PDF: {}", e.getMessage());
                 needsRegeneration = true;
             }
         }
 
         if (needsRegeneration) {
-            boolean useWkhtmltopdfNow = useWkhtmltopdf || pdfUseWkhtmltopdfByDefault;
             boolean generated;
-            if (useWkhtmltopdfNow) {
+            if (RENDERER_JAVA.equals(renderer)) {
+                String html = defaultData ? defaultSampleArtifacts.getDefaultLebenslaufHtml() : sessionHtml;
+                generated = generateLebenslaufPdfInProcess(html, outputPdfPath, sessionId);
+            } else if (RENDERER_WKHTMLTOPDF.equals(renderer)) {
                 logger.info("Using wkhtmltopdf (requested or server default)");
                 if (defaultData) {
                     generated = generateLebenslaufPdfWithWkhtmltopdfDefault(outputPdfPath, sessionId);
@@ -809,67 +1169,167 @@ public class GenerateController {
                 }
             }
             if (!generated) {
-                throw new RuntimeException("Failed to generate Lebenslauf PDF. Install google-chrome/chromium or wkhtmltopdf.");
+                throw new RuntimeException(RENDERER_JAVA.equals(renderer)
+                        ? "Failed to generate Lebenslauf PDF with the in-process renderer."
+                        : "Failed to generate Lebenslauf PDF. Install google-chrome/chromium or wkhtmltopdf, or set pdf.lebenslauf.renderer=java.");
             }
-            try {
-                Files.writeString(signaturePath, contentSignature, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                logger.warn("Failed to write PDF signature file {}: {}", signaturePath, e.getMessage());
+            // Browser output embeds the photo at upload resolution: downsample and compress before caching
+            pdfOptimization.optimizeFile(outputPdfPath, PdfOptimizationService.LEBENSLAUF);
+            artifactManifest.record(sessionId, Artifact.LEBENSLAUF_PDF, filename, pdfInputs);
+            if (sharedDefaultPdf != null) {
+                publishSharedDefaultPdf(outputPdfPath, sharedDefaultPdf);
             }
         } else {
             logger.info("PDF file is up to date, using existing file: {}", outputPdfPath);
         }
 
-        try {
-            byte[] pdfBytes = Files.readAllBytes(outputPdfPath);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(pdfBytes.length);
+        return new LebenslaufPdf(outputPdfPath, filename);
+    }
 
-            logger.info("Lebenslauf PDF generated successfully: {} ({} bytes)", outputPdfPath, pdfBytes.length);
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfBytes);
+    /**
+     * Sends the rendered PDF from disk without reading it into the heap. On Tomcat with sendfile
+     * support the file is handed to the connector (zero-copy, after the servlet returns); otherwise
+     * it is copied to the response in small chunks from a {@link FileSystemResource}.
+     */
+    private ResponseEntity<Resource> lebenslaufPdfResponse(Path outputPdfPath, String filename) {
+        long size;
+        try {
+            size = Files.size(outputPdfPath);
         } catch (IOException e) {
             logger.error("Failed to read generated lebenslauf PDF from {}", outputPdfPath, e);
             throw new RuntimeException("Failed to read generated lebenslauf PDF", e);
         }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setContentLength(size);
+
+        HttpServletRequest request = currentRequest();
+        if (request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, outputPdfPath.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, size);
+            logger.info("Lebenslauf PDF sent via sendfile: {} ({} bytes)", outputPdfPath, size);
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        logger.info("Lebenslauf PDF streamed from file: {} ({} bytes)", outputPdfPath, size);
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(outputPdfPath));
     }
 
-    private Path getPdfSignaturePath(Path outputPdfPath) {
-        return Paths.get(outputPdfPath.toString() + ".sha256");
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
     }
 
-    private String calculateSha256(String content) {
+    private boolean isNonEmptyFile(Path path) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) sb.append('0');
-                sb.append(hex);
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
+            return Files.exists(path) && Files.size(path) > 0;
+        } catch (IOException e) {
+            return false;
         }
     }
 
-    private String loadDefaultLebenslaufHtmlForSession(String sessionId) {
+    /** Copies a freshly rendered default PDF into the shared location (atomically, readers never see a partial file). */
+    private void publishSharedDefaultPdf(Path renderedPdf, Path sharedPdf) {
         try {
-            ClassPathResource resource = new ClassPathResource("lebenslauf-filled.html");
-            if (!resource.exists()) {
-                return "default-template-missing";
-            }
-            String html = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            html = html.replace("src=\"static/", "src=\"/static/");
-            return embedPhotoAsDataUri(html, sessionId);
+            Files.createDirectories(sharedPdf.getParent());
+            Path temp = Files.createTempFile(sharedPdf.getParent(), "default_", ".tmp");
+            Files.copy(renderedPdf, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, sharedPdf, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Default Lebenslauf PDF published for sessions without photo: {}", sharedPdf);
         } catch (IOException e) {
-            logger.warn("Failed to build default Lebenslauf HTML signature for session {}: {}", sessionId, e.getMessage());
-            return "default-template-error";
+            logger.warn("Failed to publish shared default Lebenslauf PDF: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-renders the session Lebenslauf HTML only when the biography, language, photo or template
+     * changed since the stored HTML was built, or the stored HTML is gone.
+     */
+    private void refreshLebenslaufHtml(String sessionId, String biographyText, String language, Supplier<String> renderer) {
+        ArtifactManifestService.Inputs inputs = lebenslaufHtmlInputs(sessionId, biographyText, language);
+        if (artifactManifest.isUpToDate(sessionId, Artifact.LEBENSLAUF_HTML, inputs)) {
+            String stored = fileOutputService.readLebenslauf(sessionId);
+            if (stored != null && !stored.isBlank()) {
+                logger.info("Lebenslauf HTML inputs unchanged, keeping stored Lebenslauf");
+                return;
+            }
+            logger.info("Lebenslauf HTML is recorded as up to date but missing from storage, rebuilding");
+        }
+        String lebenslaufHtml = renderer.get();
+        if (lebenslaufHtml == null || lebenslaufHtml.isBlank()) {
+            logger.warn("Rendered Lebenslauf HTML is empty, not recording it in the manifest");
+            return;
         }
+        fileOutputService.writeLebenslauf(sessionId, lebenslaufHtml);
+        artifactManifest.record(sessionId, Artifact.LEBENSLAUF_HTML, inputs);
+        logger.info("Lebenslauf generated and saved successfully");
+    }
+
+    private ArtifactManifestService.Inputs lebenslaufHtmlInputs(String sessionId, String biographyText, String language) {
+        return new ArtifactManifestService.Inputs()
+                .withHashOf("biography", biographyText)
+                .with("language", normalizedLanguage(language))
+                .with("photo", artifactManifest.getPhotoHash(sessionId))
+                .with("template", lebenslaufTemplateService.getTemplateVersion());
+    }
+
+    private ArtifactManifestService.Inputs analysisInputs(String vacancyText) {
+        return new ArtifactManifestService.Inputs().withHashOf("vacancy", vacancyText);
+    }
+
+    /** The stored analysis was built from these inputs and is still in session storage. */
+    private boolean isAnalysisUpToDate(String sessionId, ArtifactManifestService.Inputs inputs) {
+        return artifactManifest.isUpToDate(sessionId, Artifact.ANALYSIS, inputs) && fileOutputService.hasAnalysis(sessionId);
+    }
+
+    /**
+     * The stored Anschreiben when the manifest says it was built from exactly these inputs, so the
+     * LLM is not asked again for the same letter; null when stale, unrecorded or missing from storage.
+     */
+    private String upToDateLetter(String sessionId, ArtifactManifestService.Inputs inputs) {
+        if (!artifactManifest.isUpToDate(sessionId, Artifact.LETTER, inputs)) {
+            return null;
+        }
+        String letter = fileOutputService.readAnschreiben(sessionId);
+        if (letter == null || letter.isBlank()) {
+            logger.info("Anschreiben is recorded as up to date but missing from storage, regenerating");
+            return null;
+        }
+        logger.info("Letter inputs unchanged since the stored Anschreiben was built, skipping AI generation");
+        return letter;
+    }
+
+    /** Renderer from pdf.lebenslauf.renderer; the older use-wkhtmltopdf=true still selects wkhtmltopdf. */
+    private String defaultLebenslaufRenderer() {
+        if (pdfUseWkhtmltopdfByDefault) {
+            return RENDERER_WKHTMLTOPDF;
+        }
+        String configured = lebenslaufRenderer == null ? "" : lebenslaufRenderer.trim().toLowerCase(Locale.ROOT);
+        switch (configured) {
+            case RENDERER_WKHTMLTOPDF:
+            case RENDERER_JAVA:
+                return configured;
+            case RENDERER_CHROME:
+            case "":
+                return RENDERER_CHROME;
+            default:
+                logger.warn("Unknown pdf.lebenslauf.renderer '{}', using chrome", lebenslaufRenderer);
+                return RENDERER_CHROME;
+        }
+    }
+
+    private ArtifactManifestService.Inputs letterInputs(String vacancyText, String cvText, String wishes, String language) {
+        return new ArtifactManifestService.Inputs()
+                .withHashOf("vacancy", vacancyText)
+                .withHashOf("biography", cvText)
+                .withHashOf("wishes", wishes)
+                .with("language", normalizedLanguage(language));
+    }
+
+    private static String normalizedLanguage(String language) {
+        return language == null || language.isBlank() ? "de" : language.trim().toLowerCase(Locale.ROOT);
     }
 
     private boolean generateLebenslaufPdfWithChrome(String sourceUrl, Path outputPdfPath) {
@@ -883,6 +1343,11 @@ public class GenerateController {
             return false;
         }
 
+        // Persistent browser pool first; a one-shot browser process per PDF only when it is unavailable
+        if (chromePdfPool.render(sourceUrl, outputPdfPath)) {
+            return true;
+        }
+
         List<List<String>> commands = Arrays.asList(
                 Arrays.asList(
                         "/usr/bin/google-chrome", "--headless", "--disable-gpu", "--no-sandbox",
@@ -946,17 +1411,25 @@ public class GenerateController {
     }
 
     private boolean generateLebenslaufPdfWithWkhtmltopdfDefault(Path outputPdfPath, String sessionId) {
+        String html = defaultSampleArtifacts.getDefaultLebenslaufHtml();
+        if (html == null) {
+            logger.warn("Default lebenslauf HTML not found");
+            return false;
+        }
+        return runWkhtmltopdf(html, outputPdfPath, sessionId);
+    }
+
+    /** Lebenslauf via openhtmltopdf inside the JVM: no browser process and no temp HTML file. */
+    private boolean generateLebenslaufPdfInProcess(String html, Path outputPdfPath, String sessionId) {
+        if (html == null) {
+            logger.warn("Lebenslauf HTML not found for in-process rendering");
+            return false;
+        }
         try {
-            ClassPathResource resource = new ClassPathResource("lebenslauf-filled.html");
-            if (!resource.exists()) {
-                logger.warn("Default lebenslauf HTML not found");
-                return false;
-            }
-            String html = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            html = html.replace("src=\"static/", "src=\"/static/");
-            return runWkhtmltopdf(html, outputPdfPath, sessionId);
+            htmlPdfRenderer.render(prepareStandaloneHtml(html, sessionId), outputPdfPath);
+            return true;
         } catch (IOException e) {
-            logger.warn("Failed to load default HTML for wkhtmltopdf: {}", e.getMessage());
+            logger.warn("In-process Lebenslauf PDF rendering failed: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -972,20 +1445,7 @@ public class GenerateController {
             return false;
         }
 
-        try (InputStream fontStream = getClass().getResourceAsStream("/fonts/LiberationSans-Regular.ttf")) {
-            if (fontStream != null) {
-                byte[] fontBytes = fontStream.readAllBytes();
-                String dataUri = "data:font/ttf;base64," + Base64.getEncoder().encodeToString(fontBytes);
-                html = html.replace("url('../fonts/LiberationSans-Regular.ttf')", "url('" + dataUri + "')");
-                html = html.replace("url(\"../fonts/LiberationSans-Regular.ttf\")", "url(\"" + dataUri + "\")");
-            }
-        } catch (IOException e) {
-            logger.debug("Could not embed font for wkhtmltopdf: {}", e.getMessage());
-        }
-
-        html = embedPhotoAsDataUriForWkhtmltopdf(html, sessionId);
-        html = replaceCssVariablesForWkhtmltopdf(html);
-        html = injectWkhtmltopdfLayoutFallback(html);
+        html = prepareStandaloneHtml(html, sessionId);
 
         Path tempHtml = null;
         try {
@@ -1031,14 +1491,46 @@ public class GenerateController {
     }
 
     /**
-     * Embeds the CV photo as a data URI only when the user has uploaded one.
+     * HTML for renderers without access to the server and without modern CSS (wkhtmltopdf and the
+     * in-process engine): font and photo inlined as data URIs, CSS variables resolved, Grid/Flexbox
+     * replaced by table/float layout.
+     */
+    private String prepareStandaloneHtml(String html, String sessionId) {
+        String fontDataUri = resourceRegistry.getDataUri(ClasspathResourceRegistry.LEBENSLAUF_FONT, "font/ttf");
+        if (fontDataUri != null) {
+            html = html.replace("url('../fonts/LiberationSans-Regular.ttf')", "url('" + fontDataUri + "')");
+            html = html.replace("url(\"../fonts/LiberationSans-Regular.ttf\")", "url(\"" + fontDataUri + "\")");
+        } else {
+            logger.debug("Could not embed font for standalone HTML: resource not found");
+        }
+
+        html = embedPhotoAsDataUri(html, sessionId);
+        html = replaceCssVariables(html);
+        return injectLayoutFallback(html);
+    }
+
+    /**
+     * Points the CV photo at its content-hash URL (the browser fetches and caches it by ETag)
+     * only when the user has uploaded one.
      * If no photo is uploaded, the image is removed so the PDF shows empty space (no broken image).
      */
+    private String embedPhotoUrl(String html, String sessionId) {
+        String photoUrl = sessionId != null && !sessionId.isBlank()
+                ? tempPhotoStorageService.getCurrentPhotoUrl(sessionId).orElse("")
+                : "";
+        return embedPhoto(html, photoUrl);
+    }
+
+    /** Standalone HTML has no access to the server: inline the cached print-size data URI. */
     private String embedPhotoAsDataUri(String html, String sessionId) {
         String dataUri = sessionId != null && !sessionId.isBlank()
                 ? tempPhotoStorageService.getCurrentPhotoDataUri(sessionId).orElse("")
                 : "";
-        if (dataUri == null || dataUri.isEmpty()) {
+        return embedPhoto(html, dataUri);
+    }
+
+    private String embedPhoto(String html, String photoSrc) {
+        if (photoSrc == null || photoSrc.isEmpty()) {
             // No photo uploaded — remove img so we get empty place (no broken image)
             html = html.replaceFirst("\\s*<img\\s+[^>]*src=\"[^\"]*\"[^>]*/?>", " ");
             logger.debug("No photo uploaded: empty place in PDF");
@@ -1046,26 +1538,27 @@ public class GenerateController {
         }
         boolean changed = false;
         if (html.contains("src=\"/static/author-photo.jpg\"")) {
-            html = html.replace("src=\"/static/author-photo.jpg\"", "src=\"" + dataUri + "\"");
+            html = html.replace("src=\"/static/author-photo.jpg\"", "src=\"" + photoSrc + "\"");
             changed = true;
         }
         if (html.contains("src=\"static/author-photo.jpg\"")) {
-            html = html.replace("src=\"static/author-photo.jpg\"", "src=\"" + dataUri + "\"");
+            html = html.replace("src=\"static/author-photo.jpg\"", "src=\"" + photoSrc + "\"");
+            changed = true;
+        }
+        if (html.contains("src=\"" + TempPhotoStorageService.PHOTO_URL_PREFIX)) {
+            html = html.replaceFirst("src=\"" + Pattern.quote(TempPhotoStorageService.PHOTO_URL_PREFIX) + "[^\"]*\"",
+                    Matcher.quoteReplacement("src=\"" + photoSrc + "\""));
             changed = true;
         }
         if (!changed) {
-            html = html.replaceFirst("(<img\\s+[^>]*src=\")[^\"]*(\")", "$1" + dataUri + "$2");
+            html = html.replaceFirst("(<img\\s+[^>]*src=\")[^\"]*(\")", "$1" + Matcher.quoteReplacement(photoSrc) + "$2");
         }
         logger.info("Photo embedded in HTML for PDF");
         return html;
     }
 
-    private String embedPhotoAsDataUriForWkhtmltopdf(String html, String sessionId) {
-        return embedPhotoAsDataUri(html, sessionId);
-    }
-
-    /** Replace CSS variables with fixed values so old WebKit (wkhtmltopdf) doesn't ignore rules. */
-    private String replaceCssVariablesForWkhtmltopdf(String html) {
+    /** Replace CSS variables with fixed values so old WebKit (wkhtmltopdf) and openhtmltopdf don't ignore rules. */
+    private String replaceCssVariables(String html) {
         html = html.replace("var(--header-bg)", "#e3e3e5");
         html = html.replace("var(--text)", "#3f434a");
         html = html.replace("var(--muted)", "#666b74");
@@ -1076,11 +1569,11 @@ public class GenerateController {
     }
 
     /**
-     * Injects CSS overrides for wkhtmltopdf (old WebKit does not support CSS Grid/Flexbox).
+     * Injects CSS overrides for wkhtmltopdf and openhtmltopdf (neither supports CSS Grid/Flexbox).
      * Injected at end of first <style> so same block, our rules override.
      * Also neutralizes grid/flex in the block so the engine doesn't misapply them.
      */
-    private String injectWkhtmltopdfLayoutFallback(String html) {
+    private String injectLayoutFallback(String html) {
         int startStyle = html.indexOf("<style>");
         int endStyle = html.indexOf("</style>");
         if (startStyle == -1 || endStyle == -1 || endStyle <= startStyle) {
@@ -1096,7 +1589,7 @@ public class GenerateController {
         styleContent = styleContent.replace("justify-self: center", "");
 
         String css = ""
-            + "/* wkhtmltopdf fallback: no Grid - use table/float */"
+            + "/* standalone fallback: no Grid - use table/float */"
             + ".page { width: 210mm !important; margin: 0 auto !important; background: #fff !important; overflow: hidden !important; }"
             + ".header-strip { display: table !important; width: 100% !important; height: 52.5mm !important; background: #e3e3e5 !important; padding: 0 14mm !important; table-layout: fixed !important; }"
             + ".header-strip .name-block { display: table-cell !important; width: 72% !important; vertical-align: middle !important; }"
@@ -1151,4 +1644,15 @@ public class GenerateController {
         // Convert biography Map to JSON string for storage
         return gson.toJson(biography);
     }
+
+    /** Rendered Lebenslauf PDF on disk and its download name. */
+    private static final class LebenslaufPdf {
+        private final Path path;
+        private final String filename;
+
+        private LebenslaufPdf(Path path, String filename) {
+            this.path = path;
+            this.filename = filename;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package com.bewerbung.controller;
+
+import com.bewerbung.service.AdmissionControlService;
+import com.bewerbung.service.BatchPdfService;
+import com.bewerbung.service.ChromePdfPool;
+import com.bewerbung.service.CoverPdfCache;
+import com.bewerbung.service.FontRegistry;
+import com.bewerbung.service.HtmlPdfRenderer;
+import com.bewerbung.service.LlmScheduler;
+import com.bewerbung.service.PdfBundleService;
+import com.bewerbung.service.PdfOptimizationService;
+import com.bewerbung.service.PhotoStoreService;
+import com.bewerbung.service.ReviewLog;
+import com.bewerbung.service.SessionRetentionService;
+import com.bewerbung.service.SessionStorageService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Runtime counters of the application (admission control, caches, storage).
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final AdmissionControlService admissionControl;
+    private final LlmScheduler llmScheduler;
+    private final SessionStorageService sessionStorage;
+    private final SessionRetentionService sessionRetention;
+    private final PhotoStoreService photoStore;
+    private final ReviewLog reviewLog;
+    private final FontRegistry fontRegistry;
+    private final CoverPdfCache coverPdfCache;
+    private final BatchPdfService batchPdfService;
+    private final PdfBundleService pdfBundleService;
+    private final PdfOptimizationService pdfOptimization;
+    private final ChromePdfPool chromePdfPool;
+    private final HtmlPdfRenderer htmlPdfRenderer;
+
+    public MetricsController(AdmissionControlService admissionControl, LlmScheduler llmScheduler,
+                             SessionStorageService sessionStorage, SessionRetentionService sessionRetention,
+                             PhotoStoreService photoStore, ReviewLog reviewLog, FontRegistry fontRegistry,
+                             CoverPdfCache coverPdfCache, BatchPdfService batchPdfService,
+                             PdfBundleService pdfBundleService, PdfOptimizationService pdfOptimization,
+                             ChromePdfPool chromePdfPool, HtmlPdfRenderer htmlPdfRenderer) {
+        this.admissionControl = admissionControl;
+        this.llmScheduler = llmScheduler;
+        this.sessionStorage = sessionStorage;
+        this.sessionRetention = sessionRetention;
+        this.photoStore = photoStore;
+        this.reviewLog = reviewLog;
+        this.fontRegistry = fontRegistry;
+        this.coverPdfCache = coverPdfCache;
+        this.batchPdfService = batchPdfService;
+        this.pdfBundleService = pdfBundleService;
+        this.pdfOptimization = pdfOptimization;
+        this.chromePdfPool = chromePdfPool;
+        this.htmlPdfRenderer = htmlPdfRenderer;
+    }
+
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> admission() {
+        return ResponseEntity.ok(admissionControl.getMetrics());
+    }
+
+    @GetMapping("/llm")
+    public ResponseEntity<Map<String, Object>> llm() {
+        return ResponseEntity.ok(llmScheduler.getMetrics());
+    }
+
+    @GetMapping("/session-cache")
+    public ResponseEntity<Map<String, Object>> sessionCache() {
+        return ResponseEntity.ok(sessionStorage.getCacheStats());
+    }
+
+    @GetMapping("/session-compression")
+    public ResponseEntity<Map<String, Object>> sessionCompression() {
+        return ResponseEntity.ok(sessionStorage.getCompressionStats());
+    }
+
+    @GetMapping("/photos")
+    public ResponseEntity<Map<String, Object>> photos() {
+        return ResponseEntity.ok(photoStore.getStats());
+    }
+
+    @GetMapping("/reviews")
+    public ResponseEntity<Map<String, Object>> reviews() {
+        return ResponseEntity.ok(reviewLog.getStats());
+    }
+
+    @GetMapping("/fonts")
+    public ResponseEntity<Map<String, Object>> fonts() {
+        return ResponseEntity.ok(fontRegistry.getStats());
+    }
+
+    @GetMapping("/cover-pdf")
+    public ResponseEntity<Map<String, Object>> coverPdf() {
+        return ResponseEntity.ok(coverPdfCache.getStats());
+    }
+
+    @GetMapping("/pdf-batch")
+    public ResponseEntity<Map<String, Object>> pdfBatch() {
+        return ResponseEntity.ok(batchPdfService.getStats());
+    }
+
+    @GetMapping("/pdf-bundle")
+    public ResponseEntity<Map<String, Object>> pdfBundle() {
+        return ResponseEntity.ok(pdfBundleService.getStats());
+    }
+
+    @GetMapping("/pdf-optimization")
+    public ResponseEntity<Map<String, Object>> pdfOptimization() {
+        return ResponseEntity.ok(pdfOptimization.getStats());
+    }
+
+    @GetMapping("/chrome-pool")
+    public ResponseEntity<Map<String, Object>> chromePool() {
+        return ResponseEntity.ok(chromePdfPool.getStats());
+    }
+
+    @GetMapping("/html-pdf")
+    public ResponseEntity<Map<String, Object>> htmlPdf() {
+        return ResponseEntity.ok(htmlPdfRenderer.getStats());
+    }
+
+    @GetMapping("/retention")
+    public ResponseEntity<Map<String, Object>> retention() {
+        return ResponseEntity.ok(sessionRetention.getMetrics());
+    }
+}
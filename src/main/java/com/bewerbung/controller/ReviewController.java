@@ -4,13 +4,18 @@ import com.bewerbung.dto.ReviewRequestDto;
 import com.bewerbung.model.ReviewEntry;
 import com.bewerbung.service.ReviewStorageService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/reviews")
 public class ReviewController {
@@ -26,5 +31,16 @@ public class ReviewController {
         ReviewEntry saved = reviewStorageService.saveReview(sessionId, dto.getReview(), dto.getUserInfo(), dto.getSource());
         return ResponseEntity.ok(saved);
     }
+
+    @GetMapping
+    public ResponseEntity<List<ReviewEntry>> listReviews(HttpServletRequest request,
+                                                         @RequestParam(defaultValue = "0") int offset,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(reviewStorageService.getReviews(session.getId(), offset, limit));
+    }
 }
 
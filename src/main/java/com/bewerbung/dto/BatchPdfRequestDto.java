@@ -0,0 +1,49 @@
+package com.bewerbung.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchPdfRequestDto {
+    private List<Letter> letters = new ArrayList<>();
+
+    public BatchPdfRequestDto() {
+    }
+
+    public List<Letter> getLetters() {
+        return letters;
+    }
+
+    public void setLetters(List<Letter> letters) {
+        this.letters = letters;
+    }
+
+    public static class Letter {
+        private String coverLetter;
+        /** Optional file name inside the ZIP (without .pdf). */
+        private String fileName;
+
+        public Letter() {
+        }
+
+        public Letter(String coverLetter, String fileName) {
+            this.coverLetter = coverLetter;
+            this.fileName = fileName;
+        }
+
+        public String getCoverLetter() {
+            return coverLetter;
+        }
+
+        public void setCoverLetter(String coverLetter) {
+            this.coverLetter = coverLetter;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public void setFileName(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+}
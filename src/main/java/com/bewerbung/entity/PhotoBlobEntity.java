@@ -0,0 +1,57 @@
+package com.bewerbung.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Фото по хэшу содержимого (SHA-256): одна строка на уникальное изображение, сессии ссылаются
+ * на него через {@link SessionArtifactEntity#getContentHash()}. Рядом хранится уменьшенная
+ * копия для печати (print_content), чтобы PDF не пересчитывал её при каждом рендере.
+ */
+@Entity
+@Table(name = "BEWERB_PHOTO_BLOB")
+public class PhotoBlobEntity {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "mime_type", length = 64)
+    private String mimeType;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "content")
+    private byte[] content;
+
+    @Column(name = "print_mime_type", length = 64)
+    private String printMimeType;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "print_content")
+    private byte[] printContent;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @PrePersist
+    public void setCreatedAt() {
+        if (createdAt == null) {
+            this.createdAt = Instant.now();
+        }
+    }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getMimeType() { return mimeType; }
+    public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+    public byte[] getContent() { return content; }
+    public void setContent(byte[] content) { this.content = content; }
+    public String getPrintMimeType() { return printMimeType; }
+    public void setPrintMimeType(String printMimeType) { this.printMimeType = printMimeType; }
+    public byte[] getPrintContent() { return printContent; }
+    public void setPrintContent(byte[] printContent) { this.printContent = printContent; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
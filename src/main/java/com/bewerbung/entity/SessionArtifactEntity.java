@@ -0,0 +1,71 @@
+package com.bewerbung.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Один артефакт сессии в Oracle (текст или фото). Чтения идут через проекции репозитория,
+ * поэтому запрос state_json не тянет HTML, письма и фото той же сессии.
+ */
+@Entity
+@Table(name = "BEWERB_SESSION_ARTIFACT",
+       indexes = {
+               @Index(name = "IDX_BEWERB_ART_SESS_TYPE", columnList = "session_id, artifact_type", unique = true),
+               @Index(name = "IDX_BEWERB_ART_HASH", columnList = "content_hash")
+       })
+public class SessionArtifactEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, length = 64)
+    private String sessionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "artifact_type", nullable = false, length = 32)
+    private SessionArtifactType artifactType;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "text_content")
+    private String textContent;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "binary_content")
+    private byte[] binaryContent;
+
+    @Column(name = "mime_type", length = 64)
+    private String mimeType;
+
+    /** Фото: ссылка на {@link PhotoBlobEntity} вместо binary_content (в старых строках — null). */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void setUpdatedAt() {
+        this.updatedAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+    public SessionArtifactType getArtifactType() { return artifactType; }
+    public void setArtifactType(SessionArtifactType artifactType) { this.artifactType = artifactType; }
+    public String getTextContent() { return textContent; }
+    public void setTextContent(String textContent) { this.textContent = textContent; }
+    public byte[] getBinaryContent() { return binaryContent; }
+    public void setBinaryContent(byte[] binaryContent) { this.binaryContent = binaryContent; }
+    public String getMimeType() { return mimeType; }
+    public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
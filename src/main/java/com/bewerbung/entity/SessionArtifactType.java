@@ -0,0 +1,32 @@
+package com.bewerbung.entity;
+
+/**
+ * Тип данных сессии; одна строка {@link SessionArtifactEntity} на пару (session_id, artifact_type).
+ * legacyColumn — колонка BEWERB_SESSION_DATA, где эти данные лежали до разделения таблицы.
+ */
+public enum SessionArtifactType {
+    VACANCY("vacancy_txt"),
+    CV("cv_txt"),
+    STATE_JSON("state_json"),
+    ANSCHREIBEN_TXT("anschreiben_txt"),
+    ANSCHREIBEN_MD("anschreiben_md"),
+    LEBENSLAUF_HTML("lebenslauf_html"),
+    NOTES_JSON("notes_json"),
+    ANALYSIS_MD("analysis_md"),
+    MANIFEST_JSON("manifest_json"),
+    PHOTO("photo_blob");
+
+    private final String legacyColumn;
+
+    SessionArtifactType(String legacyColumn) {
+        this.legacyColumn = legacyColumn;
+    }
+
+    public String getLegacyColumn() {
+        return legacyColumn;
+    }
+
+    public boolean isBinary() {
+        return this == PHOTO;
+    }
+}
@@ -0,0 +1,21 @@
+package com.bewerbung.exception;
+
+import java.io.IOException;
+
+/**
+ * A bounded resource (e.g. the pooled PDF fonts) stayed busy longer than the caller may wait.
+ * Answered with 503 + Retry-After by {@link GlobalExceptionHandler}, also when wrapped.
+ */
+public class CapacityExceededException extends IOException {
+
+    private final long retryAfterSeconds;
+
+    public CapacityExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
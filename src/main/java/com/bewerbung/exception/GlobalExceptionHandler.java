@@ -3,6 +3,7 @@ package com.bewerbung.exception;
 import com.bewerbung.dto.ApiError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -92,8 +93,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.notFound().build();
     }
 
+    @ExceptionHandler(CapacityExceededException.class)
+    public ResponseEntity<ApiError> handleCapacityExceeded(CapacityExceededException ex) {
+        logger.warn("Capacity exceeded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ApiError("SERVICE_BUSY", "Server is busy. Please try again in " + ex.getRetryAfterSeconds() + " seconds."));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiError> handleRuntimeException(RuntimeException ex) {
+        CapacityExceededException busy = findCapacityExceeded(ex);
+        if (busy != null) {
+            return handleCapacityExceeded(busy);
+        }
         logger.error("Unhandled runtime exception: {}", ex.getMessage(), ex);
         
         // Include the actual error message for better debugging
@@ -105,6 +118,10 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleException(Exception ex) {
+        CapacityExceededException busy = findCapacityExceeded(ex);
+        if (busy != null) {
+            return handleCapacityExceeded(busy);
+        }
         logger.error("Unhandled exception: {}", ex.getMessage(), ex);
         
         String errorMessage = safeClientMessage(ex.getMessage());
@@ -112,5 +129,13 @@ public class GlobalExceptionHandler {
         ApiError apiError = new ApiError("INTERNAL_ERROR", errorMessage);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiError);
     }
-}
 
+    /** Controllers wrap IOExceptions into RuntimeException; look through the causes. */
+    private static CapacityExceededException findCapacityExceeded(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof CapacityExceededException busy) return busy;
+            if (t.getCause() == t) break;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.bewerbung.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Запись через JdbcTemplate: один MERGE на артефакт, затрагивающий только его колонки, без загрузки
+ * сущностей. Несколько артефактов (unit of work) уходят JDBC-батчами: отдельно заголовки сессий,
+ * тексты и ссылки на фото. MERGE атомарен, поэтому параллельные запросы одной сессии не создают
+ * дубликатов; при гонке двух вставок (ORA-00001) батч повторяется один раз и уходит в UPDATE.
+ */
+@Component
+@ConditionalOnBean(DataSource.class)
+public class JdbcSessionArtifactWriter implements SessionArtifactWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcSessionArtifactWriter.class);
+
+    private static final String MERGE_SESSION =
+            "MERGE INTO BEWERB_SESSION_DATA d "
+                    + "USING (SELECT ? AS session_id, ? AS updated_at FROM DUAL) s ON (d.session_id = s.session_id) "
+                    + "WHEN MATCHED THEN UPDATE SET d.updated_at = s.updated_at "
+                    + "WHEN NOT MATCHED THEN INSERT (session_id, updated_at) VALUES (s.session_id, s.updated_at)";
+
+    private static final String MERGE_TEXT =
+            "MERGE INTO BEWERB_SESSION_ARTIFACT a "
+                    + "USING (SELECT ? AS session_id, ? AS artifact_type, ? AS text_content, ? AS binary_content, "
+                    + "? AS updated_at FROM DUAL) s "
+                    + "ON (a.session_id = s.session_id AND a.artifact_type = s.artifact_type) "
+                    + "WHEN MATCHED THEN UPDATE SET a.text_content = s.text_content, a.binary_content = s.binary_content, "
+                    + "a.updated_at = s.updated_at "
+                    + "WHEN NOT MATCHED THEN INSERT (session_id, artifact_type, text_content, binary_content, updated_at) "
+                    + "VALUES (s.session_id, s.artifact_type, s.text_content, s.binary_content, s.updated_at)";
+
+    private static final String MERGE_PHOTO_REF =
+            "MERGE INTO BEWERB_SESSION_ARTIFACT a "
+                    + "USING (SELECT ? AS session_id, ? AS artifact_type, ? AS mime_type, ? AS content_hash, "
+                    + "? AS updated_at FROM DUAL) s "
+                    + "ON (a.session_id = s.session_id AND a.artifact_type = s.artifact_type) "
+                    + "WHEN MATCHED THEN UPDATE SET a.binary_content = NULL, a.mime_type = s.mime_type, "
+                    + "a.content_hash = s.content_hash, a.updated_at = s.updated_at "
+                    + "WHEN NOT MATCHED THEN INSERT (session_id, artifact_type, mime_type, content_hash, updated_at) "
+                    + "VALUES (s.session_id, s.artifact_type, s.mime_type, s.content_hash, s.updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DefaultLobHandler lobHandler = new DefaultLobHandler();
+
+    public JdbcSessionArtifactWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Большие тексты и сжатые данные передаются потоком (setClob/setBlob), а не одной строкой
+        this.lobHandler.setStreamAsLob(true);
+    }
+
+    @Override
+    public void write(List<SessionArtifactWrite> writes, Instant now) {
+        if (writes.isEmpty()) return;
+        OffsetDateTime updatedAt = OffsetDateTime.ofInstant(now, ZoneOffset.UTC);
+        List<String> sessionIds = new ArrayList<>(new LinkedHashSet<>(writes.stream().map(SessionArtifactWrite::getSessionId).toList()));
+        List<SessionArtifactWrite> texts = writes.stream().filter(w -> !w.getType().isBinary()).toList();
+        List<SessionArtifactWrite> photoRefs = writes.stream().filter(w -> w.getType().isBinary()).toList();
+
+        retryOnDuplicate(() -> jdbcTemplate.batchUpdate(MERGE_SESSION, sessionIds, sessionIds.size(), (ps, sessionId) -> {
+            ps.setString(1, sessionId);
+            ps.setObject(2, updatedAt);
+        }));
+        if (!texts.isEmpty()) {
+            retryOnDuplicate(() -> mergeTexts(texts, updatedAt));
+        }
+        if (!photoRefs.isEmpty()) {
+            retryOnDuplicate(() -> jdbcTemplate.batchUpdate(MERGE_PHOTO_REF, photoRefs, photoRefs.size(), (ps, write) -> {
+                ps.setString(1, write.getSessionId());
+                ps.setString(2, write.getType().name());
+                ps.setString(3, write.getMimeType());
+                ps.setString(4, write.getContentHash());
+                ps.setObject(5, updatedAt);
+            }));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    private void mergeTexts(List<SessionArtifactWrite> texts, OffsetDateTime updatedAt) {
+        try (LobCreator lobCreator = lobHandler.getLobCreator()) {
+            jdbcTemplate.batchUpdate(MERGE_TEXT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    SessionArtifactWrite write = texts.get(i);
+                    ps.setString(1, write.getSessionId());
+                    ps.setString(2, write.getType().name());
+                    if (write.getText() != null) {
+                        lobCreator.setClobAsString(ps, 3, write.getText());
+                    } else {
+                        ps.setNull(3, Types.CLOB);
+                    }
+                    if (write.getContent() != null) {
+                        lobCreator.setBlobAsBytes(ps, 4, write.getContent());
+                    } else {
+                        ps.setNull(4, Types.BLOB);
+                    }
+                    ps.setObject(5, updatedAt);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return texts.size();
+                }
+            });
+        }
+    }
+
+    private void retryOnDuplicate(Runnable batch) {
+        try {
+            batch.run();
+        } catch (DuplicateKeyException e) {
+            log.debug("Concurrent insert of the same session artifact, retrying MERGE: {}", e.getMessage());
+            batch.run();
+        }
+    }
+}
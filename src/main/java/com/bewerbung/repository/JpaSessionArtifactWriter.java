@@ -0,0 +1,74 @@
+package com.bewerbung.repository;
+
+import com.bewerbung.entity.SessionArtifactEntity;
+import com.bewerbung.entity.SessionDataEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Запись через JPA-репозитории: UPDATE по каждому артефакту, INSERT (save), если строки ещё нет.
+ * Запасной путь при session.storage.jdbc-writes=false.
+ */
+@Component
+@ConditionalOnBean(DataSource.class)
+public class JpaSessionArtifactWriter implements SessionArtifactWriter {
+
+    private final SessionDataRepository sessionDataRepository;
+    private final SessionArtifactRepository sessionArtifactRepository;
+
+    public JpaSessionArtifactWriter(SessionDataRepository sessionDataRepository,
+                                    SessionArtifactRepository sessionArtifactRepository) {
+        this.sessionDataRepository = sessionDataRepository;
+        this.sessionArtifactRepository = sessionArtifactRepository;
+    }
+
+    @Override
+    public void write(List<SessionArtifactWrite> writes, Instant now) {
+        Set<String> touched = new LinkedHashSet<>();
+        for (SessionArtifactWrite write : writes) {
+            if (touched.add(write.getSessionId())) {
+                touchSession(write.getSessionId(), now);
+            }
+            upsert(write, now);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "jpa";
+    }
+
+    /** Обновляет время изменения сессии или создаёт её запись. */
+    private void touchSession(String sessionId, Instant now) {
+        if (sessionDataRepository.touch(sessionId, now) == 0) {
+            SessionDataEntity e = new SessionDataEntity();
+            e.setSessionId(sessionId);
+            sessionDataRepository.save(e);
+        }
+    }
+
+    /** UPDATE одной строки артефакта; INSERT, только если строки ещё нет. */
+    private void upsert(SessionArtifactWrite write, Instant now) {
+        int updated = write.getType().isBinary()
+                ? sessionArtifactRepository.updatePhotoRef(write.getSessionId(), write.getType(), write.getMimeType(),
+                        write.getContentHash(), now)
+                : sessionArtifactRepository.updateText(write.getSessionId(), write.getType(), write.getText(),
+                        write.getContent(), now);
+        if (updated == 0) {
+            SessionArtifactEntity e = new SessionArtifactEntity();
+            e.setSessionId(write.getSessionId());
+            e.setArtifactType(write.getType());
+            e.setTextContent(write.getText());
+            e.setBinaryContent(write.getContent());
+            e.setMimeType(write.getMimeType());
+            e.setContentHash(write.getContentHash());
+            sessionArtifactRepository.save(e);
+        }
+    }
+}
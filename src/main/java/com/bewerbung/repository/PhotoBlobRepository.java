@@ -0,0 +1,38 @@
+package com.bewerbung.repository;
+
+import com.bewerbung.entity.PhotoBlobEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Фото по хэшу содержимого. Чтения — проекции одной копии (оригинал или печатная).
+ */
+@Repository
+@ConditionalOnBean(DataSource.class)
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlobEntity, String> {
+
+    @Query("select p.content as content, p.mimeType as mimeType from PhotoBlobEntity p where p.contentHash = :hash")
+    Optional<ContentView> findOriginal(@Param("hash") String hash);
+
+    @Query("select p.printContent as content, p.printMimeType as mimeType from PhotoBlobEntity p where p.contentHash = :hash")
+    Optional<ContentView> findPrint(@Param("hash") String hash);
+
+    /** Фото, на которые не ссылается ни одна сессия (старше cutoff, чтобы не задеть только что загруженные). */
+    @Modifying
+    @Query(value = "DELETE FROM BEWERB_PHOTO_BLOB p WHERE p.created_at < :cutoff AND NOT EXISTS "
+            + "(SELECT 1 FROM BEWERB_SESSION_ARTIFACT a WHERE a.content_hash = p.content_hash)", nativeQuery = true)
+    int deleteUnreferenced(@Param("cutoff") Instant cutoff);
+
+    interface ContentView {
+        byte[] getContent();
+        String getMimeType();
+    }
+}
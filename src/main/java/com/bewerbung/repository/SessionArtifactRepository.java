@@ -0,0 +1,88 @@
+package com.bewerbung.repository;
+
+import com.bewerbung.entity.SessionArtifactEntity;
+import com.bewerbung.entity.SessionArtifactType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Артефакты сессий. Чтения — проекции одной колонки; запись — UPDATE без предварительного SELECT.
+ */
+@Repository
+@ConditionalOnBean(DataSource.class)
+public interface SessionArtifactRepository extends JpaRepository<SessionArtifactEntity, Long> {
+
+    /** Текст лежит либо в text_content, либо (сжатый) в binary_content — см. TextCompressionCodec. */
+    @Query("select a.textContent as text, a.binaryContent as content from SessionArtifactEntity a "
+            + "where a.sessionId = :sessionId and a.artifactType = :type")
+    Optional<TextView> findText(@Param("sessionId") String sessionId, @Param("type") SessionArtifactType type);
+
+    /** Фото: ссылка content_hash или, в строках до хранилища по хэшу, байты в binary_content. */
+    @Query("select a.binaryContent as content, a.mimeType as mimeType, a.contentHash as contentHash from SessionArtifactEntity a "
+            + "where a.sessionId = :sessionId and a.artifactType = :type")
+    Optional<BinaryView> findBinary(@Param("sessionId") String sessionId, @Param("type") SessionArtifactType type);
+
+    @Query("select a.artifactType from SessionArtifactEntity a where a.sessionId = :sessionId")
+    List<SessionArtifactType> findTypes(@Param("sessionId") String sessionId);
+
+    @Modifying
+    @Query("update SessionArtifactEntity a set a.textContent = :text, a.binaryContent = :content, a.updatedAt = :now "
+            + "where a.sessionId = :sessionId and a.artifactType = :type")
+    int updateText(@Param("sessionId") String sessionId, @Param("type") SessionArtifactType type,
+                   @Param("text") String text, @Param("content") byte[] content, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update SessionArtifactEntity a set a.binaryContent = null, a.mimeType = :mimeType, a.contentHash = :hash, "
+            + "a.updatedAt = :now where a.sessionId = :sessionId and a.artifactType = :type")
+    int updatePhotoRef(@Param("sessionId") String sessionId, @Param("type") SessionArtifactType type,
+                       @Param("mimeType") String mimeType, @Param("hash") String contentHash, @Param("now") Instant now);
+
+    @Query("select a.id from SessionArtifactEntity a where a.artifactType = :type and a.updatedAt < :cutoff order by a.updatedAt")
+    List<Long> findExpiredIds(@Param("type") SessionArtifactType type, @Param("cutoff") Instant cutoff, Pageable page);
+
+    @Query("select distinct a.sessionId from SessionArtifactEntity a where a.id in :ids")
+    List<String> findSessionIdsByIds(@Param("ids") Collection<Long> ids);
+
+    /** Размер содержимого строк в байтах (CLOB — в символах) для отчёта об освобождённом месте. */
+    @Query(value = "SELECT NVL(SUM(NVL(DBMS_LOB.GETLENGTH(text_content), 0) + NVL(DBMS_LOB.GETLENGTH(binary_content), 0)), 0) "
+            + "FROM BEWERB_SESSION_ARTIFACT WHERE id IN (:ids)", nativeQuery = true)
+    Number sumContentLengthByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT NVL(SUM(NVL(DBMS_LOB.GETLENGTH(text_content), 0) + NVL(DBMS_LOB.GETLENGTH(binary_content), 0)), 0) "
+            + "FROM BEWERB_SESSION_ARTIFACT WHERE session_id IN (:sessionIds)", nativeQuery = true)
+    Number sumContentLengthBySessionIds(@Param("sessionIds") Collection<String> sessionIds);
+
+    @Modifying
+    @Query("delete from SessionArtifactEntity a where a.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from SessionArtifactEntity a where a.sessionId in :sessionIds")
+    int deleteBySessionIds(@Param("sessionIds") Collection<String> sessionIds);
+
+    @Modifying
+    @Query("delete from SessionArtifactEntity a where a.sessionId in :sessionIds and a.artifactType = :type")
+    int deleteTypeForSessions(@Param("sessionIds") Collection<String> sessionIds, @Param("type") SessionArtifactType type);
+
+    interface TextView {
+        String getText();
+        byte[] getContent();
+    }
+
+    interface BinaryView {
+        byte[] getContent();
+        String getMimeType();
+        String getContentHash();
+    }
+}
@@ -0,0 +1,43 @@
+package com.bewerbung.repository;
+
+import com.bewerbung.entity.SessionArtifactType;
+
+/**
+ * Одна запись артефакта сессии в том виде, в каком она ложится в колонки BEWERB_SESSION_ARTIFACT:
+ * текст — в text_content или уже сжатым в binary_content, фото — ссылка content_hash и MIME.
+ */
+public final class SessionArtifactWrite {
+
+    private final String sessionId;
+    private final SessionArtifactType type;
+    private final String text;
+    private final byte[] content;
+    private final String mimeType;
+    private final String contentHash;
+
+    private SessionArtifactWrite(String sessionId, SessionArtifactType type, String text, byte[] content,
+                                 String mimeType, String contentHash) {
+        this.sessionId = sessionId;
+        this.type = type;
+        this.text = text;
+        this.content = content;
+        this.mimeType = mimeType;
+        this.contentHash = contentHash;
+    }
+
+    /** Текст: ровно одно из text / content (сжатый текст) не null, либо оба null — пустое значение. */
+    public static SessionArtifactWrite text(String sessionId, SessionArtifactType type, String text, byte[] content) {
+        return new SessionArtifactWrite(sessionId, type, text, content, null, null);
+    }
+
+    public static SessionArtifactWrite photoRef(String sessionId, SessionArtifactType type, String contentHash, String mimeType) {
+        return new SessionArtifactWrite(sessionId, type, null, null, mimeType, contentHash);
+    }
+
+    public String getSessionId() { return sessionId; }
+    public SessionArtifactType getType() { return type; }
+    public String getText() { return text; }
+    public byte[] getContent() { return content; }
+    public String getMimeType() { return mimeType; }
+    public String getContentHash() { return contentHash; }
+}
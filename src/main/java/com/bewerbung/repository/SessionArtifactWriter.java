@@ -0,0 +1,16 @@
+package com.bewerbung.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Запись артефактов сессий в Oracle. Вызывается внутри транзакции; обновляет и время изменения сессии
+ * (BEWERB_SESSION_DATA), создавая её запись при необходимости.
+ */
+public interface SessionArtifactWriter {
+
+    void write(List<SessionArtifactWrite> writes, Instant now);
+
+    /** Короткое имя для логов и метрик. */
+    String getName();
+}
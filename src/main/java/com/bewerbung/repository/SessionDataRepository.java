@@ -2,10 +2,17 @@ package com.bewerbung.repository;
 
 import com.bewerbung.entity.SessionDataEntity;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +20,21 @@ import java.util.Optional;
 public interface SessionDataRepository extends JpaRepository<SessionDataEntity, Long> {
 
     Optional<SessionDataEntity> findBySessionId(String sessionId);
+
+    /** Обновляет время изменения сессии; 0 — записи сессии ещё нет. */
+    @Modifying
+    @Query("update SessionDataEntity s set s.updatedAt = :now where s.sessionId = :sessionId")
+    int touch(@Param("sessionId") String sessionId, @Param("now") Instant now);
+
+    /** Сессии без изменений с cutoff (порциями, самые старые первыми). */
+    @Query("select s.sessionId from SessionDataEntity s where s.updatedAt < :cutoff order by s.updatedAt")
+    List<String> findExpiredSessionIds(@Param("cutoff") Instant cutoff, Pageable page);
+
+    /** Все сессии (миграция между бэкендами хранения). */
+    @Query("select s.sessionId from SessionDataEntity s order by s.sessionId")
+    List<String> findAllSessionIds();
+
+    @Modifying
+    @Query("delete from SessionDataEntity s where s.sessionId in :sessionIds")
+    int deleteBySessionIds(@Param("sessionIds") Collection<String> sessionIds);
 }
@@ -0,0 +1,169 @@
+package com.bewerbung.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the generation pipeline (LLM calls). At most {@code max-in-flight} requests
+ * run at once; others wait in a bounded queue. A request is shed (503 + Retry-After) when the queue
+ * is full or the estimated wait exceeds {@code max-wait-seconds}, so Tomcat threads stay free for
+ * static pages and the rest of the API.
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+    /** Weight of the newest sample in the moving average of the service time. */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final int maxInFlight;
+    private final int maxQueue;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shedQueueFull = new AtomicLong();
+    private final AtomicLong shedWaitTooLong = new AtomicLong();
+    private final AtomicLong shedTimeout = new AtomicLong();
+    private volatile double avgServiceMillis;
+
+    public AdmissionControlService(@Value("${generation.admission.max-in-flight:8}") int maxInFlight,
+                                   @Value("${generation.admission.max-queue:16}") int maxQueue,
+                                   @Value("${generation.admission.max-wait-seconds:60}") int maxWaitSeconds,
+                                   @Value("${generation.admission.initial-estimate-seconds:20}") int initialEstimateSeconds) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("generation.admission.max-in-flight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitMillis = TimeUnit.SECONDS.toMillis(Math.max(1, maxWaitSeconds));
+        this.permits = new Semaphore(maxInFlight, true);
+        this.avgServiceMillis = TimeUnit.SECONDS.toMillis(Math.max(1, initialEstimateSeconds));
+        logger.info("Generation admission control: maxInFlight={}, maxQueue={}, maxWait={}s",
+                maxInFlight, this.maxQueue, maxWaitSeconds);
+    }
+
+    /**
+     * Admits the request or returns a rejection with the suggested Retry-After. Blocks while queued,
+     * at most {@code max-wait-seconds}.
+     */
+    public Admission tryAdmit() {
+        if (permits.tryAcquire()) {
+            return admit();
+        }
+        int position = queued.incrementAndGet();
+        try {
+            if (position > maxQueue) {
+                shedQueueFull.incrementAndGet();
+                return Admission.rejected(retryAfterSeconds(position));
+            }
+            long estimatedWait = estimatedWaitMillis(position);
+            if (estimatedWait > maxWaitMillis) {
+                shedWaitTooLong.incrementAndGet();
+                return Admission.rejected(retryAfterSeconds(position));
+            }
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return admit();
+            }
+            shedTimeout.incrementAndGet();
+            return Admission.rejected(retryAfterSeconds(position));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shedTimeout.incrementAndGet();
+            return Admission.rejected(retryAfterSeconds(position));
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private Admission admit() {
+        inFlight.incrementAndGet();
+        admitted.incrementAndGet();
+        return new Admission(this, System.nanoTime());
+    }
+
+    private void release(long startedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        avgServiceMillis = avgServiceMillis + EWMA_ALPHA * (elapsedMillis - avgServiceMillis);
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    /** Time until a request at the given queue position gets a slot, from the average service time. */
+    private long estimatedWaitMillis(int queuePosition) {
+        return (long) Math.ceil(queuePosition * avgServiceMillis / maxInFlight);
+    }
+
+    private long retryAfterSeconds(int queuePosition) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(estimatedWaitMillis(queuePosition)));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("queueDepth", queued.get());
+        metrics.put("maxInFlight", maxInFlight);
+        metrics.put("maxQueue", maxQueue);
+        metrics.put("avgServiceMillis", Math.round(avgServiceMillis));
+        metrics.put("estimatedWaitMillis", estimatedWaitMillis(queued.get() + 1));
+        metrics.put("admitted", admitted.get());
+        metrics.put("shedQueueFull", shedQueueFull.get());
+        metrics.put("shedWaitTooLong", shedWaitTooLong.get());
+        metrics.put("shedTimeout", shedTimeout.get());
+        metrics.put("shedTotal", shedQueueFull.get() + shedWaitTooLong.get() + shedTimeout.get());
+        return metrics;
+    }
+
+    /**
+     * Result of {@link #tryAdmit()}. An admitted request must be closed when it finishes.
+     */
+    public static final class Admission implements AutoCloseable {
+        private final AdmissionControlService owner;
+        private final long startedNanos;
+        private final long retryAfterSeconds;
+        private boolean closed;
+
+        private Admission(AdmissionControlService owner, long startedNanos) {
+            this.owner = owner;
+            this.startedNanos = startedNanos;
+            this.retryAfterSeconds = 0;
+        }
+
+        private Admission(long retryAfterSeconds) {
+            this.owner = null;
+            this.startedNanos = 0;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        private static Admission rejected(long retryAfterSeconds) {
+            return new Admission(retryAfterSeconds);
+        }
+
+        public boolean isAdmitted() {
+            return owner != null;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        @Override
+        public void close() {
+            if (owner != null && !closed) {
+                closed = true;
+                owner.release(startedNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.bewerbung.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-session manifest of derived artifacts (analysis, letter, Lebenslauf HTML and PDF).
+ * For every artifact it records the hashes of the inputs it was built from, so an artifact
+ * is rebuilt only when one of its own inputs changes.
+ * <p>
+ * The cover letter PDF has no entry: {@link CoverPdfCache} keys it by the letter hash, the printed
+ * date, {@link PdfGenerationService#getOutputVersion()} and the font, i.e. by the same inputs, and
+ * shares it across sessions.
+ */
+@Service
+public class ArtifactManifestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactManifestService.class);
+    private static final String ARTIFACTS = "artifacts";
+    private static final String PHOTO_HASH = "photoHash";
+    /** Photo hash value used when the session has no uploaded photo. */
+    public static final String NO_PHOTO = "none";
+
+    public enum Artifact {
+        ANALYSIS,
+        LETTER,
+        LEBENSLAUF_HTML,
+        LEBENSLAUF_PDF
+    }
+
+    private final SessionStorageService sessionStorage;
+    private final Gson gson;
+
+    public ArtifactManifestService(SessionStorageService sessionStorage) {
+        this.sessionStorage = sessionStorage;
+        this.gson = new Gson();
+    }
+
+    /**
+     * Returns true when the artifact was last built from exactly these inputs.
+     */
+    public boolean isUpToDate(String sessionId, Artifact artifact, Inputs inputs) {
+        return isUpToDate(sessionId, artifact, null, inputs);
+    }
+
+    public boolean isUpToDate(String sessionId, Artifact artifact, String variant, Inputs inputs) {
+        if (sessionId == null || sessionId.isBlank()) return false;
+        JsonObject entry = loadManifest(sessionId).getAsJsonObject(ARTIFACTS).getAsJsonObject(key(artifact, variant));
+        if (entry == null || !entry.has("inputs")) {
+            return false;
+        }
+        boolean upToDate = entry.getAsJsonObject("inputs").equals(inputs.toJson());
+        logger.debug("Manifest check {}: {}", key(artifact, variant), upToDate ? "up to date" : "stale");
+        return upToDate;
+    }
+
+    /**
+     * Records the inputs an artifact has just been built from.
+     */
+    public void record(String sessionId, Artifact artifact, Inputs inputs) {
+        record(sessionId, artifact, null, inputs);
+    }
+
+    public void record(String sessionId, Artifact artifact, String variant, Inputs inputs) {
+        if (sessionId == null || sessionId.isBlank()) return;
+        JsonObject manifest = loadManifest(sessionId);
+        JsonObject entry = new JsonObject();
+        entry.add("inputs", inputs.toJson());
+        entry.addProperty("builtAt", Instant.now().toString());
+        manifest.getAsJsonObject(ARTIFACTS).add(key(artifact, variant), entry);
+        saveManifest(sessionId, manifest);
+    }
+
+    /**
+     * Stores the hash of a freshly uploaded photo. Artifacts that list the photo as an input
+     * become stale automatically on their next check.
+     */
+    public void recordPhoto(String sessionId, String photoHash) {
+        if (sessionId == null || sessionId.isBlank()) return;
+        JsonObject manifest = loadManifest(sessionId);
+        manifest.addProperty(PHOTO_HASH, photoHash != null ? photoHash : NO_PHOTO);
+        saveManifest(sessionId, manifest);
+        logger.info("Photo hash recorded in artifact manifest");
+    }
+
+    /**
+     * Hash of the current session photo, or {@link #NO_PHOTO}. Sessions created before the manifest
+     * existed get the hash once from session storage.
+     */
+    public String getPhotoHash(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return NO_PHOTO;
+        JsonObject manifest = loadManifest(sessionId);
+        JsonElement stored = manifest.get(PHOTO_HASH);
+        if (stored != null && !stored.isJsonNull()) {
+            return stored.getAsString();
+        }
+        String hash = sessionStorage.getPhotoHash(sessionId).orElse(NO_PHOTO);
+        manifest.addProperty(PHOTO_HASH, hash);
+        saveManifest(sessionId, manifest);
+        return hash;
+    }
+
+    private String key(Artifact artifact, String variant) {
+        return variant == null || variant.isBlank() ? artifact.name() : artifact.name() + ":" + variant;
+    }
+
+    private JsonObject loadManifest(String sessionId) {
+        JsonObject manifest = null;
+        String json = sessionStorage.getManifestJson(sessionId);
+        if (json != null && !json.isBlank()) {
+            try {
+                manifest = gson.fromJson(json, JsonObject.class);
+            } catch (Exception e) {
+                logger.warn("Artifact manifest is unreadable, starting with an empty one: {}", e.getMessage());
+            }
+        }
+        if (manifest == null) {
+            manifest = new JsonObject();
+        }
+        if (!manifest.has(ARTIFACTS) || !manifest.get(ARTIFACTS).isJsonObject()) {
+            manifest.add(ARTIFACTS, new JsonObject());
+        }
+        return manifest;
+    }
+
+    private void saveManifest(String sessionId, JsonObject manifest) {
+        sessionStorage.setManifestJson(sessionId, gson.toJson(manifest));
+    }
+
+    public static String sha256(String content) {
+        return sha256((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) sb.append('0');
+                sb.append(hex);
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Named input hashes of one artifact build (e.g. biography, photo, template, language, renderer).
+     */
+    public static final class Inputs {
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        public Inputs with(String name, String value) {
+            values.put(name, Objects.requireNonNullElse(value, ""));
+            return this;
+        }
+
+        public Inputs withHashOf(String name, String content) {
+            return with(name, sha256(content));
+        }
+
+        private JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            values.forEach(json::addProperty);
+            return json;
+        }
+    }
+}
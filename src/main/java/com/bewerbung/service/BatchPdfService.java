@@ -0,0 +1,209 @@
+package com.bewerbung.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders several cover letters into one ZIP. Letters are rendered in parallel on the bounded
+ * pdfBatchExecutor (the parsed font is shared through {@link FontRegistry}); each PDF is written to
+ * the ZIP as soon as it is finished, in completion order. At most {@code pool size * 2} PDFs are in
+ * flight at a time, so memory stays bounded regardless of the batch size and of how fast the client
+ * reads; the archive itself is never held in memory.
+ * <p>
+ * A letter that fails to render becomes a short .txt entry with the error: the response is already
+ * streaming at that point, so the status can no longer change.
+ */
+@Service
+public class BatchPdfService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchPdfService.class);
+
+    private final PdfGenerationService pdfGenerationService;
+    private final CoverPdfCache coverPdfCache;
+    private final Executor executor;
+    private final int maxLetters;
+    private final int maxInFlight;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong letters = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public BatchPdfService(PdfGenerationService pdfGenerationService, CoverPdfCache coverPdfCache,
+                           @Qualifier("pdfBatchExecutor") Executor executor,
+                           @Value("${pdf.batch.max-letters:50}") int maxLetters,
+                           @Value("${pdf.batch.pool-size:4}") int poolSize) {
+        this.pdfGenerationService = pdfGenerationService;
+        this.coverPdfCache = coverPdfCache;
+        this.executor = executor;
+        this.maxLetters = Math.max(1, maxLetters);
+        this.maxInFlight = Math.max(1, poolSize) * 2;
+    }
+
+    /** Fails with IllegalArgumentException (400) before anything is streamed. */
+    public void validate(List<Letter> batch) throws IOException {
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("At least one cover letter is required");
+        }
+        if (batch.size() > maxLetters) {
+            throw new IllegalArgumentException("Too many cover letters: " + batch.size() + " (max " + maxLetters + ")");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            String text = batch.get(i).getCoverLetterText();
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Cover letter " + (i + 1) + " is empty");
+            }
+        }
+        pdfGenerationService.checkReady();
+    }
+
+    /** Writes the ZIP to out; the stream is finished but not closed. */
+    public void writeZip(List<Letter> batch, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        batches.incrementAndGet();
+        List<String> names = entryNames(batch);
+        CompletionService<Rendered> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Rendered>> pending = new ArrayList<>();
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        int submitted = 0;
+        int written = 0;
+        try {
+            while (written < batch.size()) {
+                while (submitted < batch.size() && submitted - written < maxInFlight) {
+                    int index = submitted++;
+                    pending.add(completion.submit(() -> render(index, batch.get(index).getCoverLetterText())));
+                }
+                Rendered rendered = completion.take().get();
+                writeEntry(zip, names.get(rendered.index), rendered);
+                written++;
+            }
+            zip.finish();
+            zip.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering PDF batch", e);
+        } catch (ExecutionException e) {
+            // render() never throws; only a rejected or broken task ends here
+            throw new IOException("PDF batch rendering failed", e.getCause());
+        } finally {
+            // Client gone or error: do not keep rendering letters nobody will receive
+            pending.forEach(f -> f.cancel(true));
+        }
+        letters.addAndGet(batch.size());
+        logger.info("PDF batch of {} letter(s) streamed in {} ms", batch.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.get());
+        stats.put("letters", letters.get());
+        stats.put("failures", failures.get());
+        stats.put("maxLetters", maxLetters);
+        stats.put("maxInFlight", maxInFlight);
+        return stats;
+    }
+
+    private Rendered render(int index, String text) {
+        try {
+            byte[] pdf = coverPdfCache.getOrRender(text);
+            return new Rendered(index, pdf, null);
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("PDF batch: letter {} failed: {}", index + 1, e.getMessage(), e);
+            return new Rendered(index, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /** PDFs are already compressed: stored entries (CRC known, no deflate pass). */
+    private static void writeEntry(ZipOutputStream zip, String name, Rendered rendered) throws IOException {
+        byte[] content = rendered.pdf != null
+                ? rendered.pdf
+                : ("Failed to generate PDF: " + rendered.error + "\n").getBytes(StandardCharsets.UTF_8);
+        ZipEntry entry = new ZipEntry(rendered.pdf != null ? name + ".pdf" : name + "-error.txt");
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+        zip.flush();
+    }
+
+    /** Sanitized, unique entry names (without extension); default Anschreiben-01, -02, ... */
+    private static List<String> entryNames(List<Letter> batch) {
+        int digits = Math.max(2, String.valueOf(batch.size()).length());
+        Set<String> used = new HashSet<>();
+        List<String> names = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String requested = batch.get(i).getFileName();
+            String base = requested != null
+                    ? requested.replaceAll("(?i)\\.pdf$", "").replaceAll("[^\\p{L}\\p{N}_ .-]", "_").trim()
+                    : "";
+            if (base.isEmpty()) {
+                base = String.format(Locale.ROOT, "Anschreiben-%0" + digits + "d", i + 1);
+            }
+            String name = base;
+            for (int n = 2; !used.add(name.toLowerCase(Locale.ROOT)); n++) {
+                name = base + "-" + n;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /** One letter of a batch. */
+    public static final class Letter {
+        private final String fileName;
+        private final String coverLetterText;
+
+        public Letter(String fileName, String coverLetterText) {
+            this.fileName = fileName;
+            this.coverLetterText = coverLetterText;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getCoverLetterText() {
+            return coverLetterText;
+        }
+    }
+
+    private static final class Rendered {
+        private final int index;
+        private final byte[] pdf;
+        private final String error;
+
+        private Rendered(int index, byte[] pdf, String error) {
+            this.index = index;
+            this.pdf = pdf;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.bewerbung.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small in-process cache bounded by the total size of its values (bytes) with a TTL per entry.
+ * Eviction is LRU. Values larger than 1/8 of the capacity are not cached, so one big entry cannot
+ * flush the whole cache. Null values are cached too ("known missing").
+ * <p>
+ * Loads run outside the lock. A load that overlaps an invalidation is returned but not stored,
+ * so a stale value never reappears after a write.
+ */
+public class ByteWeightedCache<K, V> {
+
+    /** Approximate per-entry overhead (key, node, timestamps). */
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final String name;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ByteWeightedCache(String name, long maxWeight, Duration ttl, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxWeight = Math.max(0, maxWeight);
+        this.ttlNanos = ttl.toNanos();
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value or loads it. The loader may return null.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired(System.nanoTime())) {
+                hits++;
+                return entry.value;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            misses++;
+            invalidationsBeforeLoad = invalidations;
+        }
+        V value = loader.apply(key);
+        synchronized (this) {
+            if (invalidations == invalidationsBeforeLoad) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value without loading; null when absent or expired.
+     */
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.nanoTime())) {
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        remove(key);
+    }
+
+    public synchronized void invalidateIf(Predicate<K> keyFilter) {
+        invalidations++;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (keyFilter.test(e.getKey())) {
+                weight -= e.getValue().weight;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long requests = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("entries", entries.size());
+        stats.put("weightBytes", weight);
+        stats.put("maxWeightBytes", maxWeight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", requests > 0 ? Math.round(hits * 1000.0 / requests) / 1000.0 : 0.0);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private void put(K key, V value) {
+        long entryWeight = ENTRY_OVERHEAD + (value != null ? weigher.applyAsLong(value) : 0);
+        remove(key);
+        if (entryWeight > maxWeight / 8) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, entryWeight, System.nanoTime() + ttlNanos));
+        weight += entryWeight;
+        evictIfNeeded();
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private void evictIfNeeded() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Entry<V> eldest = it.next();
+            it.remove();
+            weight -= eldest.weight;
+            if (!eldest.isExpired(now)) {
+                evictions++;
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long weight, long expiresAtNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -379,6 +379,11 @@ public class ChangeDetectionService {
         }
     }
     
+    /** Language of the last processed request ("de" when none was recorded). */
+    public String getLanguage(String sessionId) {
+        return loadState(sessionId).getLanguage();
+    }
+
     public String getSavedAnschreibenPath(String sessionId) {
         return sessionStorage.getAnschreibenPath(sessionId);
     }
@@ -0,0 +1,488 @@
+package com.bewerbung.service;
+
+import com.google.gson.JsonObject;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Small pool of long-lived headless Chrome processes for the Lebenslauf PDF. Instead of starting a
+ * browser per PDF ({@code --print-to-pdf}), each job opens a fresh tab on an idle instance over the
+ * DevTools protocol, prints it with {@code Page.printToPDF} and closes the tab. The protocol runs
+ * over {@code --remote-debugging-pipe} (the browser's fds 3 and 4 are the process stdin/stdout), so
+ * no local port is opened that other users or pages on the host could connect to.
+ * <p>
+ * Instances are started lazily up to {@code chrome.pool.size}, replaced after
+ * {@code chrome.pool.max-jobs} jobs (renderer memory grows over time), discarded when a job fails
+ * and the browser no longer answers, and pinged while idle by a scheduled health check that also
+ * closes instances unused for {@code chrome.pool.idle-timeout-ms}. {@link #render} returns false
+ * when the pool is disabled or no Chrome binary can be started, so the caller can fall back to the
+ * one-shot command line.
+ */
+@Service
+public class ChromePdfPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChromePdfPool.class);
+    private static final List<String> BINARY_CANDIDATES = List.of(
+            "/usr/bin/google-chrome", "google-chrome", "chromium-browser", "chromium");
+    /** Hands the process stdin/stdout to Chrome as its DevTools pipe (fd 3 in, fd 4 out); Chrome's own output goes to stderr. */
+    private static final String PIPE_LAUNCHER = "exec \"$0\" \"$@\" 3<&0 4>&1 0</dev/null 1>&2";
+    private static final long PING_TIMEOUT_MS = 5000;
+    private static final int STREAM_CHUNK_BYTES = 1024 * 1024;
+
+    private final boolean enabled;
+    private final int size;
+    private final int maxJobs;
+    private final long jobTimeoutMs;
+    private final long startupTimeoutMs;
+    private final long idleTimeoutMs;
+    private final String configuredBinary;
+
+    private final BlockingQueue<Instance> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicInteger instanceIds = new AtomicInteger();
+    private volatile String binary;
+    /** Set when no candidate binary could be started; the pool then stays out of the way. */
+    private volatile boolean unavailable;
+    private volatile boolean shutdown;
+
+    private final AtomicLong jobs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong launches = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+
+    public ChromePdfPool(@Value("${chrome.pool.enabled:true}") boolean enabled,
+                         @Value("${chrome.pool.size:2}") int size,
+                         @Value("${chrome.pool.max-jobs:100}") int maxJobs,
+                         @Value("${chrome.pool.job-timeout-ms:60000}") long jobTimeoutMs,
+                         @Value("${chrome.pool.startup-timeout-ms:20000}") long startupTimeoutMs,
+                         @Value("${chrome.pool.idle-timeout-ms:600000}") long idleTimeoutMs,
+                         @Value("${chrome.pool.binary:}") String configuredBinary) {
+        this.enabled = enabled;
+        this.size = Math.max(1, size);
+        this.maxJobs = Math.max(1, maxJobs);
+        this.jobTimeoutMs = Math.max(1000, jobTimeoutMs);
+        this.startupTimeoutMs = Math.max(1000, startupTimeoutMs);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.configuredBinary = configuredBinary == null ? "" : configuredBinary.trim();
+    }
+
+    /**
+     * Prints the page at sourceUrl to outputPdf (replaced atomically). Returns false when the pool
+     * cannot be used or the job failed; the reason is logged.
+     */
+    public boolean render(String sourceUrl, Path outputPdf) {
+        if (!enabled || unavailable || shutdown) return false;
+        Instance instance;
+        try {
+            instance = acquire();
+        } catch (IOException e) {
+            logger.warn("Chrome pool: no browser instance available: {}", e.getMessage());
+            return false;
+        }
+        if (instance == null) return false;
+        boolean ok = false;
+        try {
+            print(instance, sourceUrl, outputPdf);
+            ok = true;
+            jobs.incrementAndGet();
+            logger.info("Lebenslauf PDF generated via Chrome pool (instance {}, job {}): {}", instance.id, instance.jobs + 1, outputPdf);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            logger.warn("Chrome pool: PDF job on instance {} failed: {}", instance.id, e.getMessage());
+        } finally {
+            release(instance, ok);
+        }
+        return ok;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled && !unavailable);
+        stats.put("binary", binary);
+        stats.put("size", size);
+        stats.put("live", live.get());
+        stats.put("idle", idle.size());
+        stats.put("jobs", jobs.get());
+        stats.put("failures", failures.get());
+        stats.put("launches", launches.get());
+        stats.put("recycled", recycled.get());
+        stats.put("crashed", crashed.get());
+        stats.put("waits", waits.get());
+        return stats;
+    }
+
+    /** Pings idle instances and closes the ones that died or stayed unused for too long. */
+    @Scheduled(initialDelayString = "${chrome.pool.health-check-ms:30000}", fixedDelayString = "${chrome.pool.health-check-ms:30000}")
+    public void checkHealth() {
+        if (!enabled || shutdown || idle.isEmpty()) return;
+        List<Instance> checked = new ArrayList<>();
+        idle.drainTo(checked);
+        long now = System.currentTimeMillis();
+        for (Instance instance : checked) {
+            if (idleTimeoutMs > 0 && now - instance.lastUsed > idleTimeoutMs) {
+                logger.debug("Chrome pool: closing instance {} idle for {} ms", instance.id, now - instance.lastUsed);
+                discard(instance);
+            } else if (!instance.ping()) {
+                crashed.incrementAndGet();
+                logger.warn("Chrome pool: instance {} failed health check, discarding", instance.id);
+                discard(instance);
+            } else {
+                idle.offer(instance);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        Instance instance;
+        while ((instance = idle.poll()) != null) {
+            discard(instance);
+        }
+    }
+
+    private Instance acquire() throws IOException {
+        Instance instance = idle.poll();
+        while (instance == null) {
+            int current = live.get();
+            if (current < size) {
+                if (live.compareAndSet(current, current + 1)) {
+                    try {
+                        instance = launch();
+                    } catch (IOException | RuntimeException e) {
+                        live.decrementAndGet();
+                        throw e;
+                    }
+                    if (instance == null) {
+                        live.decrementAndGet();
+                        return null;
+                    }
+                }
+                continue;
+            }
+            waits.incrementAndGet();
+            try {
+                instance = idle.poll(jobTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a browser instance", e);
+            }
+            if (instance == null) {
+                throw new IOException("all " + size + " instances busy for " + jobTimeoutMs + " ms");
+            }
+        }
+        return instance;
+    }
+
+    private void release(Instance instance, boolean ok) {
+        instance.jobs++;
+        instance.lastUsed = System.currentTimeMillis();
+        if (shutdown || !instance.isAlive() || (!ok && !instance.ping())) {
+            if (!shutdown) crashed.incrementAndGet();
+            discard(instance);
+        } else if (instance.jobs >= maxJobs) {
+            recycled.incrementAndGet();
+            logger.debug("Chrome pool: recycling instance {} after {} jobs", instance.id, instance.jobs);
+            discard(instance);
+        } else {
+            idle.offer(instance);
+        }
+    }
+
+    private void discard(Instance instance) {
+        instance.close();
+        live.decrementAndGet();
+    }
+
+    /**
+     * Starts a browser with a DevTools pipe and checks that it answers. Until one binary has worked,
+     * candidates that are missing or fail to start are skipped; null when none of them works.
+     */
+    private Instance launch() throws IOException {
+        List<String> candidates = binary != null ? List.of(binary)
+                : !configuredBinary.isEmpty() ? List.of(configuredBinary) : BINARY_CANDIDATES;
+        for (String candidate : candidates) {
+            Path profileDir = Files.createTempDirectory("chrome-pool-");
+            Process process;
+            try {
+                process = new ProcessBuilder("sh", "-c", PIPE_LAUNCHER, candidate, "--headless", "--disable-gpu", "--no-sandbox",
+                        "--remote-debugging-pipe", "--user-data-dir=" + profileDir,
+                        "--no-first-run", "--no-default-browser-check", "--disable-extensions",
+                        "--disable-background-networking", "--disable-dev-shm-usage", "about:blank")
+                        .start();
+            } catch (IOException e) {
+                deleteTree(profileDir);
+                logger.debug("Chrome pool: cannot start {}: {}", candidate, e.getMessage());
+                continue;
+            }
+            Instance instance = new Instance(instanceIds.incrementAndGet(), process, profileDir);
+            try {
+                instance.connection.call("Browser.getVersion", null, null, startupTimeoutMs);
+            } catch (IOException e) {
+                String reason = instance.process.isAlive() ? e.getMessage() : "exited with code " + instance.exitCode();
+                instance.close();
+                if (binary != null) {
+                    throw new IOException("Chrome " + candidate + " did not start: " + reason, e);
+                }
+                logger.warn("Chrome pool: {} did not start: {}", candidate, reason);
+                continue;
+            }
+            binary = candidate;
+            launches.incrementAndGet();
+            logger.info("Chrome pool: started instance {} ({}), {} live", instance.id, candidate, live.get());
+            return instance;
+        }
+        unavailable = true;
+        logger.info("Chrome pool: no usable Chrome/Chromium binary ({}), using one-shot command line instead", candidates);
+        return null;
+    }
+
+    private void print(Instance instance, String sourceUrl, Path outputPdf) throws IOException {
+        long deadline = System.currentTimeMillis() + jobTimeoutMs;
+        DevToolsConnection cdp = instance.connection;
+        // The tab starts on about:blank; its load can arrive after navigate, so only the load of
+        // the navigation's own loader counts (Page.loadEventFired carries no loaderId)
+        JsonObject target = new JsonObject();
+        target.addProperty("url", "about:blank");
+        String targetId = cdp.call("Target.createTarget", target, null, remaining(deadline)).get("targetId").getAsString();
+        try {
+            JsonObject attach = new JsonObject();
+            attach.addProperty("targetId", targetId);
+            attach.addProperty("flatten", true);
+            String sessionId = cdp.call("Target.attachToTarget", attach, null, remaining(deadline)).get("sessionId").getAsString();
+
+            cdp.call("Page.enable", null, sessionId, remaining(deadline));
+            JsonObject lifecycle = new JsonObject();
+            lifecycle.addProperty("enabled", true);
+            cdp.call("Page.setLifecycleEventsEnabled", lifecycle, sessionId, remaining(deadline));
+            NavigationLoad load = new NavigationLoad();
+            CompletableFuture<JsonObject> loaded = cdp.expectEvent("Page.lifecycleEvent", sessionId, load::matches);
+            JsonObject navigate = new JsonObject();
+            navigate.addProperty("url", sourceUrl);
+            JsonObject navigation;
+            try {
+                navigation = cdp.call("Page.navigate", navigate, sessionId, remaining(deadline));
+            } catch (IOException e) {
+                loaded.cancel(false);
+                throw e;
+            }
+            if (navigation.has("errorText")) {
+                loaded.cancel(false);
+                throw new IOException("Navigation to " + sourceUrl + " failed: " + navigation.get("errorText").getAsString());
+            }
+            if (load.navigated(navigation.has("loaderId") ? navigation.get("loaderId").getAsString() : null)) {
+                loaded.complete(new JsonObject());
+            }
+            awaitEvent(loaded, remaining(deadline));
+
+            JsonObject printOptions = new JsonObject();
+            printOptions.addProperty("printBackground", true);
+            printOptions.addProperty("preferCSSPageSize", true);
+            printOptions.addProperty("paperWidth", 8.27);
+            printOptions.addProperty("paperHeight", 11.69);
+            printOptions.addProperty("transferMode", "ReturnAsStream");
+            String stream = cdp.call("Page.printToPDF", printOptions, sessionId, remaining(deadline)).get("stream").getAsString();
+            copyStream(cdp, stream, sessionId, outputPdf, deadline);
+        } finally {
+            try {
+                JsonObject close = new JsonObject();
+                close.addProperty("targetId", targetId);
+                cdp.call("Target.closeTarget", close, null, PING_TIMEOUT_MS);
+            } catch (IOException e) {
+                logger.debug("Chrome pool: closing tab {} failed: {}", targetId, e.getMessage());
+            }
+        }
+    }
+
+    /** Reads the printToPDF stream handle in chunks into a temp file next to outputPdf, then moves it in place. */
+    private static void copyStream(DevToolsConnection cdp, String handle, String sessionId, Path outputPdf, long deadline) throws IOException {
+        Path parent = outputPdf.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, outputPdf.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                JsonObject read = new JsonObject();
+                read.addProperty("handle", handle);
+                read.addProperty("size", STREAM_CHUNK_BYTES);
+                while (true) {
+                    JsonObject chunk = cdp.call("IO.read", read, sessionId, remaining(deadline));
+                    String data = chunk.has("data") ? chunk.get("data").getAsString() : "";
+                    boolean base64 = chunk.has("base64Encoded") && chunk.get("base64Encoded").getAsBoolean();
+                    out.write(base64 ? Base64.getDecoder().decode(data) : data.getBytes(StandardCharsets.ISO_8859_1));
+                    if (chunk.has("eof") && chunk.get("eof").getAsBoolean()) break;
+                }
+            } finally {
+                JsonObject close = new JsonObject();
+                close.addProperty("handle", handle);
+                try {
+                    cdp.call("IO.close", close, sessionId, PING_TIMEOUT_MS);
+                } catch (IOException e) {
+                    logger.debug("Chrome pool: closing PDF stream failed: {}", e.getMessage());
+                }
+            }
+            if (Files.size(temp) == 0) {
+                throw new IOException("Chrome returned an empty PDF");
+            }
+            Files.move(temp, outputPdf, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void awaitEvent(CompletableFuture<JsonObject> event, long timeoutMs) throws IOException {
+        try {
+            event.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for page load", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Page load failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            event.cancel(false);
+            throw new IOException("Page did not finish loading in time", e);
+        }
+    }
+
+    private static long remaining(long deadline) throws IOException {
+        long left = deadline - System.currentTimeMillis();
+        if (left <= 0) throw new IOException("PDF job timed out");
+        return left;
+    }
+
+    private static void deleteTree(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Chrome may still hold files for a moment after exit; the temp dir is cleaned by the OS
+                }
+            });
+        } catch (IOException e) {
+            logger.debug("Chrome pool: failed to delete profile {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Matches the "load" lifecycle event of one navigation by loaderId. Events can arrive before
+     * Page.navigate returns the loaderId, so their loaderIds are remembered until it is known.
+     */
+    private static final class NavigationLoad {
+        private final List<String> earlyLoads = new ArrayList<>();
+        private boolean navigated;
+        private String loaderId;
+
+        /** Called on the DevTools reader thread for every lifecycle event of the tab. */
+        private synchronized boolean matches(JsonObject event) {
+            if (!event.has("name") || !"load".equals(event.get("name").getAsString())) return false;
+            String eventLoaderId = event.has("loaderId") ? event.get("loaderId").getAsString() : null;
+            if (!navigated) {
+                earlyLoads.add(eventLoaderId);
+                return false;
+            }
+            // Without a loaderId from Page.navigate any later load is taken, as before
+            return loaderId == null || loaderId.equals(eventLoaderId);
+        }
+
+        /** Records the navigation's loaderId; true when its load already arrived. */
+        private synchronized boolean navigated(String loaderId) {
+            this.navigated = true;
+            this.loaderId = loaderId;
+            return loaderId != null && earlyLoads.contains(loaderId);
+        }
+    }
+
+    /** One browser process with its DevTools connection and throwaway profile directory. */
+    private static final class Instance {
+        private final int id;
+        private final Process process;
+        private final Path profileDir;
+        private final DevToolsConnection connection;
+        private int jobs;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Instance(int id, Process process, Path profileDir) {
+            this.id = id;
+            this.process = process;
+            this.profileDir = profileDir;
+            this.connection = DevToolsConnection.open(process.getInputStream(), process.getOutputStream(), "chrome-pool-" + id);
+            // Keeps draining the browser output so it never blocks on a full pipe
+            Thread reader = new Thread(this::readOutput, "chrome-pool-" + id + "-log");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readOutput() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.trace("Chrome pool instance {}: {}", id, line);
+                }
+            } catch (IOException e) {
+                // stream closed when the process exits
+            }
+        }
+
+        private boolean isAlive() {
+            return process.isAlive() && connection.isOpen();
+        }
+
+        private boolean ping() {
+            if (!isAlive()) return false;
+            try {
+                connection.call("Browser.getVersion", null, null, PING_TIMEOUT_MS);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private String exitCode() {
+            return process.isAlive() ? "?" : String.valueOf(process.exitValue());
+        }
+
+        private void close() {
+            connection.close();
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+            deleteTree(profileDir);
+        }
+    }
+}
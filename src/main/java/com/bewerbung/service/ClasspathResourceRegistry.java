@@ -0,0 +1,240 @@
+package com.bewerbung.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Classpath resources (samples, templates, font) loaded once at startup into immutable caches
+ * with precomputed ETags. Resources not in the preload list are cached on first access.
+ * In dev mode ({@code resources.dev-watch.enabled=true}) a file watcher reloads entries when the
+ * files under {@code resources.dev-watch.dir} change and notifies registered listeners.
+ */
+@Service
+public class ClasspathResourceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClasspathResourceRegistry.class);
+
+    public static final String LEBENSLAUF_TEMPLATE = "lebenslauf.html";
+    public static final String DEFAULT_LEBENSLAUF_HTML = "lebenslauf-filled.html";
+    public static final String LEBENSLAUF_FONT = "fonts/LiberationSans-Regular.ttf";
+
+    private static final List<String> PRELOADED = List.of(
+            LEBENSLAUF_TEMPLATE,
+            DEFAULT_LEBENSLAUF_HTML,
+            LEBENSLAUF_FONT,
+            "static/sample_coverLetter.txt",
+            "static/sample_coverLetter_en.txt",
+            "static/sample_coverLetter_ru.txt",
+            "static/sample_job_posting.txt",
+            "static/sample_job_posting_en.txt",
+            "static/sample_job_posting_ru.txt",
+            "static/sample_biography.txt",
+            "static/sample_biography_en.txt",
+            "static/sample_biography_ru.txt",
+            "input/biography.json"
+    );
+
+    /** Cached entries; {@link Optional#empty()} marks a resource known to be missing. */
+    private final Map<String, Optional<CachedResource>> cache = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    @Value("${resources.dev-watch.enabled:false}")
+    private boolean devWatchEnabled;
+
+    @Value("${resources.dev-watch.dir:src/main/resources}")
+    private String devWatchDir;
+
+    private volatile WatchService watchService;
+
+    @PostConstruct
+    public void preload() {
+        long totalBytes = 0;
+        for (String path : PRELOADED) {
+            Optional<CachedResource> resource = load(path);
+            cache.put(path, resource);
+            totalBytes += resource.map(r -> (long) r.bytes.length).orElse(0L);
+        }
+        logger.info("Preloaded {} classpath resources ({} bytes)", PRELOADED.size(), totalBytes);
+        if (devWatchEnabled) {
+            startDevWatcher();
+        }
+    }
+
+    public boolean exists(String path) {
+        return get(path).isPresent();
+    }
+
+    /** UTF-8 content of the resource, or null when it does not exist. */
+    public String getString(String path) {
+        return get(path).map(CachedResource::text).orElse(null);
+    }
+
+    public Optional<InputStream> openStream(String path) {
+        return get(path).map(r -> new ByteArrayInputStream(r.bytes));
+    }
+
+    /** Read-only view of the cached bytes for response bodies (no copy per request). */
+    public Optional<ByteArrayResource> asResource(String path) {
+        return get(path).map(r -> new ByteArrayResource(r.bytes));
+    }
+
+    /** Strong ETag (quoted) of the resource content, or null when it does not exist. */
+    public String getEtag(String path) {
+        return get(path).map(r -> r.etag).orElse(null);
+    }
+
+    /** Base64 data URI of the resource; encoded once and cached with the entry. */
+    public String getDataUri(String path, String mimeType) {
+        return get(path).map(r -> r.dataUri(mimeType)).orElse(null);
+    }
+
+    /** Called with the resource path whenever the dev watcher reloads a resource. */
+    public void addReloadListener(Consumer<String> listener) {
+        reloadListeners.add(listener);
+    }
+
+    private Optional<CachedResource> get(String path) {
+        String key = normalize(path);
+        return cache.computeIfAbsent(key, this::load);
+    }
+
+    private Optional<CachedResource> load(String path) {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (!resource.exists()) {
+            logger.debug("Classpath resource not found: {}", path);
+            return Optional.empty();
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return Optional.of(new CachedResource(in.readAllBytes()));
+        } catch (IOException e) {
+            logger.warn("Failed to load classpath resource {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String normalize(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    private void startDevWatcher() {
+        Path root = Paths.get(devWatchDir).toAbsolutePath();
+        if (!Files.isDirectory(root)) {
+            logger.warn("Resource dev watcher: directory {} not found, watcher disabled", root);
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            try (Stream<Path> dirs = Files.walk(root)) {
+                for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Resource dev watcher could not be started: {}", e.getMessage());
+            return;
+        }
+        Thread watcher = new Thread(() -> watchLoop(root), "resource-dev-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Resource dev watcher started on {}", root);
+    }
+
+    private void watchLoop(Path root) {
+        WatchService service = watchService;
+        while (service != null) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | java.nio.file.ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                Path changed = dir.resolve((Path) event.context());
+                String path = root.relativize(changed).toString().replace('\\', '/');
+                if (cache.containsKey(path) && Files.isRegularFile(changed)) {
+                    reloadFromFile(path, changed);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void reloadFromFile(String path, Path file) {
+        try {
+            cache.put(path, Optional.of(new CachedResource(Files.readAllBytes(file))));
+            logger.info("Resource reloaded by dev watcher: {}", path);
+            for (Consumer<String> listener : reloadListeners) {
+                listener.accept(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to reload resource {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stopDevWatcher() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    private static final class CachedResource {
+        private final byte[] bytes;
+        private final String etag;
+        private volatile String text;
+        private final Map<String, String> dataUris = new ConcurrentHashMap<>();
+
+        private CachedResource(byte[] bytes) {
+            this.bytes = bytes;
+            this.etag = "\"" + ArtifactManifestService.sha256(bytes).substring(0, 32) + "\"";
+        }
+
+        /** Decoded lazily so binary resources (the font) never hold a String copy. */
+        private String text() {
+            String decoded = text;
+            if (decoded == null) {
+                decoded = new String(bytes, StandardCharsets.UTF_8);
+                text = decoded;
+            }
+            return decoded;
+        }
+
+        private String dataUri(String mimeType) {
+            return dataUris.computeIfAbsent(mimeType,
+                    mime -> "data:" + mime + ";base64," + Base64.getEncoder().encodeToString(bytes));
+        }
+    }
+}
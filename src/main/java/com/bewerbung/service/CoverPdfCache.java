@@ -0,0 +1,267 @@
+package com.bewerbung.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Generated cover letter PDFs by content: the key is the hash of the letter text, the date printed
+ * in the letter, {@link PdfGenerationService#getOutputVersion()} and the font, so a repeated download
+ * of the same letter is served without PDFBox work and any change to the output gets a new key.
+ * <p>
+ * Two tiers: a byte-weighted in-memory LRU and files under output/_pdf-cache/ that survive restarts
+ * and memory eviction. The disk tier is bounded by pdf.cache.disk.max-bytes (oldest files go first);
+ * files of earlier days can never be hit again and are removed on start and when pruning.
+ * Concurrent requests for the same letter share one rendering.
+ * <p>
+ * A cached PDF is also addressable by its key (GET /api/generate/pdf/cover/{key}), so clients can
+ * revalidate it with If-None-Match; the disk tier is then streamed instead of read into memory.
+ */
+@Service
+public class CoverPdfCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverPdfCache.class);
+    private static final Path CACHE_DIR = Paths.get("output", "_pdf-cache");
+    private static final String SUFFIX = ".pdf";
+    private static final Duration MAX_FILE_AGE = Duration.ofDays(2);
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final PdfGenerationService pdfGenerationService;
+    private final FontRegistry fontRegistry;
+    private final boolean enabled;
+    private final long diskMaxBytes;
+    private final ByteWeightedCache<String, byte[]> memory;
+    private final Map<String, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong sharedRenders = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    public CoverPdfCache(PdfGenerationService pdfGenerationService, FontRegistry fontRegistry,
+                         @Value("${pdf.cache.enabled:true}") boolean enabled,
+                         @Value("${pdf.cache.memory.max-bytes:16777216}") long memoryMaxBytes,
+                         @Value("${pdf.cache.disk.max-bytes:268435456}") long diskMaxBytes) {
+        this.pdfGenerationService = pdfGenerationService;
+        this.fontRegistry = fontRegistry;
+        this.enabled = enabled;
+        this.diskMaxBytes = Math.max(0, diskMaxBytes);
+        this.memory = new ByteWeightedCache<>("cover-pdf", memoryMaxBytes, Duration.ofHours(24), pdf -> pdf.length);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            prune();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache key of the PDF the text renders to with that date. The same date must be passed to
+     * {@link #get}, so a render that crosses midnight is not stored under the next day's key.
+     */
+    public String key(String coverLetterText, LocalDate date) {
+        return ArtifactManifestService.sha256(ArtifactManifestService.sha256(coverLetterText)
+                + "\0" + date
+                + "\0" + pdfGenerationService.getOutputVersion()
+                + "\0" + fontRegistry.getSource());
+    }
+
+    /** Strong ETag (quoted) for a key. */
+    public static String etag(String key) {
+        return "\"" + key.substring(0, 32) + "\"";
+    }
+
+    /** Whether the string has the form of a key (so it can be used as a file name). */
+    public static boolean isValidKey(String key) {
+        return key != null && KEY.matcher(key).matches();
+    }
+
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    /** The PDF for the key: from memory, from disk or rendered with date (and stored in both tiers). */
+    public byte[] get(String key, String coverLetterText, LocalDate date) throws IOException {
+        try {
+            return memory.get(key, k -> loadOrRender(k, coverLetterText, date));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** The PDF for the key if it is in memory; null otherwise. Never renders. */
+    public byte[] getIfPresent(String key) {
+        return enabled && isValidKey(key) ? memory.getIfPresent(key) : null;
+    }
+
+    /** The disk tier file for the key, if present. Never renders. */
+    public Optional<Path> findFile(String key) {
+        if (!enabled || !isValidKey(key)) return Optional.empty();
+        Path file = CACHE_DIR.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        diskHits.incrementAndGet();
+        return Optional.of(file);
+    }
+
+    /** The PDF for the text: through the cache when enabled, otherwise rendered. */
+    public byte[] getOrRender(String coverLetterText) throws IOException {
+        LocalDate date = LocalDate.now();
+        return enabled ? get(key(coverLetterText, date), coverLetterText, date) : pdfGenerationService.generatePdf(coverLetterText, date);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("memory", memory.getStats());
+        stats.put("diskBytes", diskBytes.get());
+        stats.put("diskMaxBytes", diskMaxBytes);
+        stats.put("diskHits", diskHits.get());
+        stats.put("renders", renders.get());
+        stats.put("sharedRenders", sharedRenders.get());
+        stats.put("notModified", notModified.get());
+        return stats;
+    }
+
+    private byte[] loadOrRender(String key, String coverLetterText, LocalDate date) {
+        Path file = CACHE_DIR.resolve(key + SUFFIX);
+        if (Files.isRegularFile(file)) {
+            try {
+                byte[] pdf = Files.readAllBytes(file);
+                diskHits.incrementAndGet();
+                return pdf;
+            } catch (IOException e) {
+                logger.warn("Failed to read cached cover PDF {}: {}", file, e.getMessage());
+            }
+        }
+        CompletableFuture<byte[]> own = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = rendering.putIfAbsent(key, own);
+        if (running != null) {
+            sharedRenders.incrementAndGet();
+            return join(running);
+        }
+        try {
+            byte[] pdf = pdfGenerationService.generatePdf(coverLetterText, date);
+            renders.incrementAndGet();
+            writeToDisk(file, pdf);
+            own.complete(pdf);
+            return pdf;
+        } catch (IOException e) {
+            own.completeExceptionally(e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(key, own);
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> rendering) {
+        try {
+            return rendering.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw new UncheckedIOException(io);
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    /** Atomic write (readers never see a partial file); a failure only costs the disk tier. */
+    private void writeToDisk(Path file, byte[] pdf) {
+        if (diskMaxBytes == 0) return;
+        try {
+            Files.createDirectories(CACHE_DIR);
+            Path temp = Files.createTempFile(CACHE_DIR, "pdf_", ".tmp");
+            Files.write(temp, pdf);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to store cover PDF in {}: {}", CACHE_DIR, e.getMessage());
+            return;
+        }
+        if (diskBytes.addAndGet(pdf.length) > diskMaxBytes) {
+            prune();
+        }
+    }
+
+    /** Drops files of earlier days and then the oldest files until the tier is at 90% of its limit. */
+    private synchronized void prune() {
+        if (!Files.isDirectory(CACHE_DIR)) return;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(CACHE_DIR)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            logger.warn("Failed to list cover PDF cache {}: {}", CACHE_DIR, e.getMessage());
+            return;
+        }
+        Instant oldest = Instant.now().minus(MAX_FILE_AGE);
+        Map<Path, Instant> modified = new LinkedHashMap<>();
+        long total = 0;
+        int deleted = 0;
+        for (Path file : files) {
+            try {
+                Instant time = Files.getLastModifiedTime(file).toInstant();
+                if (time.isBefore(oldest)) {
+                    if (Files.deleteIfExists(file)) deleted++;
+                    continue;
+                }
+                // Temp file of a write in progress
+                if (!file.getFileName().toString().endsWith(SUFFIX)) continue;
+                modified.put(file, time);
+                total += Files.size(file);
+            } catch (IOException e) {
+                // Removed concurrently
+            }
+        }
+        if (total > diskMaxBytes) {
+            List<Path> byAge = new ArrayList<>(modified.keySet());
+            byAge.sort(Comparator.comparing(modified::get));
+            long target = diskMaxBytes / 10 * 9;
+            for (Path file : byAge) {
+                if (total <= target) break;
+                try {
+                    long size = Files.size(file);
+                    if (Files.deleteIfExists(file)) {
+                        total -= size;
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    // Removed concurrently
+                }
+            }
+        }
+        diskBytes.set(total);
+        if (deleted > 0) {
+            logger.info("Cover PDF cache pruned: {} file(s) removed, {} bytes kept", deleted, total);
+        }
+    }
+}
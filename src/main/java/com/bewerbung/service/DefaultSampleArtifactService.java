@@ -0,0 +1,131 @@
+package com.bewerbung.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-rendered artifacts of the default (sample) data: the sample cover letters as PDFs,
+ * the default Lebenslauf HTML and a shared default Lebenslauf PDF for sessions without a photo.
+ * The default-data flow serves these instead of rendering the same documents for every visitor.
+ */
+@Service
+public class DefaultSampleArtifactService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultSampleArtifactService.class);
+    private static final Path SHARED_OUTPUT_DIR = Paths.get("output", "_default");
+
+    private final FileOutputService fileOutputService;
+    private final PdfGenerationService pdfGenerationService;
+    private final ClasspathResourceRegistry resourceRegistry;
+
+    /** Sample letter fingerprint -> language. */
+    private final Map<String, String> sampleLetterFingerprints = new ConcurrentHashMap<>();
+    /** Cover PDFs of the sample letters; the letter carries the current date, so they are keyed by day. */
+    private final Map<String, byte[]> sampleCoverPdfs = new ConcurrentHashMap<>();
+    private volatile String defaultLebenslaufHtml;
+    private volatile String defaultLebenslaufHtmlHash = "default-template-missing";
+
+    public DefaultSampleArtifactService(FileOutputService fileOutputService, PdfGenerationService pdfGenerationService,
+                                        ClasspathResourceRegistry resourceRegistry) {
+        this.fileOutputService = fileOutputService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.resourceRegistry = resourceRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        prerender();
+        resourceRegistry.addReloadListener(path -> {
+            if (path.startsWith("static/sample_") || ClasspathResourceRegistry.DEFAULT_LEBENSLAUF_HTML.equals(path)) {
+                prerender();
+            }
+        });
+    }
+
+    private void prerender() {
+        String html = resourceRegistry.getString(ClasspathResourceRegistry.DEFAULT_LEBENSLAUF_HTML);
+        if (html != null) {
+            defaultLebenslaufHtml = html.replace("src=\"static/", "src=\"/static/");
+            defaultLebenslaufHtmlHash = ArtifactManifestService.sha256(defaultLebenslaufHtml);
+        } else {
+            logger.warn("Default Lebenslauf HTML {} not found", ClasspathResourceRegistry.DEFAULT_LEBENSLAUF_HTML);
+        }
+
+        sampleLetterFingerprints.clear();
+        sampleCoverPdfs.clear();
+        LocalDate today = LocalDate.now();
+        fileOutputService.getSampleCoverLetters().forEach((language, letter) -> {
+            String fingerprint = letterFingerprint(letter);
+            sampleLetterFingerprints.put(fingerprint, language);
+            try {
+                sampleCoverPdfs.put(pdfKey(fingerprint, today), pdfGenerationService.generatePdf(letter, today));
+            } catch (Exception e) {
+                logger.warn("Could not pre-render sample cover PDF for language '{}': {}", language, e.getMessage());
+            }
+        });
+        logger.info("Default sample artifacts pre-rendered ({} sample letters)", sampleLetterFingerprints.size());
+    }
+
+    /** Default Lebenslauf HTML with absolute static paths, or null when the resource is missing. */
+    public String getDefaultLebenslaufHtml() {
+        return defaultLebenslaufHtml;
+    }
+
+    public String getDefaultLebenslaufHtmlHash() {
+        return defaultLebenslaufHtmlHash;
+    }
+
+    /**
+     * Returns the pre-rendered PDF when the text is one of the sample letters. PDFs of earlier days
+     * are dropped and today's one is rendered once on first use.
+     */
+    public Optional<byte[]> findSampleCoverPdf(String coverLetterText) {
+        String fingerprint = letterFingerprint(coverLetterText);
+        if (!sampleLetterFingerprints.containsKey(fingerprint)) {
+            return Optional.empty();
+        }
+        LocalDate today = LocalDate.now();
+        String key = pdfKey(fingerprint, today);
+        byte[] pdf = sampleCoverPdfs.get(key);
+        if (pdf == null) {
+            sampleCoverPdfs.keySet().removeIf(k -> !k.endsWith(today.toString()));
+            try {
+                pdf = pdfGenerationService.generatePdf(coverLetterText, today);
+                sampleCoverPdfs.put(key, pdf);
+            } catch (IOException e) {
+                logger.warn("Could not render sample cover PDF: {}", e.getMessage());
+                return Optional.empty();
+            }
+        }
+        logger.info("Serving pre-rendered sample cover PDF ({} bytes)", pdf.length);
+        return Optional.of(pdf);
+    }
+
+    /**
+     * Location of the default Lebenslauf PDF shared by all sessions without a photo. The name carries
+     * the template hash and renderer, so a new template or renderer never reuses an old file.
+     */
+    public Path getSharedDefaultLebenslaufPdf(String renderer) {
+        String version = ArtifactManifestService.sha256(defaultLebenslaufHtmlHash + ":" + renderer).substring(0, 16);
+        return SHARED_OUTPUT_DIR.resolve("Musterman_Lebenslauf-" + version + ".PDF").toAbsolutePath();
+    }
+
+    private String letterFingerprint(String letter) {
+        String normalized = letter == null ? "" : letter.replace("\r\n", "\n").replace("\r", "\n").trim();
+        return ArtifactManifestService.sha256(normalized);
+    }
+
+    private String pdfKey(String fingerprint, LocalDate date) {
+        return fingerprint + ":" + date;
+    }
+}
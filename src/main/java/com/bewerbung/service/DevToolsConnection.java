@@ -0,0 +1,193 @@
+package com.bewerbung.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Minimal Chrome DevTools Protocol client over {@code --remote-debugging-pipe}: JSON messages
+ * separated by NUL bytes, commands with ids matched to their responses, and one-shot waits for
+ * events. Page-level commands go through the browser connection with a {@code sessionId}
+ * (Target.attachToTarget with flatten=true). Unlike a debugging port, the pipe is reachable only
+ * by the process that started the browser.
+ */
+final class DevToolsConnection implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DevToolsConnection.class);
+    private static final Gson GSON = new Gson();
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<JsonObject>> pending = new ConcurrentHashMap<>();
+    private final List<EventWait> eventWaits = new CopyOnWriteArrayList<>();
+    private final InputStream in;
+    private final OutputStream out;
+    private volatile boolean open = true;
+
+    private DevToolsConnection(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Connects to the browser's end of the pipe: {@code toBrowser} is its fd 3, {@code fromBrowser}
+     * its fd 4. Messages are read on a daemon thread until the browser closes the pipe.
+     */
+    static DevToolsConnection open(InputStream fromBrowser, OutputStream toBrowser, String name) {
+        DevToolsConnection connection = new DevToolsConnection(fromBrowser, toBrowser);
+        Thread reader = new Thread(connection::readMessages, name);
+        reader.setDaemon(true);
+        reader.start();
+        return connection;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /** Sends a command and waits for its result; a protocol error becomes an IOException. */
+    JsonObject call(String method, JsonObject params, String sessionId, long timeoutMs) throws IOException {
+        if (!open) throw new IOException("DevTools connection is closed");
+        int id = ids.incrementAndGet();
+        JsonObject message = new JsonObject();
+        message.addProperty("id", id);
+        message.addProperty("method", method);
+        message.add("params", params != null ? params : new JsonObject());
+        if (sessionId != null) {
+            message.addProperty("sessionId", sessionId);
+        }
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        pending.put(id, result);
+        try {
+            // Messages must not interleave on the pipe
+            synchronized (out) {
+                out.write(GSON.toJson(message).getBytes(StandardCharsets.UTF_8));
+                out.write(0);
+                out.flush();
+            }
+            return result.get(Math.max(1, timeoutMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during " + method, e);
+        } catch (ExecutionException e) {
+            throw new IOException(method + " failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException(method + " timed out after " + timeoutMs + " ms", e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * Future completed with the params of the next event of that method whose params pass the
+     * filter. Register before sending the command that triggers it, so the event cannot be missed.
+     * The filter runs on the reader thread.
+     */
+    CompletableFuture<JsonObject> expectEvent(String method, String sessionId, Predicate<JsonObject> filter) {
+        EventWait wait = new EventWait(method, sessionId, filter);
+        eventWaits.add(wait);
+        wait.future.whenComplete((params, error) -> eventWaits.remove(wait));
+        return wait.future;
+    }
+
+    @Override
+    public void close() {
+        if (!open) return;
+        failAll(new IOException("DevTools connection closed"));
+        try {
+            out.close();
+        } catch (IOException e) {
+            // the browser is being stopped anyway
+        }
+    }
+
+    private void readMessages() {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != 0) continue;
+                    message.write(buffer, start, i - start);
+                    dispatch(message.toString(StandardCharsets.UTF_8));
+                    message.reset();
+                    start = i + 1;
+                }
+                message.write(buffer, start, read - start);
+            }
+            failAll(new IOException("DevTools pipe closed by the browser"));
+        } catch (IOException e) {
+            failAll(new IOException("DevTools pipe failed: " + e.getMessage(), e));
+        }
+    }
+
+    private void dispatch(String text) {
+        JsonObject message;
+        try {
+            message = GSON.fromJson(text, JsonObject.class);
+        } catch (JsonParseException e) {
+            logger.debug("Ignoring malformed DevTools message: {}", e.getMessage());
+            return;
+        }
+        if (message == null) return;
+        if (message.has("id")) {
+            CompletableFuture<JsonObject> result = pending.get(message.get("id").getAsInt());
+            if (result == null) return;
+            if (message.has("error")) {
+                JsonElement error = message.getAsJsonObject("error").get("message");
+                result.completeExceptionally(new IOException(error != null ? error.getAsString() : "protocol error"));
+            } else {
+                result.complete(message.has("result") ? message.getAsJsonObject("result") : new JsonObject());
+            }
+            return;
+        }
+        String method = message.has("method") ? message.get("method").getAsString() : null;
+        String sessionId = message.has("sessionId") ? message.get("sessionId").getAsString() : null;
+        JsonObject params = message.has("params") ? message.getAsJsonObject("params") : new JsonObject();
+        for (EventWait wait : eventWaits) {
+            if (wait.method.equals(method) && Objects.equals(wait.sessionId, sessionId) && wait.filter.test(params)) {
+                wait.future.complete(params);
+            }
+        }
+    }
+
+    private void failAll(IOException error) {
+        open = false;
+        pending.values().forEach(result -> result.completeExceptionally(error));
+        eventWaits.forEach(wait -> wait.future.completeExceptionally(error));
+    }
+
+    private static final class EventWait {
+        private final String method;
+        private final String sessionId;
+        private final Predicate<JsonObject> filter;
+        private final CompletableFuture<JsonObject> future = new CompletableFuture<>();
+
+        private EventWait(String method, String sessionId, Predicate<JsonObject> filter) {
+            this.method = method;
+            this.sessionId = sessionId;
+            this.filter = filter;
+        }
+    }
+}
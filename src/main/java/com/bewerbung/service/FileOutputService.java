@@ -3,9 +3,9 @@ package com.bewerbung.service;
 import com.bewerbung.model.JobRequirements;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -13,22 +13,57 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class FileOutputService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileOutputService.class);
     private static final String OUTPUT_DIR = "output";
+    private static final List<String> SAMPLE_LANGUAGES = List.of("de", "en", "ru");
     
     private final Gson gson;
     private final SessionStorageService sessionStorage;
+    private final ClasspathResourceRegistry resourceRegistry;
+    /** Canonical fingerprints and sample letters per language, computed once at startup. */
+    private final Map<String, DefaultSample> defaultSamples = new ConcurrentHashMap<>();
 
-    public FileOutputService(SessionStorageService sessionStorage) {
+    public FileOutputService(SessionStorageService sessionStorage, ClasspathResourceRegistry resourceRegistry) {
         this.gson = new Gson();
         this.sessionStorage = sessionStorage;
+        this.resourceRegistry = resourceRegistry;
         ensureDirectoriesExist();
     }
 
+    @PostConstruct
+    public void init() {
+        precomputeDefaultSamples();
+        resourceRegistry.addReloadListener(path -> {
+            if (path.startsWith("static/sample_") || path.startsWith("input/")) {
+                precomputeDefaultSamples();
+            }
+        });
+    }
+
+    private void precomputeDefaultSamples() {
+        for (String language : SAMPLE_LANGUAGES) {
+            String jobPosting = loadDefaultJobPosting(language);
+            String biography = loadDefaultBiography(language);
+            if (jobPosting == null || biography == null) {
+                logger.warn("Default samples incomplete for language '{}', default-data fast path disabled for it", language);
+                continue;
+            }
+            String vacancy = normalizeForComparison(jobPosting);
+            String coverLetter = readSampleCoverLetter(language);
+            defaultSamples.put(language, new DefaultSample(vacancy.length(),
+                    fingerprint(vacancy, canonicalBiography(biography)), coverLetter));
+        }
+        logger.info("Default sample fingerprints precomputed for languages {}", defaultSamples.keySet());
+    }
+
     private void ensureDirectoriesExist() {
         try {
             Files.createDirectories(Paths.get(OUTPUT_DIR));
@@ -71,6 +106,12 @@ public class FileOutputService {
         }
     }
 
+    /** Whether the session still has a stored vacancy analysis. */
+    public boolean hasAnalysis(String sessionId) {
+        String analysis = sessionStorage.getAnalysisMd(sessionId);
+        return analysis != null && !analysis.isBlank();
+    }
+
     public void writeAnschreiben(String sessionId, String anschreiben) {
         if (anschreiben == null || anschreiben.trim().isEmpty()) {
             logger.warn("Anschreiben is null or empty, skipping write");
@@ -195,6 +236,23 @@ public class FileOutputService {
     }
     
     public String loadSampleCoverLetter(String language) {
+        DefaultSample sample = defaultSamples.get(normalizeSampleLanguage(language));
+        if (sample != null && sample.coverLetter != null) {
+            return sample.coverLetter;
+        }
+        return readSampleCoverLetter(language);
+    }
+
+    /** Sample letters of all languages (for recognising them again, e.g. on PDF export). */
+    public Map<String, String> getSampleCoverLetters() {
+        Map<String, String> letters = new java.util.LinkedHashMap<>();
+        defaultSamples.forEach((language, sample) -> {
+            if (sample.coverLetter != null) letters.put(language, sample.coverLetter);
+        });
+        return letters;
+    }
+
+    private String readSampleCoverLetter(String language) {
         // Normalize language
         if (language == null || language.trim().isEmpty()) {
             language = "de";
@@ -211,29 +269,21 @@ public class FileOutputService {
             filename = "static/sample_coverLetter.txt"; // Default German
         }
         
-        try {
-            ClassPathResource resource = new ClassPathResource(filename);
-            if (!resource.exists()) {
-                logger.warn("Sample cover letter file not found: {}. Falling back to default.", filename);
-                // Fallback to default German file
-                if (!"de".equals(language)) {
-                    resource = new ClassPathResource("static/sample_coverLetter.txt");
-                    if (!resource.exists()) {
-                        logger.warn("Default sample cover letter file also not found");
-                        return null;
-                    }
-                } else {
-                    return null;
-                }
+        String content = resourceRegistry.getString(filename);
+        if (content == null) {
+            logger.warn("Sample cover letter file not found: {}. Falling back to default.", filename);
+            // Fallback to default German file
+            if ("de".equals(language)) {
+                return null;
+            }
+            content = resourceRegistry.getString("static/sample_coverLetter.txt");
+            if (content == null) {
+                logger.warn("Default sample cover letter file also not found");
+                return null;
             }
-            
-            String content = resource.getContentAsString(StandardCharsets.UTF_8);
-            logger.info("Loaded sample cover letter for language '{}' from {} ({} chars)", language, filename, content.length());
-            return content;
-        } catch (IOException e) {
-            logger.error("Failed to load sample cover letter from {}", filename, e);
-            return null;
         }
+        logger.info("Loaded sample cover letter for language '{}' from {} ({} chars)", language, filename, content.length());
+        return content;
     }
     
     public String loadDefaultJobPosting() {
@@ -257,29 +307,21 @@ public class FileOutputService {
             filename = "static/sample_job_posting.txt"; // Default German
         }
         
-        try {
-            ClassPathResource resource = new ClassPathResource(filename);
-            if (!resource.exists()) {
-                logger.warn("Default job posting file not found: {}. Falling back to default.", filename);
-                // Fallback to default German file
-                if (!"de".equals(language)) {
-                    resource = new ClassPathResource("static/sample_job_posting.txt");
-                    if (!resource.exists()) {
-                        return null;
-                    }
-                } else {
-                    return null;
-                }
+        String content = resourceRegistry.getString(filename);
+        if (content == null) {
+            logger.warn("Default job posting file not found: {}. Falling back to default.", filename);
+            // Fallback to default German file
+            if ("de".equals(language)) {
+                return null;
+            }
+            content = resourceRegistry.getString("static/sample_job_posting.txt");
+            if (content == null) {
+                return null;
             }
-            
-            String content = resource.getContentAsString(StandardCharsets.UTF_8);
-            logger.debug("Loaded default job posting for language '{}' from {} ({} chars)", language, filename, content.length());
-            // Normalize line endings and trim
-            return normalizeForComparison(content);
-        } catch (IOException e) {
-            logger.error("Failed to load default job posting for language '{}'", language, e);
-            return null;
         }
+        logger.debug("Loaded default job posting for language '{}' from {} ({} chars)", language, filename, content.length());
+        // Normalize line endings and trim
+        return normalizeForComparison(content);
     }
     
     public String loadDefaultBiography() {
@@ -303,44 +345,29 @@ public class FileOutputService {
             filename = "static/sample_biography.txt"; // Default German
         }
         
-        try {
-            ClassPathResource resource = new ClassPathResource(filename);
-            if (resource.exists()) {
-                String content = resource.getContentAsString(StandardCharsets.UTF_8);
-                logger.debug("Loaded default biography text for language '{}' from {} ({} chars)", language, filename, content.length());
-                // Normalize line endings and trim
-                return normalizeForComparison(content);
-            }
-        } catch (IOException e) {
-            logger.debug("Failed to load biography for language '{}', trying fallback", language, e);
+        String content = resourceRegistry.getString(filename);
+        if (content != null) {
+            logger.debug("Loaded default biography text for language '{}' from {} ({} chars)", language, filename, content.length());
+            // Normalize line endings and trim
+            return normalizeForComparison(content);
         }
         
         // Fallback to default German file if language-specific file not found
         if (!"de".equals(language)) {
-            try {
-                ClassPathResource resource = new ClassPathResource("static/sample_biography.txt");
-                if (resource.exists()) {
-                    String content = resource.getContentAsString(StandardCharsets.UTF_8);
-                    logger.debug("Loaded default biography text (fallback) ({} chars)", content.length());
-                    // Normalize line endings and trim
-                    return normalizeForComparison(content);
-                }
-            } catch (IOException e) {
-                logger.debug("Failed to load fallback biography", e);
+            content = resourceRegistry.getString("static/sample_biography.txt");
+            if (content != null) {
+                logger.debug("Loaded default biography text (fallback) ({} chars)", content.length());
+                // Normalize line endings and trim
+                return normalizeForComparison(content);
             }
         }
         
         // Try JSON format as last resort
-        try {
-            ClassPathResource resource = new ClassPathResource("input/biography.json");
-            if (resource.exists()) {
-                String content = resource.getContentAsString(StandardCharsets.UTF_8);
-                logger.debug("Loaded default biography JSON ({} chars)", content.length());
-                // Normalize line endings and trim
-                return normalizeForComparison(content);
-            }
-        } catch (IOException e) {
-            logger.debug("Failed to load biography.json", e);
+        content = resourceRegistry.getString("input/biography.json");
+        if (content != null) {
+            logger.debug("Loaded default biography JSON ({} chars)", content.length());
+            // Normalize line endings and trim
+            return normalizeForComparison(content);
         }
         
         logger.warn("Default biography file not found for language '{}'", language);
@@ -368,110 +395,69 @@ public class FileOutputService {
         return normalized;
     }
     
+    /**
+     * Compares the inputs with the precomputed sample fingerprint of the language:
+     * a length check on the vacancy first, then a single hash comparison.
+     */
     public boolean isDefaultData(String vacancyText, String cvText, String language) {
-        String defaultJobPosting = loadDefaultJobPosting(language);
-        String defaultBiography = loadDefaultBiography(language);
-        
-        if (defaultJobPosting == null || defaultBiography == null) {
+        String sampleLanguage = normalizeSampleLanguage(language);
+        DefaultSample sample = defaultSamples.get(sampleLanguage);
+        if (sample == null) {
             logger.warn("Cannot compare with defaults - default files not found for language '{}'", language);
             return false;
         }
-        
-        // Normalize both strings for comparison
+
         String normalizedVacancy = normalizeForComparison(vacancyText);
-        String normalizedDefaultJobPosting = normalizeForComparison(defaultJobPosting);
         String normalizedCv = normalizeForComparison(cvText);
-        String normalizedDefaultBiography = normalizeForComparison(defaultBiography);
-        
-        // Compare vacancy text
-        boolean vacancyMatches = normalizedVacancy.equals(normalizedDefaultJobPosting);
-        
-        if (!vacancyMatches) {
-            // Log detailed comparison for debugging
-            logger.info("Vacancy text mismatch for language '{}':", language);
-            logger.info("  Incoming length: {}, Default length: {}", 
-                normalizedVacancy.length(), normalizedDefaultJobPosting.length());
-            if (normalizedVacancy.length() != normalizedDefaultJobPosting.length()) {
-                logger.info("  Lengths differ - this is why comparison failed");
-            } else {
-                // Find first difference
-                int firstDiff = findFirstDifference(normalizedVacancy, normalizedDefaultJobPosting);
-                if (firstDiff >= 0) {
-                    int start = Math.max(0, firstDiff - 20);
-                    int end = Math.min(normalizedVacancy.length(), firstDiff + 20);
-                    logger.info("  First difference at position {}: incoming='{}', default='{}'", 
-                        firstDiff,
-                        normalizedVacancy.substring(start, Math.min(end, normalizedVacancy.length())).replace("\n", "\\n"),
-                        normalizedDefaultJobPosting.substring(start, Math.min(end, normalizedDefaultJobPosting.length())).replace("\n", "\\n"));
-                }
-            }
-        }
-        
-        // Normalize biography for comparison (handle both JSON and text formats)
-        boolean cvMatches = false;
-        if (normalizedCv != null && !normalizedCv.isEmpty()) {
-            try {
-                // Try to parse both as JSON
-                JsonObject defaultJson = gson.fromJson(normalizedDefaultBiography, JsonObject.class);
-                JsonObject incomingJson = gson.fromJson(normalizedCv, JsonObject.class);
-                
-                // Compare normalized JSON strings
-                String normalizedDefault = gson.toJson(defaultJson);
-                String normalizedIncoming = gson.toJson(incomingJson);
-                cvMatches = normalizedDefault.equals(normalizedIncoming);
-            } catch (Exception e) {
-                // If JSON parsing fails, compare as plain text (for text format biography)
-                logger.debug("Biography not in JSON format, using text comparison");
-                cvMatches = normalizedCv.equals(normalizedDefaultBiography);
-                
-                if (!cvMatches) {
-                    // Log detailed comparison for debugging
-                    logger.info("Biography text mismatch for language '{}':", language);
-                    logger.info("  Incoming length: {}, Default length: {}", 
-                        normalizedCv.length(), normalizedDefaultBiography.length());
-                    if (normalizedCv.length() != normalizedDefaultBiography.length()) {
-                        logger.info("  Lengths differ - this is why comparison failed");
-                    } else {
-                        // Find first difference
-                        int firstDiff = findFirstDifference(normalizedCv, normalizedDefaultBiography);
-                        if (firstDiff >= 0) {
-                            int start = Math.max(0, firstDiff - 20);
-                            int end = Math.min(normalizedCv.length(), firstDiff + 20);
-                            logger.info("  First difference at position {}: incoming='{}', default='{}'", 
-                                firstDiff,
-                                normalizedCv.substring(start, Math.min(end, normalizedCv.length())).replace("\n", "\\n"),
-                                normalizedDefaultBiography.substring(start, Math.min(end, normalizedDefaultBiography.length())).replace("\n", "\\n"));
-                        }
-                    }
-                }
-            }
-        }
-        
-        boolean isDefault = vacancyMatches && cvMatches;
-        
+        boolean isDefault = normalizedVacancy.length() == sample.vacancyLength
+                && !normalizedCv.isEmpty()
+                && sample.fingerprint.equals(fingerprint(normalizedVacancy, canonicalBiography(normalizedCv)));
+
         if (isDefault) {
             logger.info("Data matches default samples for language '{}' - will use sample cover letter without AI", language);
         } else {
-            logger.info("Data does not match defaults for language '{}' - vacancy match: {}, cv match: {}", language, vacancyMatches, cvMatches);
+            logger.debug("Data does not match default samples for language '{}'", language);
         }
-        
         return isDefault;
     }
-    
+
     /**
-     * Finds the first position where two strings differ
+     * Biography in comparable form: JSON is re-serialised (formatting-independent),
+     * text biographies are compared after line-ending normalisation.
      */
-    private int findFirstDifference(String s1, String s2) {
-        int minLength = Math.min(s1.length(), s2.length());
-        for (int i = 0; i < minLength; i++) {
-            if (s1.charAt(i) != s2.charAt(i)) {
-                return i;
+    private String canonicalBiography(String biography) {
+        String normalized = normalizeForComparison(biography);
+        if (normalized.startsWith("{")) {
+            try {
+                JsonObject json = gson.fromJson(normalized, JsonObject.class);
+                if (json != null) return gson.toJson(json);
+            } catch (Exception e) {
+                logger.debug("Biography not in JSON format, using text comparison");
             }
         }
-        if (s1.length() != s2.length()) {
-            return minLength;
+        return normalized;
+    }
+
+    private String fingerprint(String normalizedVacancy, String canonicalBiography) {
+        return ArtifactManifestService.sha256(normalizedVacancy + "\0" + canonicalBiography);
+    }
+
+    /** Unknown languages fall back to the German samples, as the sample loaders do. */
+    private String normalizeSampleLanguage(String language) {
+        if (language == null || language.isBlank()) return "de";
+        String normalized = language.trim().toLowerCase(Locale.ROOT);
+        return SAMPLE_LANGUAGES.contains(normalized) ? normalized : "de";
+    }
+
+    private static final class DefaultSample {
+        private final int vacancyLength;
+        private final String fingerprint;
+        private final String coverLetter;
+
+        private DefaultSample(int vacancyLength, String fingerprint, String coverLetter) {
+            this.vacancyLength = vacancyLength;
+            this.fingerprint = fingerprint;
+            this.coverLetter = coverLetter;
         }
-        return -1; // Strings are identical
     }
 }
-
@@ -0,0 +1,243 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.model.ReviewEntry;
+import com.bewerbung.repository.SessionArtifactWrite;
+import com.bewerbung.service.SessionStorageService.PhotoData;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Файловый бэкенд: все данные сессии в одном файле data/{sessionId}/session.pack
+ * (или, при session.storage.packed=false, в отдельных файлах data/{sessionId}/ и output/{sessionId}/).
+ * Отдельные файлы старых версий читаются, пока их не заменит запись в pack. Отзывы — в журнале
+ * data/{sessionId}/reviews.jsonl ({@link ReviewLog}), только дозапись.
+ */
+@Component
+public class FileSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSessionStore.class);
+    private static final String DATA_DIR = "data";
+    private static final String OUTPUT_DIR = "output";
+    /** Файловый режим: все данные сессии в одном файле data/{sessionId}/session.pack. */
+    private static final String PACK_FILE = "session.pack";
+    /** Отзывы до журнала reviews.jsonl: читаются, но больше не пишутся. */
+    private static final String LEGACY_REVIEWS_FILE = "reviews.json";
+
+    /** Каталог (data/output) и имя файла каждого текстового артефакта. */
+    private static final Map<SessionArtifactType, String[]> FILES = new EnumMap<>(SessionArtifactType.class);
+
+    static {
+        FILES.put(SessionArtifactType.VACANCY, new String[]{DATA_DIR, "vacancy.txt"});
+        FILES.put(SessionArtifactType.CV, new String[]{DATA_DIR, "cv.txt"});
+        FILES.put(SessionArtifactType.STATE_JSON, new String[]{DATA_DIR, "state.json"});
+        FILES.put(SessionArtifactType.ANSCHREIBEN_TXT, new String[]{DATA_DIR, "anschreiben.txt"});
+        FILES.put(SessionArtifactType.MANIFEST_JSON, new String[]{DATA_DIR, "manifest.json"});
+        FILES.put(SessionArtifactType.ANSCHREIBEN_MD, new String[]{OUTPUT_DIR, "anschreiben.md"});
+        FILES.put(SessionArtifactType.LEBENSLAUF_HTML, new String[]{OUTPUT_DIR, "lebenslauf-filled.html"});
+        FILES.put(SessionArtifactType.NOTES_JSON, new String[]{OUTPUT_DIR, "notes.json"});
+        FILES.put(SessionArtifactType.ANALYSIS_MD, new String[]{OUTPUT_DIR, "analysis.md"});
+    }
+
+    @Value("${session.storage.packed:true}")
+    private boolean packedFiles;
+
+    private final ReviewLog reviewLog;
+
+    public FileSessionStore(ReviewLog reviewLog) {
+        this.reviewLog = reviewLog;
+    }
+
+    @Override
+    public String getName() {
+        return "files";
+    }
+
+    @Override
+    public String readText(String sessionId, SessionArtifactType type) {
+        String[] location = FILES.get(type);
+        byte[] bytes = readEntry(sessionDir(sessionId, location[0]), location[1]);
+        return bytes != null ? TextCompressionCodec.decode(bytes) : null;
+    }
+
+    @Override
+    public PhotoData readPhoto(String sessionId) {
+        Path dir = sessionDir(sessionId, DATA_DIR);
+        byte[] hash = readEntry(dir, "photo.hash");
+        byte[] bytes = hash == null ? readEntry(dir, "photo.bin") : null;
+        if (hash == null && bytes == null) return null;
+        byte[] mime = readEntry(dir, "photo.mime");
+        return new PhotoData(bytes, mime != null ? new String(mime, StandardCharsets.UTF_8).trim() : null,
+                hash != null ? new String(hash, StandardCharsets.UTF_8).trim() : null);
+    }
+
+    /** Изменения одной сессии — одна атомарная перезапись session.pack. */
+    @Override
+    public void write(List<SessionArtifactWrite> writes) {
+        Map<String, List<SessionArtifactWrite>> bySession = new LinkedHashMap<>();
+        for (SessionArtifactWrite write : writes) {
+            bySession.computeIfAbsent(write.getSessionId(), id -> new ArrayList<>()).add(write);
+        }
+        bySession.forEach((sessionId, sessionWrites) -> {
+            Map<Path, byte[]> files = new LinkedHashMap<>();
+            for (SessionArtifactWrite write : sessionWrites) {
+                if (write.getType().isBinary()) {
+                    Path dir = sessionDir(sessionId, DATA_DIR);
+                    files.put(dir.resolve("photo.bin"), null);
+                    files.put(dir.resolve("photo.hash"), utf8(write.getContentHash()));
+                    files.put(dir.resolve("photo.mime"), utf8(write.getMimeType()));
+                } else {
+                    String[] location = FILES.get(write.getType());
+                    files.put(sessionDir(sessionId, location[0]).resolve(location[1]), encoded(write));
+                }
+            }
+            writeFiles(sessionId, files);
+        });
+    }
+
+    @Override
+    public void addReview(String sessionId, ReviewEntry review) {
+        reviewLog.append(reviewLogFile(sessionId), review);
+    }
+
+    @Override
+    public List<ReviewEntry> getReviews(String sessionId) {
+        return new ArrayList<>(readReviews(sessionId));
+    }
+
+    /** Страница из кэшированного журнала, без копирования всех отзывов. */
+    @Override
+    public List<ReviewEntry> getReviews(String sessionId, int offset, int limit) {
+        List<ReviewEntry> all = readReviews(sessionId);
+        int from = Math.min(Math.max(0, offset), all.size());
+        return new ArrayList<>(all.subList(from, Math.min(all.size(), from + Math.max(0, limit))));
+    }
+
+    private List<ReviewEntry> readReviews(String sessionId) {
+        return reviewLog.read(reviewLogFile(sessionId), () -> legacyReviews(sessionId));
+    }
+
+    private static Path reviewLogFile(String sessionId) {
+        return sessionDir(sessionId, DATA_DIR).resolve(ReviewLog.LOG_FILE);
+    }
+
+    private List<ReviewEntry> legacyReviews(String sessionId) {
+        byte[] bytes = readEntry(sessionDir(sessionId, DATA_DIR), LEGACY_REVIEWS_FILE);
+        String json = bytes != null ? TextCompressionCodec.decode(bytes) : null;
+        if (json == null || json.trim().isEmpty()) return new ArrayList<>();
+        try {
+            List<ReviewEntry> list = new Gson().fromJson(json, new TypeToken<List<ReviewEntry>>() {}.getType());
+            return list != null ? list : new ArrayList<>();
+        } catch (Exception e) {
+            logger.warn("Failed to parse reviews.json for session {}", sessionId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /** Каталоги data/{id}/ и output/{id}/; служебные (data/_photos и т.п.) начинаются с "_". */
+    @Override
+    public List<String> listSessionIds() {
+        List<String> ids = new ArrayList<>();
+        for (String base : List.of(DATA_DIR, OUTPUT_DIR)) {
+            Path baseDir = Paths.get(base);
+            if (!Files.isDirectory(baseDir)) continue;
+            try (Stream<Path> dirs = Files.list(baseDir)) {
+                dirs.filter(Files::isDirectory)
+                        .map(dir -> dir.getFileName().toString())
+                        .filter(name -> !name.startsWith("_") && !ids.contains(name))
+                        .forEach(ids::add);
+            } catch (IOException e) {
+                logger.warn("Failed to list session directories in {}", baseDir, e);
+            }
+        }
+        return ids;
+    }
+
+    static Path sessionDir(String sessionId, String baseDir) {
+        String safe = sessionId.replaceAll("[^A-Za-z0-9_-]", "_");
+        return Paths.get(baseDir, safe);
+    }
+
+    /** Пишет файлы сессии (null — удалить): в pack одним commit, иначе по отдельности. */
+    private void writeFiles(String sessionId, Map<Path, byte[]> files) {
+        try {
+            if (packedFiles) {
+                Map<String, byte[]> entries = new LinkedHashMap<>();
+                files.forEach((file, content) -> entries.put(packEntry(file), content));
+                PackedSessionFile.writeEntries(packFile(sessionId), entries);
+                // Данные теперь в pack: отдельные файлы старого формата больше не нужны
+                for (Path file : files.keySet()) {
+                    Files.deleteIfExists(file);
+                }
+                return;
+            }
+            for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+                if (file.getValue() == null) {
+                    Files.deleteIfExists(file.getKey());
+                } else {
+                    Files.createDirectories(file.getKey().getParent());
+                    Files.write(file.getKey(), file.getValue());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write session files {}", files.keySet(), e);
+            throw new RuntimeException("Failed to write session file: " + files.keySet(), e);
+        }
+    }
+
+    /** Содержимое файла сессии из pack или, для старых данных, из отдельного файла. */
+    private byte[] readEntry(Path dir, String fileName) {
+        Path file = dir.resolve(fileName);
+        if (packedFiles) {
+            try {
+                byte[] bytes = PackedSessionFile.readEntry(packFile(dir.getFileName().toString()), packEntry(file));
+                if (bytes != null) return bytes;
+            } catch (IOException e) {
+                logger.warn("Failed to read {} from session pack", fileName, e);
+            }
+        }
+        // Данные, записанные до перехода на session.pack, остаются отдельными файлами
+        if (!Files.exists(file)) return null;
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            logger.warn("Failed to read {} for session", fileName, e);
+            return null;
+        }
+    }
+
+    /** data/{sessionId}/session.pack — общий для data/ и output/ файлов сессии. */
+    private static Path packFile(String sessionId) {
+        return sessionDir(sessionId, DATA_DIR).resolve(PACK_FILE);
+    }
+
+    /** Имя записи в pack: "data/state.json", "output/anschreiben.md". */
+    private static String packEntry(Path file) {
+        return file.getParent().getParent().getFileName() + "/" + file.getFileName();
+    }
+
+    private static byte[] encoded(SessionArtifactWrite write) {
+        if (write.getContent() != null) return write.getContent();
+        return (write.getText() != null ? write.getText() : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,285 @@
+package com.bewerbung.service;
+
+import com.bewerbung.exception.CapacityExceededException;
+import jakarta.annotation.PostConstruct;
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UTF-8 capable font for the PDFBox cover letter, located and parsed once at startup instead of
+ * probing the font paths and parsing the TTF for every PDF.
+ * <p>
+ * A parsed {@link TrueTypeFont} reads its tables lazily and is not thread-safe, so documents lease
+ * one from a small pool ({@code font.pool-size}) and keep it until the document is saved (subset
+ * embedding reads the glyphs on save). Each document embeds only the glyphs it uses.
+ * Glyph advance widths are cached per code point and shared by all documents.
+ */
+@Service
+public class FontRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontRegistry.class);
+    private static final String PROBE_TEXT = "Test äöüß";
+
+    /** System fonts with German characters, in order of preference; the bundled font is the fallback. */
+    private static final List<String> SYSTEM_FONT_PATHS = List.of(
+            // Linux
+            "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf",
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/truetype/arial.ttf",
+            "/usr/share/fonts/TTF/DejaVuSans.ttf",
+            "/usr/share/fonts/TTF/LiberationSans-Regular.ttf",
+            // Oracle Linux / RHEL
+            "/usr/share/fonts/opentype/urw-base35/NimbusSans-Regular.otf",
+            "/usr/share/fonts/opentype/urw-base35/NimbusSansNarrow-Regular.otf",
+            // Windows
+            "C:/Windows/Fonts/arial.ttf"
+    );
+
+    private final ClasspathResourceRegistry resources;
+    private final int poolSize;
+    private final long leaseTimeoutMs;
+
+    private byte[] fontBytes;
+    private boolean openType;
+    private String source;
+    private BlockingQueue<TrueTypeFont> idle;
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    /** Instance used only for width lookups (under its own lock). */
+    private TrueTypeFont metricsFont;
+    private CmapLookup metricsCmap;
+    private float unitsPerEm;
+    /** Advance width in 1/1000 em per code point; NaN marks a code point without a glyph. */
+    private final Map<Integer, Float> advanceWidths = new ConcurrentHashMap<>();
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public FontRegistry(ClasspathResourceRegistry resources, @Value("${font.pool-size:4}") int poolSize,
+                        @Value("${font.lease-timeout-ms:10000}") long leaseTimeoutMs) {
+        this.resources = resources;
+        this.poolSize = Math.max(1, poolSize);
+        this.leaseTimeoutMs = Math.max(1, leaseTimeoutMs);
+    }
+
+    @PostConstruct
+    public void init() {
+        idle = new ArrayBlockingQueue<>(poolSize);
+        for (String path : SYSTEM_FONT_PATHS) {
+            Path file = Paths.get(path);
+            if (!Files.isReadable(file)) {
+                logger.debug("Font file not found or not readable: {}", path);
+                continue;
+            }
+            try {
+                if (use(Files.readAllBytes(file), path.toLowerCase(Locale.ROOT).endsWith(".otf"), path)) return;
+            } catch (IOException e) {
+                logger.warn("Failed to read font file {}: {}", path, e.getMessage());
+            }
+        }
+        Optional<InputStream> bundled = resources.openStream(ClasspathResourceRegistry.LEBENSLAUF_FONT);
+        if (bundled.isPresent()) {
+            try (InputStream in = bundled.get()) {
+                if (use(in.readAllBytes(), false, "classpath:" + ClasspathResourceRegistry.LEBENSLAUF_FONT)) return;
+            } catch (IOException e) {
+                logger.warn("Failed to read bundled font: {}", e.getMessage());
+            }
+        }
+        logger.error("No UTF-8 supporting font found; PDF generation will fail. Checked {} system font paths and classpath:{}",
+                SYSTEM_FONT_PATHS.size(), ClasspathResourceRegistry.LEBENSLAUF_FONT);
+    }
+
+    public boolean isAvailable() {
+        return fontBytes != null;
+    }
+
+    /** Where the font was loaded from (file path or classpath:...), null when none was found. */
+    public String getSource() {
+        return source;
+    }
+
+    /** Fails with a descriptive IOException when no usable font was found at startup. */
+    public void requireAvailable() throws IOException {
+        if (!isAvailable()) {
+            throw new IOException("No UTF-8 supporting font found. Checked " + SYSTEM_FONT_PATHS.size()
+                    + " system font paths: " + String.join(", ", SYSTEM_FONT_PATHS)
+                    + ". Alternatively, place a TTF font file at src/main/resources/" + ClasspathResourceRegistry.LEBENSLAUF_FONT);
+        }
+    }
+
+    /**
+     * Leases a parsed font for one document. Waits up to {@code font.lease-timeout-ms} while all
+     * {@code font.pool-size} instances are in use, then fails with {@link CapacityExceededException} (503).
+     */
+    public Lease lease() throws IOException {
+        requireAvailable();
+        leases.incrementAndGet();
+        TrueTypeFont font = idle.poll();
+        if (font == null) {
+            font = parseIfBelowLimit();
+        }
+        if (font == null) {
+            waits.incrementAndGet();
+            try {
+                font = idle.poll(leaseTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a font", e);
+            }
+            if (font == null) {
+                timeouts.incrementAndGet();
+                throw new CapacityExceededException("All " + poolSize + " PDF fonts busy for " + leaseTimeoutMs + " ms",
+                        Math.max(1, leaseTimeoutMs / 1000));
+            }
+        }
+        return new Lease(font);
+    }
+
+    /**
+     * Width of the text in 1/1000 em units divided by 1000 (as {@code PDFont.getStringWidth / 1000}).
+     * Throws IllegalArgumentException for characters the font has no glyph for, like PDFBox does.
+     */
+    public float stringWidth(String text) {
+        return stringWidth(text, 0, text.length());
+    }
+
+    /** {@link #stringWidth(String)} of {@code text[start, end)} without copying the substring. */
+    public float stringWidth(CharSequence text, int start, int end) {
+        float width = 0;
+        for (int i = start; i < end; ) {
+            int codePoint = Character.codePointAt(text, i);
+            float advance = advanceWidth(codePoint);
+            if (Float.isNaN(advance)) {
+                throw new IllegalArgumentException(String.format("No glyph for U+%04X in font %s", codePoint, source));
+            }
+            width += advance;
+            i += Character.charCount(codePoint);
+        }
+        return width / 1000f;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", source);
+        stats.put("poolSize", poolSize);
+        stats.put("parsed", parsed.get());
+        stats.put("idle", idle != null ? idle.size() : 0);
+        stats.put("leases", leases.get());
+        stats.put("waits", waits.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("cachedWidths", advanceWidths.size());
+        return stats;
+    }
+
+    private boolean use(byte[] bytes, boolean otf, String from) {
+        try {
+            TrueTypeFont font = parse(bytes, otf);
+            if (font instanceof OpenTypeFont openTypeFont && openTypeFont.isPostScript()) {
+                // CFF outlines cannot be embedded as a Type0/CIDFontType2 font
+                logger.warn("Font {} has CFF outlines, trying next", from);
+                font.close();
+                return false;
+            }
+            CmapLookup cmap = font.getUnicodeCmapLookup();
+            if (PROBE_TEXT.codePoints().anyMatch(cp -> cmap.getGlyphId(cp) == 0)) {
+                logger.warn("Font {} doesn't support German characters, trying next", from);
+                font.close();
+                return false;
+            }
+            this.fontBytes = bytes;
+            this.openType = otf;
+            this.source = from;
+            this.metricsFont = font;
+            this.metricsCmap = cmap;
+            this.unitsPerEm = font.getUnitsPerEm();
+            // Latin-1 and Latin Extended-A cover German and most letters in practice
+            for (int cp = 0x20; cp < 0x180; cp++) {
+                advanceWidth(cp);
+            }
+            logger.info("UTF-8 font loaded once from {} ({} bytes, {} glyph widths cached)", from, bytes.length, advanceWidths.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load font from {}: {} (class: {})", from, e.getMessage(), e.getClass().getSimpleName());
+            return false;
+        }
+    }
+
+    private float advanceWidth(int codePoint) {
+        Float cached = advanceWidths.get(codePoint);
+        if (cached != null) return cached;
+        float width;
+        synchronized (metricsFont) {
+            try {
+                int glyphId = metricsCmap.getGlyphId(codePoint);
+                width = glyphId == 0 ? Float.NaN : metricsFont.getAdvanceWidth(glyphId) * 1000f / unitsPerEm;
+            } catch (IOException e) {
+                width = Float.NaN;
+            }
+        }
+        advanceWidths.put(codePoint, width);
+        return width;
+    }
+
+    private synchronized TrueTypeFont parseIfBelowLimit() throws IOException {
+        if (parsed.get() >= poolSize) return null;
+        TrueTypeFont font = parse(fontBytes, openType);
+        parsed.incrementAndGet();
+        return font;
+    }
+
+    private static TrueTypeFont parse(byte[] bytes, boolean otf) throws IOException {
+        RandomAccessReadBuffer input = new RandomAccessReadBuffer(bytes);
+        return otf ? new OTFParser().parse(input) : new TTFParser().parse(input);
+    }
+
+    /** A pooled font for one document; close it after the document has been saved. */
+    public final class Lease implements AutoCloseable {
+        private final TrueTypeFont font;
+        private boolean closed;
+
+        private Lease(TrueTypeFont font) {
+            this.font = font;
+        }
+
+        /** Type0 font for the document, embedding only the glyphs the document uses. */
+        public PDFont load(PDDocument document) throws IOException {
+            return PDType0Font.load(document, font, true);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            idle.offer(font);
+        }
+    }
+}
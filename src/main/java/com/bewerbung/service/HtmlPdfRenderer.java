@@ -0,0 +1,118 @@
+package com.bewerbung.service;
+
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process Lebenslauf renderer: the Mustache HTML is parsed with jsoup and laid out by
+ * openhtmltopdf directly onto PDFBox, without starting Chrome or wkhtmltopdf.
+ * <p>
+ * The engine implements CSS 2.1 plus paged media. Like wkhtmltopdf it knows neither Grid, Flexbox
+ * nor CSS variables, so it expects the same standalone HTML (inlined photo, resolved variables,
+ * table/float layout). The template font is registered from the classpath for every render; the
+ * renderer itself is not thread-safe and is built per document.
+ */
+@Service
+public class HtmlPdfRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HtmlPdfRenderer.class);
+    /** Family name the Lebenslauf template declares in its @font-face rule. */
+    static final String TEMPLATE_FONT_FAMILY = "Liberation Sans";
+    /**
+     * Header overrides on top of the table/float fallback: the engine collapses the table header
+     * strip to its first cell, and the photo's translateY clips the name. The photo box is floated
+     * to where Chrome places it (centred in the 28% column, 10 mm below the strip's middle).
+     */
+    private static final String ENGINE_CSS = ""
+            + ".header-strip { display: block !important; padding: 0 14mm !important; }"
+            + ".header-strip .name-block { display: block !important; float: left !important; width: 72% !important; margin-top: 10mm !important; }"
+            + ".header-strip .photo-wrap { display: block !important; float: right !important; width: 46mm !important; height: 46mm !important;"
+            + " margin: 13.25mm 2.5mm 0 0 !important; transform: none !important; }";
+
+    private final ClasspathResourceRegistry resources;
+
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public HtmlPdfRenderer(ClasspathResourceRegistry resources) {
+        this.resources = resources;
+    }
+
+    /** Renders the standalone HTML to outputPdf, replacing it atomically. */
+    public void render(String html, Path outputPdf) throws IOException {
+        long started = System.nanoTime();
+        Path parent = outputPdf.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, outputPdf.getFileName().toString(), ".tmp");
+        try {
+            // jsoup accepts the template's HTML5 (void tags, entities) that an XML parser would reject
+            Document parsed = Jsoup.parse(html);
+            parsed.head().appendElement("style").text(ENGINE_CSS);
+            org.w3c.dom.Document document = new W3CDom().fromJsoup(parsed);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                PdfRendererBuilder builder = new PdfRendererBuilder();
+                builder.useFastMode();
+                if (resources.exists(ClasspathResourceRegistry.LEBENSLAUF_FONT)) {
+                    builder.useFont(this::openTemplateFont, TEMPLATE_FONT_FAMILY);
+                    // Liberation Sans is metric-compatible with Arial; the built-in Helvetica is WinAnsi only
+                    builder.useFont(this::openTemplateFont, "Arial");
+                }
+                builder.withW3cDocument(document, null);
+                builder.toStream(out);
+                builder.run();
+            } catch (RuntimeException e) {
+                throw new IOException("HTML to PDF rendering failed: " + e.getMessage(), e);
+            }
+            long size = Files.size(temp);
+            if (size == 0) {
+                throw new IOException("HTML to PDF rendering produced an empty file");
+            }
+            Files.move(temp, outputPdf, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            renders.incrementAndGet();
+            totalMillis.addAndGet(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            bytesWritten.addAndGet(size);
+            logger.info("Lebenslauf PDF generated in-process in {} ms ({} bytes): {}", millis, size, outputPdf);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = renders.get();
+        stats.put("renders", count);
+        stats.put("failures", failures.get());
+        stats.put("avgMillis", count > 0 ? totalMillis.get() / count : 0);
+        stats.put("maxMillis", maxMillis.get());
+        stats.put("bytesWritten", bytesWritten.get());
+        return stats;
+    }
+
+    private InputStream openTemplateFont() {
+        return resources.openStream(ClasspathResourceRegistry.LEBENSLAUF_FONT)
+                .orElseThrow(() -> new IllegalStateException("Font resource disappeared: " + ClasspathResourceRegistry.LEBENSLAUF_FONT));
+    }
+}
@@ -9,14 +9,10 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,15 +22,28 @@ import java.util.Map;
 public class LebenslaufTemplateService {
 
     private static final Logger logger = LoggerFactory.getLogger(LebenslaufTemplateService.class);
-    private static final String TEMPLATE_PATH = "lebenslauf.html";
+    private static final String TEMPLATE_PATH = ClasspathResourceRegistry.LEBENSLAUF_TEMPLATE;
     private static final String PHOTO_PATH = "/static/author-photo.jpg";
     
     private final MustacheFactory mustacheFactory;
     private final TempPhotoStorageService tempPhotoStorageService;
+    private final ClasspathResourceRegistry resourceRegistry;
+    private volatile String templateVersion;
+    /** Скомпилированный шаблон; Mustache потокобезопасен, компилируется один раз. */
+    private volatile Mustache compiledTemplate;
 
-    public LebenslaufTemplateService(TempPhotoStorageService tempPhotoStorageService) {
+    public LebenslaufTemplateService(TempPhotoStorageService tempPhotoStorageService,
+                                     ClasspathResourceRegistry resourceRegistry) {
         this.mustacheFactory = new DefaultMustacheFactory();
         this.tempPhotoStorageService = tempPhotoStorageService;
+        this.resourceRegistry = resourceRegistry;
+        resourceRegistry.addReloadListener(path -> {
+            if (TEMPLATE_PATH.equals(path)) {
+                compiledTemplate = null;
+                templateVersion = null;
+                logger.info("Lebenslauf template reloaded");
+            }
+        });
     }
 
     /**
@@ -67,17 +76,12 @@ public class LebenslaufTemplateService {
             throw new IllegalArgumentException("Biography JSON cannot be null");
         }
         try {
-            logger.debug("Loading template from: {}", TEMPLATE_PATH);
-            String template = loadTemplate();
-            logger.debug("Template loaded successfully ({} chars)", template.length());
             logger.debug("Mapping biography data to template data structure");
             Map<String, Object> templateData = mapBiographyToTemplateData(biographyJson, sessionId);
             logger.debug("Template data mapped successfully. Keys: {}", templateData.keySet());
             
             // Рендерим шаблон
-            logger.debug("Compiling Mustache template");
-            Mustache mustache = mustacheFactory.compile(new StringReader(template), "lebenslauf");
-            logger.debug("Template compiled successfully");
+            Mustache mustache = getCompiledTemplate();
             
             logger.debug("Executing template with data");
             StringWriter writer = new StringWriter();
@@ -99,23 +103,37 @@ public class LebenslaufTemplateService {
     }
 
     /**
-     * Загружает шаблон из resources
+     * Версия шаблона (SHA-256 содержимого) — входной параметр манифеста артефактов.
      */
-    private String loadTemplate() throws IOException {
-        ClassPathResource resource = new ClassPathResource(TEMPLATE_PATH);
-        if (!resource.exists()) {
-            throw new RuntimeException("Template file not found: " + TEMPLATE_PATH);
+    public String getTemplateVersion() {
+        String version = templateVersion;
+        if (version == null) {
+            String template = resourceRegistry.getString(TEMPLATE_PATH);
+            if (template == null) {
+                logger.warn("Could not hash Lebenslauf template: {} not found", TEMPLATE_PATH);
+                return "unknown";
+            }
+            version = ArtifactManifestService.sha256(template);
+            templateVersion = version;
         }
-        try (InputStreamReader reader = new InputStreamReader(
-                resource.getInputStream(), StandardCharsets.UTF_8)) {
-            StringBuilder content = new StringBuilder();
-            char[] buffer = new char[8192];
-            int length;
-            while ((length = reader.read(buffer)) != -1) {
-                content.append(buffer, 0, length);
+        return version;
+    }
+
+    /**
+     * Загружает шаблон из реестра ресурсов и компилирует его при первом обращении
+     */
+    private Mustache getCompiledTemplate() {
+        Mustache mustache = compiledTemplate;
+        if (mustache == null) {
+            String template = resourceRegistry.getString(TEMPLATE_PATH);
+            if (template == null) {
+                throw new RuntimeException("Template file not found: " + TEMPLATE_PATH);
             }
-            return content.toString();
+            logger.debug("Compiling Mustache template ({} chars)", template.length());
+            mustache = mustacheFactory.compile(new StringReader(template), "lebenslauf");
+            compiledTemplate = mustache;
         }
+        return mustache;
     }
 
     /**
@@ -398,7 +416,7 @@ public class LebenslaufTemplateService {
         if (sessionId == null || sessionId.isBlank()) {
             return PHOTO_PATH;
         }
-        return tempPhotoStorageService.getCurrentPhotoDataUri(sessionId).orElse(PHOTO_PATH);
+        return tempPhotoStorageService.getCurrentPhotoUrl(sessionId).orElse(PHOTO_PATH);
     }
 
     /**
@@ -0,0 +1,247 @@
+package com.bewerbung.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler in front of {@link OpenAiService}: limits concurrent LLM calls and decides who goes next.
+ * INTERACTIVE calls (user waiting on a response) always go first. BACKGROUND (prefetch, warming) and
+ * BATCH work share the leftover capacity by weighted fair queuing and never take the slots reserved
+ * for interactive calls.
+ * <p>
+ * The priority of a call comes from the calling thread: {@link #callAs(Priority, Supplier)} sets it
+ * (for generation requests {@code LlmPriorityFilter} does so per request), everything else counts
+ * as INTERACTIVE. max-concurrent should be at least generation.admission.max-in-flight, otherwise
+ * admitted requests queue a second time here.
+ */
+@Service
+public class LlmScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmScheduler.class);
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY = new ThreadLocal<>();
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND,
+        BATCH;
+
+        /** Priority by name, case-insensitive; INTERACTIVE for null or unknown names. */
+        public static Priority parse(String name) {
+            if (name != null) {
+                for (Priority priority : values()) {
+                    if (priority.name().equalsIgnoreCase(name.trim())) {
+                        return priority;
+                    }
+                }
+            }
+            return INTERACTIVE;
+        }
+    }
+
+    private final int maxConcurrent;
+    /** Lower-priority calls may run only in this many slots; the rest stay free for interactive calls. */
+    private final int lowPriorityLimit;
+    private final Map<Priority, Double> weights = new EnumMap<>(Priority.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, Deque<Waiter>> queues = new EnumMap<>(Priority.class);
+    /** WFQ virtual time per lower-priority class: served calls divided by the class weight. */
+    private final Map<Priority, Double> virtualTime = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> dispatched = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> totalWaitMillis = new EnumMap<>(Priority.class);
+    private double globalVirtualTime;
+    private int running;
+    private int runningLowPriority;
+
+    public LlmScheduler(@Value("${llm.scheduler.max-concurrent:8}") int maxConcurrent,
+                        @Value("${llm.scheduler.interactive-reserved:1}") int interactiveReserved,
+                        @Value("${llm.scheduler.weight.background:3}") double backgroundWeight,
+                        @Value("${llm.scheduler.weight.batch:1}") double batchWeight) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("llm.scheduler.max-concurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.lowPriorityLimit = Math.max(1, maxConcurrent - Math.max(0, interactiveReserved));
+        weights.put(Priority.BACKGROUND, Math.max(0.01, backgroundWeight));
+        weights.put(Priority.BATCH, Math.max(0.01, batchWeight));
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            virtualTime.put(priority, 0.0);
+            dispatched.put(priority, 0L);
+            totalWaitMillis.put(priority, 0L);
+        }
+        logger.info("LLM scheduler: maxConcurrent={}, lowPriorityLimit={}, weights={}",
+                maxConcurrent, lowPriorityLimit, weights);
+    }
+
+    /**
+     * Runs the work with the given priority for all LLM calls made inside it on this thread.
+     */
+    public <T> T callAs(Priority priority, Supplier<T> work) {
+        Priority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_PRIORITY.remove();
+            } else {
+                CURRENT_PRIORITY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Waits for a slot according to the priority of the current thread and runs the call in it.
+     */
+    public <T> T execute(Supplier<T> call) {
+        Priority priority = CURRENT_PRIORITY.get() != null ? CURRENT_PRIORITY.get() : Priority.INTERACTIVE;
+        acquire(priority);
+        try {
+            return call.get();
+        } finally {
+            release(priority);
+        }
+    }
+
+    private void acquire(Priority priority) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(priority, lock.newCondition());
+            queues.get(priority).addLast(waiter);
+            dispatch();
+            while (!waiter.granted) {
+                try {
+                    waiter.condition.await();
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        releaseLocked(priority);
+                    } else {
+                        queues.get(priority).remove(waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for an LLM slot", e);
+                }
+            }
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            totalWaitMillis.merge(priority, waited, Long::sum);
+            if (waited > 1000) {
+                logger.info("LLM call ({}) waited {} ms for a slot", priority, waited);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Priority priority) {
+        lock.lock();
+        try {
+            releaseLocked(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(Priority priority) {
+        running--;
+        if (priority != Priority.INTERACTIVE) {
+            runningLowPriority--;
+        }
+        dispatch();
+    }
+
+    /** Grants free slots to waiters; caller holds the lock. */
+    private void dispatch() {
+        while (running < maxConcurrent) {
+            Waiter next = pickNext();
+            if (next == null) {
+                return;
+            }
+            queues.get(next.priority).removeFirst();
+            running++;
+            if (next.priority != Priority.INTERACTIVE) {
+                runningLowPriority++;
+            }
+            dispatched.merge(next.priority, 1L, Long::sum);
+            next.granted = true;
+            next.condition.signal();
+        }
+    }
+
+    private Waiter pickNext() {
+        Waiter interactive = queues.get(Priority.INTERACTIVE).peekFirst();
+        if (interactive != null) {
+            return interactive;
+        }
+        if (runningLowPriority >= lowPriorityLimit) {
+            return null;
+        }
+        Priority chosen = null;
+        double chosenFinish = Double.MAX_VALUE;
+        for (Priority priority : weights.keySet()) {
+            if (queues.get(priority).isEmpty()) {
+                continue;
+            }
+            // A class returning from idle starts at the current virtual time, without saved-up credit
+            double start = Math.max(virtualTime.get(priority), globalVirtualTime);
+            double finish = start + 1.0 / weights.get(priority);
+            if (finish < chosenFinish) {
+                chosen = priority;
+                chosenFinish = finish;
+            }
+        }
+        if (chosen == null) {
+            return null;
+        }
+        virtualTime.put(chosen, chosenFinish);
+        globalVirtualTime = chosenFinish - 1.0 / weights.get(chosen);
+        return queues.get(chosen).peekFirst();
+    }
+
+    public Map<String, Object> getMetrics() {
+        lock.lock();
+        try {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("maxConcurrent", maxConcurrent);
+            metrics.put("lowPriorityLimit", lowPriorityLimit);
+            metrics.put("running", running);
+            metrics.put("runningLowPriority", runningLowPriority);
+            for (Priority priority : Priority.values()) {
+                String key = priority.name().toLowerCase();
+                long count = dispatched.get(priority);
+                Map<String, Object> perClass = new LinkedHashMap<>();
+                perClass.put("queued", queues.get(priority).size());
+                perClass.put("dispatched", count);
+                perClass.put("avgWaitMillis", count > 0 ? totalWaitMillis.get(priority) / count : 0L);
+                metrics.put(key, perClass);
+            }
+            return metrics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Priority priority, Condition condition) {
+            this.priority = priority;
+            this.condition = condition;
+        }
+    }
+}
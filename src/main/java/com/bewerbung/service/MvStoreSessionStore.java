@@ -0,0 +1,240 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.model.ReviewEntry;
+import com.bewerbung.repository.SessionArtifactWrite;
+import com.bewerbung.service.SessionStorageService.PhotoData;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import jakarta.annotation.PreDestroy;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Встроенное key-value хранилище (H2 MVStore) в одном файле data/_sessions.mv.db: быстрее файлов
+ * на сессию и не требует сети, как Oracle. Подходит для одного узла.
+ * <p>
+ * Карты: artifacts ("{sessionId}\0{TYPE}" → текст в виде для хранения или "hash\nmime" для фото),
+ * sessions (sessionId → время изменения, мс) и review-entries ("{sessionId}\0{номер}" → JSON одного
+ * отзыва; номер — 19 цифр, чтобы ключи сессии шли по порядку добавления). Отзыв добавляется одной
+ * записью, без перезаписи уже сохранённых; прежняя карта reviews (sessionId → JSON-массив)
+ * переносится в review-entries при открытии файла.
+ * Каждая запись — один commit (copy-on-write, после сбоя файл открывается на последнем commit);
+ * при session.storage.mvstore.sync=true commit ещё и дожидается fsync.
+ * Файл открывается при первом обращении, поэтому при другом бэкенде не создаётся.
+ */
+@Component
+public class MvStoreSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MvStoreSessionStore.class);
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final Path file;
+    private final boolean sync;
+    private final int cacheMb;
+
+    private volatile MVStore store;
+    private MVMap<String, byte[]> artifacts;
+    private MVMap<String, Long> sessions;
+    private MVMap<String, String> reviewEntries;
+
+    public MvStoreSessionStore(@Value("${session.storage.mvstore.file:data/_sessions.mv.db}") String file,
+                               @Value("${session.storage.mvstore.sync:false}") boolean sync,
+                               @Value("${session.storage.mvstore.cache-mb:16}") int cacheMb) {
+        this.file = Paths.get(file);
+        this.sync = sync;
+        this.cacheMb = cacheMb;
+    }
+
+    @Override
+    public String getName() {
+        return "mvstore";
+    }
+
+    @Override
+    public String readText(String sessionId, SessionArtifactType type) {
+        byte[] stored = open().artifacts.get(key(sessionId, type));
+        return stored != null ? TextCompressionCodec.decode(stored) : null;
+    }
+
+    @Override
+    public PhotoData readPhoto(String sessionId) {
+        byte[] ref = open().artifacts.get(key(sessionId, SessionArtifactType.PHOTO));
+        if (ref == null) return null;
+        String[] parts = new String(ref, StandardCharsets.UTF_8).split("\n", 2);
+        return new PhotoData(null, parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null, parts[0]);
+    }
+
+    @Override
+    public void write(List<SessionArtifactWrite> writes) {
+        if (writes.isEmpty()) return;
+        open();
+        long now = System.currentTimeMillis();
+        for (SessionArtifactWrite write : writes) {
+            String key = key(write.getSessionId(), write.getType());
+            byte[] value = write.getType().isBinary() ? photoRef(write) : stored(write);
+            if (value != null) {
+                artifacts.put(key, value);
+            } else {
+                artifacts.remove(key);
+            }
+            sessions.put(write.getSessionId(), now);
+        }
+        commit();
+    }
+
+    @Override
+    public synchronized void addReview(String sessionId, ReviewEntry review) {
+        open();
+        reviewEntries.put(nextReviewKey(sessionId), new Gson().toJson(review));
+        sessions.put(sessionId, System.currentTimeMillis());
+        commit();
+    }
+
+    @Override
+    public List<ReviewEntry> getReviews(String sessionId) {
+        open();
+        Gson gson = new Gson();
+        List<ReviewEntry> list = new ArrayList<>();
+        for (String key : keysWithPrefix(reviewEntries, sessionId + KEY_SEPARATOR)) {
+            String json = reviewEntries.get(key);
+            if (json != null) list.add(gson.fromJson(json, ReviewEntry.class));
+        }
+        return list;
+    }
+
+    @Override
+    public List<String> listSessionIds() {
+        return new ArrayList<>(open().sessions.keySet());
+    }
+
+    /** Сессии без изменений с cutoff: все их артефакты и отзывы удаляются одним commit. */
+    @Override
+    public List<String> deleteSessionsNotModifiedSince(Instant cutoff, int limit) {
+        open();
+        long cutoffMillis = cutoff.toEpochMilli();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Long> session : sessions.entrySet()) {
+            if (expired.size() >= limit) break;
+            if (session.getValue() < cutoffMillis) expired.add(session.getKey());
+        }
+        if (expired.isEmpty()) return expired;
+        for (String sessionId : expired) {
+            String prefix = sessionId + KEY_SEPARATOR;
+            keysWithPrefix(artifacts, prefix).forEach(artifacts::remove);
+            keysWithPrefix(reviewEntries, prefix).forEach(reviewEntries::remove);
+            sessions.remove(sessionId);
+        }
+        commit();
+        return expired;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (store != null && !store.isClosed()) {
+            store.close();
+            logger.info("Session store {} closed", file);
+        }
+    }
+
+    private MvStoreSessionStore open() {
+        if (store == null) {
+            synchronized (this) {
+                if (store == null) {
+                    try {
+                        Files.createDirectories(file.toAbsolutePath().getParent());
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Cannot create directory for session store " + file, e);
+                    }
+                    // autoCommit выключен: данные попадают в файл только целыми записями через commit()
+                    MVStore opened = new MVStore.Builder()
+                            .fileName(file.toString())
+                            .cacheSize(cacheMb)
+                            .autoCommitDisabled()
+                            .open();
+                    artifacts = opened.openMap("artifacts");
+                    sessions = opened.openMap("sessions");
+                    reviewEntries = opened.openMap("review-entries");
+                    migrateReviewArrays(opened);
+                    store = opened;
+                    logger.info("Session store {} opened: {} sessions", file, sessions.size());
+                }
+            }
+        }
+        return this;
+    }
+
+    /** Прежний формат: один JSON-массив на сессию. Переносится поштучно и удаляется одним commit. */
+    private void migrateReviewArrays(MVStore opened) {
+        if (!opened.hasMap("reviews")) return;
+        MVMap<String, String> legacy = opened.openMap("reviews");
+        int moved = 0;
+        for (Map.Entry<String, String> entry : legacy.entrySet()) {
+            List<ReviewEntry> list = entry.getValue() == null || entry.getValue().isBlank() ? null
+                    : new Gson().fromJson(entry.getValue(), new TypeToken<List<ReviewEntry>>() {}.getType());
+            if (list == null) continue;
+            for (ReviewEntry review : list) {
+                reviewEntries.put(nextReviewKey(entry.getKey()), new Gson().toJson(review));
+                moved++;
+            }
+        }
+        opened.removeMap(legacy);
+        opened.commit();
+        logger.info("Session store {}: moved {} reviews to one entry per review", file, moved);
+    }
+
+    /** Следующий номер после последнего отзыва сессии (вызывается под блокировкой addReview или open). */
+    private String nextReviewKey(String sessionId) {
+        String prefix = sessionId + KEY_SEPARATOR;
+        String last = reviewEntries.lowerKey(sessionId + (char) (KEY_SEPARATOR + 1));
+        long next = last != null && last.startsWith(prefix) ? Long.parseLong(last.substring(prefix.length())) + 1 : 0;
+        return prefix + String.format("%019d", next);
+    }
+
+    private static List<String> keysWithPrefix(MVMap<String, ?> map, String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (Iterator<String> it = map.keyIterator(prefix); it.hasNext(); ) {
+            String key = it.next();
+            if (!key.startsWith(prefix)) break;
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private void commit() {
+        store.commit();
+        if (sync) {
+            store.sync();
+        }
+    }
+
+    private static String key(String sessionId, SessionArtifactType type) {
+        return sessionId + KEY_SEPARATOR + type.name();
+    }
+
+    private static byte[] stored(SessionArtifactWrite write) {
+        if (write.getContent() != null) return write.getContent();
+        return write.getText() != null ? write.getText().getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] photoRef(SessionArtifactWrite write) {
+        if (write.getContentHash() == null) return null;
+        String mime = write.getMimeType() != null ? write.getMimeType() : "";
+        return (write.getContentHash() + "\n" + mime).getBytes(StandardCharsets.UTF_8);
+    }
+}
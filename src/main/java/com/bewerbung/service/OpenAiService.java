@@ -25,11 +25,13 @@ public class OpenAiService {
     private final String lightModel;
     private final String heavyModel;
     private final Gson gson;
+    private final LlmScheduler llmScheduler;
 
     public OpenAiService(
                          @Value("${openai.api.url}") String apiUrl,
                          @Value("${openai.model.light}") String lightModel,
-                         @Value("${openai.model.heavy}") String heavyModel) {
+                         @Value("${openai.model.heavy}") String heavyModel,
+                         LlmScheduler llmScheduler) {
                             
         // Try to get from environment variable first, then system property (loaded from .env file)
         String apiKeyValue = System.getenv("GPT_API_KEY");
@@ -66,6 +68,7 @@ public class OpenAiService {
         this.lightModel = lightModel;
         this.heavyModel = heavyModel;
         this.gson = new Gson();
+        this.llmScheduler = llmScheduler;
         this.webClient = WebClient.builder()
                 .baseUrl(this.apiUrl)
                 .build();
@@ -98,7 +101,14 @@ public class OpenAiService {
         return generateTextWithHeavyModel(prompt);
     }
 
+    /**
+     * All calls go through {@link LlmScheduler}, which orders them by the priority of the calling thread.
+     */
     private String generateText(String prompt, String model) {
+        return llmScheduler.execute(() -> callApi(prompt, model));
+    }
+
+    private String callApi(String prompt, String model) {
         try {
             JsonObject requestBody = buildRequestBody(prompt, model);
             String requestBodyJson = Objects.requireNonNull(gson.toJson(requestBody), "requestBodyJson must not be null");
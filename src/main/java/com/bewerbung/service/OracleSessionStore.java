@@ -0,0 +1,125 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.entity.SessionReviewEntity;
+import com.bewerbung.model.ReviewEntry;
+import com.bewerbung.repository.JdbcSessionArtifactWriter;
+import com.bewerbung.repository.JpaSessionArtifactWriter;
+import com.bewerbung.repository.SessionArtifactRepository;
+import com.bewerbung.repository.SessionArtifactWrite;
+import com.bewerbung.repository.SessionArtifactWriter;
+import com.bewerbung.repository.SessionDataRepository;
+import com.bewerbung.repository.SessionReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Бэкенд Oracle (профиль oracle): артефакты в BEWERB_SESSION_ARTIFACT, отзывы в BEWERB_SESSION_REVIEW.
+ * Записи уходят одной транзакцией через JDBC MERGE или, при session.storage.jdbc-writes=false, через JPA.
+ */
+@Component
+@ConditionalOnBean(DataSource.class)
+public class OracleSessionStore implements SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OracleSessionStore.class);
+
+    private final SessionDataRepository sessionDataRepository;
+    private final SessionArtifactRepository sessionArtifactRepository;
+    private final SessionReviewRepository sessionReviewRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private JdbcSessionArtifactWriter jdbcArtifactWriter;
+
+    @Autowired(required = false)
+    private JpaSessionArtifactWriter jpaArtifactWriter;
+
+    @Value("${session.storage.jdbc-writes:true}")
+    private boolean jdbcWrites;
+
+    public OracleSessionStore(SessionDataRepository sessionDataRepository,
+                              SessionArtifactRepository sessionArtifactRepository,
+                              SessionReviewRepository sessionReviewRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.sessionDataRepository = sessionDataRepository;
+        this.sessionArtifactRepository = sessionArtifactRepository;
+        this.sessionReviewRepository = sessionReviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String getName() {
+        return "oracle";
+    }
+
+    @Override
+    public String readText(String sessionId, SessionArtifactType type) {
+        return sessionArtifactRepository.findText(sessionId, type)
+                .map(v -> v.getText() != null ? v.getText() : TextCompressionCodec.decode(v.getContent()))
+                .orElse(null);
+    }
+
+    @Override
+    public SessionStorageService.PhotoData readPhoto(String sessionId) {
+        return sessionArtifactRepository.findBinary(sessionId, SessionArtifactType.PHOTO)
+                .map(v -> new SessionStorageService.PhotoData(v.getContent(), v.getMimeType(), v.getContentHash()))
+                .orElse(null);
+    }
+
+    @Override
+    public void write(List<SessionArtifactWrite> writes) {
+        if (writes.isEmpty()) return;
+        SessionArtifactWriter writer = artifactWriter();
+        transactionTemplate.executeWithoutResult(status -> writer.write(writes, Instant.now()));
+        logger.debug("Wrote {} session artifact(s) via {}", writes.size(), writer.getName());
+    }
+
+    @Override
+    public void addReview(String sessionId, ReviewEntry review) {
+        SessionReviewEntity e = new SessionReviewEntity();
+        e.setSessionId(sessionId);
+        e.setReviewText(review.getReview());
+        e.setSource(review.getSource());
+        e.setCreatedAt(parseInstant(review.getCreatedAt()));
+        sessionReviewRepository.save(e);
+    }
+
+    @Override
+    public List<ReviewEntry> getReviews(String sessionId) {
+        return sessionReviewRepository.findBySessionIdOrderByCreatedAtAsc(sessionId).stream()
+                .map(r -> new ReviewEntry(r.getReviewText(), r.getCreatedAt() != null ? r.getCreatedAt().toString() : "", r.getSource()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<String> listSessionIds() {
+        return sessionDataRepository.findAllSessionIds();
+    }
+
+    /** MERGE через JDBC (по умолчанию) или JPA-репозитории при session.storage.jdbc-writes=false. */
+    private SessionArtifactWriter artifactWriter() {
+        return jdbcWrites && jdbcArtifactWriter != null ? jdbcArtifactWriter : jpaArtifactWriter;
+    }
+
+    /** Время отзыва при переносе из другого бэкенда; null — текущее (@PrePersist). */
+    private static Instant parseInstant(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.bewerbung.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Один файл данных сессии вместо десятка мелких: заголовок-индекс и записи подряд.
+ * <pre>
+ * "BWSP" | version:int | count:int | count x (nameLen:short, name:UTF-8, offset:long, length:int) | data...
+ * </pre>
+ * Запись — copy-on-write: новый файл пишется рядом, сбрасывается на диск (fsync) и атомарно
+ * переименовывается поверх старого, затем сбрасывается каталог, поэтому после сбоя остаётся либо старая,
+ * либо новая версия целиком.
+ * Чтение — через memory-mapped буфер, копируется только нужная запись.
+ * <p>
+ * Файл неизвестного формата (другой VERSION) или с повреждённым индексом при чтении записи
+ * считается пустым, а запись в него отклоняется с IOException: иначе обновление одной записи
+ * заменило бы файл и молча стёрло все остальные данные сессии.
+ */
+final class PackedSessionFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackedSessionFile.class);
+    private static final byte[] MAGIC = "BWSP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    /** Полосы блокировок по хэшу пути: запись одной сессии не блокирует остальные. */
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private PackedSessionFile() {
+    }
+
+    /** Содержимое записи или null, если файла или записи нет. */
+    static byte[] readEntry(Path pack, String name) throws IOException {
+        if (!Files.exists(pack)) return null;
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Map<String, long[]> index;
+            try {
+                index = readIndex(buffer, pack);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable session pack: {}", e.getMessage());
+                return null;
+            }
+            long[] location = index.get(name);
+            if (location == null) return null;
+            byte[] content = new byte[(int) location[1]];
+            buffer.get((int) location[0], content);
+            return content;
+        }
+    }
+
+    /**
+     * Применяет изменения (null — удалить запись) и атомарно заменяет файл. Если существующий файл
+     * не читается, бросает IOException и файл не трогает.
+     */
+    static void writeEntries(Path pack, Map<String, byte[]> updates) throws IOException {
+        ReentrantLock lock = LOCKS[Math.floorMod(pack.toAbsolutePath().hashCode(), LOCKS.length)];
+        lock.lock();
+        try {
+            Map<String, byte[]> entries = readAll(pack);
+            updates.forEach((name, content) -> {
+                if (content == null) {
+                    entries.remove(name);
+                } else {
+                    entries.put(name, content);
+                }
+            });
+            Files.createDirectories(pack.getParent());
+            Path temp = pack.resolveSibling(pack.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer encoded = encode(entries);
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, pack, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, pack, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(pack.getParent());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * fsync каталога: без него переименование может не пережить сбой питания, и после перезапуска
+     * останется старая версия pack. Платформы, где каталог нельзя открыть (Windows), пропускаются.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Directory fsync not supported for {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static Map<String, byte[]> readAll(Path pack) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        if (!Files.exists(pack)) return entries;
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (Map.Entry<String, long[]> e : readIndex(buffer, pack).entrySet()) {
+                byte[] content = new byte[(int) e.getValue()[1]];
+                buffer.get((int) e.getValue()[0], content);
+                entries.put(e.getKey(), content);
+            }
+        }
+        return entries;
+    }
+
+    /** Имя записи -> {offset, length}; IOException для повреждённого или чужого файла. */
+    private static Map<String, long[]> readIndex(ByteBuffer buffer, Path pack) throws IOException {
+        Map<String, long[]> index = new LinkedHashMap<>();
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Session pack " + pack + " has an unknown format");
+            }
+            int version = buffer.getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException("Session pack " + pack + " has unsupported version " + version);
+            }
+            int position = MAGIC.length + 4;
+            int count = buffer.getInt(position);
+            position += 4;
+            for (int i = 0; i < count; i++) {
+                int nameLength = Short.toUnsignedInt(buffer.getShort(position));
+                position += 2;
+                byte[] name = new byte[nameLength];
+                buffer.get(position, name);
+                position += nameLength;
+                long offset = buffer.getLong(position);
+                int length = buffer.getInt(position + 8);
+                position += 12;
+                if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+                    throw new IndexOutOfBoundsException("entry outside of file");
+                }
+                index.put(new String(name, StandardCharsets.UTF_8), new long[]{offset, length});
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Session pack " + pack + " is corrupt: " + e.getMessage(), e);
+        }
+        return index;
+    }
+
+    private static ByteBuffer encode(Map<String, byte[]> entries) {
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>();
+        int headerSize = MAGIC.length + 8;
+        long dataSize = 0;
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            encoded.put(name, e.getValue());
+            headerSize += 2 + name.length + 12;
+            dataSize += e.getValue().length;
+        }
+        if (headerSize + dataSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Session pack too large: " + (headerSize + dataSize) + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (headerSize + dataSize));
+        buffer.put(MAGIC).putInt(VERSION).putInt(encoded.size());
+        long offset = headerSize;
+        for (Map.Entry<byte[], byte[]> e : encoded.entrySet()) {
+            buffer.putShort((short) e.getKey().length).put(e.getKey()).putLong(offset).putInt(e.getValue().length);
+            offset += e.getValue().length;
+        }
+        for (byte[] content : encoded.values()) {
+            buffer.put(content);
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bewerbung.service;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Application bundle: Anschreiben and Lebenslauf in one download. The cover letter renders on the
+ * pdfBatchExecutor while the caller renders the Lebenslauf (Chrome / wkhtmltopdf), so the bundle
+ * takes about as long as the slower of the two. Output is either a ZIP with both PDFs or one merged
+ * PDF; neither is assembled in memory.
+ */
+@Service
+public class PdfBundleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfBundleService.class);
+
+    private final CoverPdfCache coverPdfCache;
+    private final Executor executor;
+
+    private final AtomicLong zips = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+
+    public PdfBundleService(CoverPdfCache coverPdfCache, @Qualifier("pdfBatchExecutor") Executor executor) {
+        this.coverPdfCache = coverPdfCache;
+        this.executor = executor;
+    }
+
+    /** Starts rendering the cover letter in the background. */
+    public CompletableFuture<byte[]> renderCoverLetterAsync(String coverLetterText) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return coverPdfCache.getOrRender(coverLetterText);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /** Result of {@link #renderCoverLetterAsync}; rendering failures come back as IOException. */
+    public byte[] awaitCoverLetter(CompletableFuture<byte[]> rendering) throws IOException {
+        try {
+            return rendering.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IOException("Cover letter rendering failed", e.getCause());
+        }
+    }
+
+    /** ZIP with both PDFs; the Lebenslauf is copied from disk into the entry. */
+    public void writeZip(byte[] coverPdf, String coverName, Path lebenslaufPdf, String lebenslaufName,
+                         OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        // PDF streams are compressed already; a fast level keeps the CPU cost down
+        zip.setLevel(Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(coverName));
+        zip.write(coverPdf);
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(lebenslaufName));
+        Files.copy(lebenslaufPdf, zip);
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+        zips.incrementAndGet();
+    }
+
+    /**
+     * One PDF: cover letter pages followed by the Lebenslauf. Source documents are parsed with a
+     * temp-file-only stream cache and merged in resource-optimizing mode (each source is closed
+     * once its pages are imported), then saved straight into out.
+     */
+    public void writeMerged(byte[] coverPdf, Path lebenslaufPdf, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        try (RandomAccessRead cover = new RandomAccessReadBuffer(coverPdf);
+             RandomAccessRead lebenslauf = new RandomAccessReadBufferedFile(lebenslaufPdf.toFile())) {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            merger.setDocumentMergeMode(PDFMergerUtility.DocumentMergeMode.OPTIMIZE_RESOURCES_MODE);
+            merger.addSource(cover);
+            merger.addSource(lebenslauf);
+            merger.setDestinationStream(new NonClosingOutputStream(out));
+            merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+        }
+        merges.incrementAndGet();
+        logger.info("Application bundle merged into one PDF in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("zips", zips.get());
+        stats.put("merged", merges.get());
+        return stats;
+    }
+}
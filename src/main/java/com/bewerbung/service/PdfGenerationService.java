@@ -11,8 +11,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -35,101 +35,22 @@ public class PdfGenerationService {
     private static final float FONT_SIZE = 11f; // DIN 5008: 11-12pt
     private static final float LINE_HEIGHT = 13.5f; // Single line spacing (1.15 * font size)
     
-    /**
-     * Gets a font that supports UTF-8 characters (German umlauts, Cyrillic, etc.)
-     * Uses only PDType0Font to avoid FontMapper initialization issues on Oracle Linux
-     * @throws IOException if no suitable font can be loaded
-     */
-    private static PDFont getUtf8Font(PDDocument document) throws IOException {
-        // Try to load a TrueType/OpenType font from the system that supports German characters
-        // Common system fonts that support German: Arial, DejaVu Sans, Liberation Sans, Nimbus Sans
-        String[] fontPaths = {
-            // Standard Linux paths (TTF)
-            "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf",
-            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
-            "/usr/share/fonts/truetype/arial.ttf",
-            "/usr/share/fonts/TTF/DejaVuSans.ttf",
-            "/usr/share/fonts/TTF/LiberationSans-Regular.ttf",
-            // Oracle Linux / RHEL paths (OTF)
-            "/usr/share/fonts/opentype/urw-base35/NimbusSans-Regular.otf",
-            "/usr/share/fonts/opentype/urw-base35/NimbusSansNarrow-Regular.otf",
-            // macOS
-            "/System/Library/Fonts/Helvetica.ttc",
-            // Windows
-            "C:/Windows/Fonts/arial.ttf"
-        };
-        
-        for (String fontPath : fontPaths) {
-            try {
-                java.io.File fontFile = new java.io.File(fontPath);
-                if (fontFile.exists() && fontFile.canRead()) {
-                    logger.info("Found font file at: {} (size: {} bytes), attempting to load...", 
-                        fontPath, fontFile.length());
-                    try {
-                        PDFont font = PDType0Font.load(document, fontFile);
-                        // Test if font can handle a test character
-                        try {
-                            font.getStringWidth("Test äöü");
-                            logger.info("UTF-8 font loaded successfully from: {}", fontPath);
-                            return font;
-                        } catch (Exception e) {
-                            logger.warn("Font from {} doesn't support UTF-8 characters, trying next: {}", 
-                                fontPath, e.getMessage());
-                            continue;
-                        }
-                    } catch (Exception loadException) {
-                        logger.warn("Failed to load font from {}: {} (class: {})", 
-                            fontPath, loadException.getMessage(), loadException.getClass().getSimpleName());
-                        // Log full exception for debugging
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Full exception when loading font from " + fontPath, loadException);
-                        }
-                        continue;
-                    }
-                } else {
-                    logger.debug("Font file not found or not readable: {}", fontPath);
-                }
-            } catch (Exception e) {
-                // Try next font
-                logger.warn("Exception while checking font path {}: {}", fontPath, e.getMessage());
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Full exception for font path " + fontPath, e);
-                }
-                continue;
-            }
-        }
-        
-        // Try to load font from resources (if available)
-        try {
-            InputStream fontStream = PdfGenerationService.class.getResourceAsStream("/fonts/LiberationSans-Regular.ttf");
-            if (fontStream != null) {
-                logger.info("Loading UTF-8 font from resources");
-                PDFont font = PDType0Font.load(document, fontStream);
-                try {
-                    font.getStringWidth("Test äöü");
-                    logger.info("UTF-8 font loaded successfully from resources");
-                    return font;
-                } catch (Exception e) {
-                    logger.warn("Font from resources doesn't support UTF-8", e);
-                }
-            }
-        } catch (Exception e) {
-            logger.debug("Could not load font from resources: {}", e.getMessage());
-        }
-        
-        // If no font found, throw descriptive error with details about what was checked
-        StringBuilder errorDetails = new StringBuilder();
-        errorDetails.append("No UTF-8 supporting font found. ");
-        errorDetails.append("Checked ").append(fontPaths.length).append(" system font paths. ");
-        errorDetails.append("Please ensure one of the following fonts is available: ");
-        errorDetails.append("Liberation Sans, DejaVu Sans, Nimbus Sans, or Arial. ");
-        errorDetails.append("Alternatively, place a TTF/OTF font file in src/main/resources/fonts/");
-        String errorMsg = errorDetails.toString();
-        logger.error(errorMsg);
-        logger.error("Font search failed. Check logs above for details about which paths were checked.");
-        throw new IOException(errorMsg);
+    /** Bump when the rendered output changes (layout, margins, font sizes): invalidates cached PDFs. */
+    public static final String LAYOUT_VERSION = "2";
+
+    private final FontRegistry fontRegistry;
+    private final PdfOptimizationService pdfOptimization;
+
+    public PdfGenerationService(FontRegistry fontRegistry, PdfOptimizationService pdfOptimization) {
+        this.fontRegistry = fontRegistry;
+        this.pdfOptimization = pdfOptimization;
     }
-    
+
+    /** Identifies the bytes this service renders for a text: layout version and save options. */
+    public String getOutputVersion() {
+        return LAYOUT_VERSION + ":" + pdfOptimization.fingerprint(PdfOptimizationService.COVER);
+    }
+
     /**
      * Encodes text to handle special characters (fallback encoding)
      * Replaces unsupported characters (German umlauts, Cyrillic, etc.) with ASCII equivalents
@@ -166,12 +87,15 @@ public class PdfGenerationService {
     }
     
     /**
-     * Safely gets string width, handling encoding errors
+     * Safely gets string width, handling encoding errors.
+     * The UTF-8 font uses the widths cached in {@link FontRegistry} instead of the per-document font.
      */
-    private static float getStringWidthSafe(PDFont font, String text, boolean isUtf8Font) throws IOException {
+    private float getStringWidthSafe(PDFont font, String text, boolean isUtf8Font) throws IOException {
         try {
-            String displayText = isUtf8Font ? text : encodeTextForType1Font(text);
-            return font.getStringWidth(displayText) / 1000f;
+            if (isUtf8Font) {
+                return fontRegistry.stringWidth(text);
+            }
+            return font.getStringWidth(encodeTextForType1Font(text)) / 1000f;
         } catch (IllegalArgumentException e) {
             // If UTF-8 font fails, try with encoded text
             String encodedText = encodeTextForType1Font(text);
@@ -185,26 +109,51 @@ public class PdfGenerationService {
         }
     }
 
+    /** {@link #getStringWidthSafe(PDFont, String, boolean)} of {@code text[start, end)}. */
+    private float getStringWidthSafe(PDFont font, String text, int start, int end, boolean isUtf8Font) throws IOException {
+        if (isUtf8Font) {
+            try {
+                return fontRegistry.stringWidth(text, start, end);
+            } catch (IllegalArgumentException e) {
+                // Character without glyph: let the fallbacks below handle it
+            }
+        }
+        return getStringWidthSafe(font, text.substring(start, end), isUtf8Font);
+    }
+
     /**
-     * Generates a PDF document from the cover letter text according to DIN 5008 standard
+     * Generates a PDF document from the cover letter text according to DIN 5008 standard.
+     * The document is saved into memory, so the pooled font is back in {@link FontRegistry} before
+     * the caller starts any (possibly slow) network I/O with the bytes.
      * 
      * @param coverLetterText The cover letter text to convert to PDF
+     * @param date The date printed in the letter; callers that cache the PDF pass the date of their key
      * @return Byte array containing the PDF document
      * @throws IOException if PDF generation fails
      */
-    public byte[] generatePdf(String coverLetterText) throws IOException {
+    public byte[] generatePdf(String coverLetterText, LocalDate date) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64 * 1024);
+        render(coverLetterText, date, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Fails fast (before a streamed response is committed) when the PDF cannot be rendered at all.
+     */
+    public void checkReady() throws IOException {
+        fontRegistry.requireAvailable();
+    }
+
+    private void render(String coverLetterText, LocalDate letterDate, ByteArrayOutputStream out) throws IOException {
         logger.info("Generating PDF from cover letter text (length: {} chars)", coverLetterText.length());
         
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
+        try (FontRegistry.Lease fontLease = fontRegistry.lease();
+             PDDocument document = new PDDocument()) {
+            float pageWidth = PDRectangle.A4.getWidth();
             float contentWidth = pageWidth - MARGIN_LEFT - MARGIN_RIGHT;
             
-            // Get UTF-8 supporting font
-            PDFont font = getUtf8Font(document);
+            // UTF-8 font parsed once at startup; only the used glyphs are embedded
+            PDFont font = fontLease.load(document);
             boolean isUtf8Font = font instanceof PDType0Font;
             
             // If no UTF-8 font found, force encoding for all text
@@ -212,56 +161,29 @@ public class PdfGenerationService {
                 logger.info("No UTF-8 font available, will encode all text for Type1 font compatibility");
             }
             
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                float yPosition = pageHeight - MARGIN_TOP;
-                
+            try (PageFlow flow = new PageFlow(document)) {
                 // Parse the cover letter text to extract address and main content
                 CoverLetterParts parts = parseCoverLetter(coverLetterText);
                 
                 // Draw sender address (if exists) - right aligned at top
                 if (parts.hasSenderAddress()) {
-                    yPosition = drawSenderAddress(contentStream, parts.getSenderAddress(), 
-                        pageWidth - MARGIN_RIGHT, yPosition, font, isUtf8Font);
-                    yPosition -= LINE_HEIGHT * 2; // Space after address
+                    drawSenderAddress(flow, parts.getSenderAddress(), pageWidth - MARGIN_RIGHT, font, isUtf8Font);
+                    flow.advance(LINE_HEIGHT * 2); // Space after address
                 }
                 
                 // Draw date (right aligned)
-                String date = LocalDate.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
-                String dateText = isUtf8Font ? date : encodeTextForType1Font(date);
+                String date = letterDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
                 float dateWidth = getStringWidthSafe(font, date, isUtf8Font) * FONT_SIZE;
-                try {
-                    contentStream.beginText();
-                    contentStream.setFont(font, FONT_SIZE);
-                    contentStream.newLineAtOffset(pageWidth - MARGIN_RIGHT - dateWidth, yPosition);
-                    if (isUtf8Font) {
-                        contentStream.showText(date);
-                    } else {
-                        contentStream.showText(dateText);
-                    }
-                    contentStream.endText();
-                } catch (IllegalArgumentException e) {
-                    // Fallback: if UTF-8 font fails, try with encoded text
-                    logger.warn("Failed to show date with UTF-8 font, using encoded text: {}", e.getMessage());
-                    contentStream.beginText();
-                    contentStream.setFont(font, FONT_SIZE);
-                    contentStream.newLineAtOffset(pageWidth - MARGIN_RIGHT - dateWidth, yPosition);
-                    contentStream.showText(encodeTextForType1Font(date));
-                    contentStream.endText();
-                }
-                yPosition -= LINE_HEIGHT * 2;
+                showLine(flow.stream(), date, pageWidth - MARGIN_RIGHT - dateWidth, flow.y(), FONT_SIZE, font, isUtf8Font);
+                flow.advance(LINE_HEIGHT * 2);
                 
-                // Draw main content with proper line wrapping
-                yPosition = drawWrappedText(contentStream, parts.getMainContent(), 
-                    MARGIN_LEFT, yPosition, contentWidth, FONT_SIZE, LINE_HEIGHT, font, isUtf8Font);
+                // Draw main content with proper line wrapping, continuing on new pages as needed
+                drawWrappedText(flow, parts.getMainContent(), MARGIN_LEFT, contentWidth, FONT_SIZE, LINE_HEIGHT, font, isUtf8Font);
             }
             
-            // Convert to byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
-            byte[] pdfBytes = outputStream.toByteArray();
-            
-            logger.info("PDF generated successfully ({} bytes)", pdfBytes.length);
-            return pdfBytes;
+            // Subset embedding reads the leased font during save
+            document.save(out, pdfOptimization.compressParameters(PdfOptimizationService.COVER));
+            logger.info("PDF generated successfully ({} page(s))", document.getNumberOfPages());
         }
     }
 
@@ -334,124 +256,115 @@ public class PdfGenerationService {
     }
     
     /**
-     * Draws sender address at the specified position (right aligned)
+     * Draws sender address at the current position (right aligned)
      */
-    private float drawSenderAddress(PDPageContentStream contentStream, String address, 
-                                   float xRight, float yStart, PDFont font, boolean isUtf8Font) throws IOException {
-        String[] lines = address.split("\n");
-        float yPosition = yStart;
-        
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
+    private void drawSenderAddress(PageFlow flow, String address, float xRight,
+                                   PDFont font, boolean isUtf8Font) throws IOException {
+        for (String line : address.split("\n")) {
+            String text = line.trim();
+            if (text.isEmpty()) continue;
             
-            String text = isUtf8Font ? line.trim() : encodeTextForType1Font(line.trim());
-            float textWidth = getStringWidthSafe(font, line.trim(), isUtf8Font) * FONT_SIZE;
-            try {
-                contentStream.beginText();
-                contentStream.setFont(font, FONT_SIZE);
-                contentStream.newLineAtOffset(xRight - textWidth, yPosition);
-                if (isUtf8Font) {
-                    contentStream.showText(line.trim());
-                } else {
-                    contentStream.showText(text);
-                }
-                contentStream.endText();
-            } catch (IllegalArgumentException e) {
-                // Fallback: if UTF-8 font fails, try with encoded text
-                logger.warn("Failed to show text with UTF-8 font, using encoded text: {}", e.getMessage());
-                contentStream.beginText();
-                contentStream.setFont(font, FONT_SIZE);
-                contentStream.newLineAtOffset(xRight - textWidth, yPosition);
-                contentStream.showText(encodeTextForType1Font(line.trim()));
-                contentStream.endText();
-            }
-            yPosition -= LINE_HEIGHT;
+            float textWidth = getStringWidthSafe(font, text, isUtf8Font) * FONT_SIZE;
+            showLine(flow.stream(), text, xRight - textWidth, flow.y(), FONT_SIZE, font, isUtf8Font);
+            flow.advance(LINE_HEIGHT);
         }
-        
-        return yPosition;
     }
     
     /**
-     * Draws wrapped text with proper line breaks
+     * Draws wrapped text with proper line breaks; lines that do not fit above the bottom margin
+     * go to a new page.
      */
-    private float drawWrappedText(PDPageContentStream contentStream, String text, 
-                                 float x, float yStart, float maxWidth, 
+    private void drawWrappedText(PageFlow flow, String text, float x, float maxWidth,
                                  float fontSize, float lineHeight, PDFont font, boolean isUtf8Font) throws IOException {
-        String[] lines = text.split("\n");
-        float yPosition = yStart;
-        
-        for (String line : lines) {
+        TextLayout.WidthMeasure measure = (s, start, end) -> getStringWidthSafe(font, s, start, end, isUtf8Font) * fontSize;
+        for (String line : text.split("\n")) {
             if (line.trim().isEmpty()) {
                 // Empty line - just add spacing
-                yPosition -= lineHeight;
+                flow.advance(lineHeight);
                 continue;
             }
             
-            List<String> wrappedLines = wrapText(line, maxWidth, fontSize, font, isUtf8Font);
-            for (String wrappedLine : wrappedLines) {
-                if (yPosition < MARGIN_BOTTOM) {
-                    // Would go below margin, but we continue anyway for simplicity
-                    // In production, you might want to add a new page
-                    break;
-                }
-                
-                String displayText = isUtf8Font ? wrappedLine : encodeTextForType1Font(wrappedLine);
-                try {
-                    contentStream.beginText();
-                    contentStream.setFont(font, fontSize);
-                    contentStream.newLineAtOffset(x, yPosition);
-                    if (isUtf8Font) {
-                        contentStream.showText(wrappedLine);
-                    } else {
-                        contentStream.showText(displayText);
-                    }
-                    contentStream.endText();
-                } catch (IllegalArgumentException e) {
-                    // Fallback: if UTF-8 font fails, try with encoded text
-                    logger.warn("Failed to show text with UTF-8 font, using encoded text: {}", e.getMessage());
-                    contentStream.beginText();
-                    contentStream.setFont(font, fontSize);
-                    contentStream.newLineAtOffset(x, yPosition);
-                    contentStream.showText(encodeTextForType1Font(wrappedLine));
-                    contentStream.endText();
-                }
-                yPosition -= lineHeight;
+            for (String wrappedLine : TextLayout.breakLines(line, maxWidth, measure)) {
+                flow.ensureLine();
+                showLine(flow.stream(), wrappedLine, x, flow.y(), fontSize, font, isUtf8Font);
+                flow.advance(lineHeight);
             }
         }
-        
-        return yPosition;
     }
     
     /**
-     * Wraps text to fit within the specified width
+     * Shows one line of text at (x, y); falls back to ASCII-encoded text if the font rejects a character.
      */
-    private List<String> wrapText(String text, float maxWidth, float fontSize, PDFont font, boolean isUtf8Font) throws IOException {
-        List<String> lines = new ArrayList<>();
-        String[] words = text.split(" ");
-        StringBuilder currentLine = new StringBuilder();
-        
-        for (String word : words) {
-            String testLine = currentLine.length() == 0 ? word : currentLine + " " + word;
-            float width = getStringWidthSafe(font, testLine, isUtf8Font) * fontSize;
-            
-            if (width > maxWidth && currentLine.length() > 0) {
-                lines.add(currentLine.toString());
-                currentLine = new StringBuilder(word);
-            } else {
-                if (currentLine.length() > 0) {
-                    currentLine.append(" ");
-                }
-                currentLine.append(word);
+    private void showLine(PDPageContentStream contentStream, String text, float x, float y,
+                          float fontSize, PDFont font, boolean isUtf8Font) throws IOException {
+        try {
+            contentStream.beginText();
+            contentStream.setFont(font, fontSize);
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(isUtf8Font ? text : encodeTextForType1Font(text));
+            contentStream.endText();
+        } catch (IllegalArgumentException e) {
+            // Fallback: if UTF-8 font fails, try with encoded text
+            logger.warn("Failed to show text with UTF-8 font, using encoded text: {}", e.getMessage());
+            contentStream.endText();
+            contentStream.beginText();
+            contentStream.setFont(font, fontSize);
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(encodeTextForType1Font(text));
+            contentStream.endText();
+        }
+    }
+    
+    /**
+     * A4 pages of the document with the vertical position of the next line. A new page (and content
+     * stream) is started when a line would fall below the bottom margin.
+     */
+    private static final class PageFlow implements Closeable {
+        private final PDDocument document;
+        private PDPageContentStream contentStream;
+        private float y;
+
+        private PageFlow(PDDocument document) throws IOException {
+            this.document = document;
+            newPage();
+        }
+
+        PDPageContentStream stream() {
+            return contentStream;
+        }
+
+        float y() {
+            return y;
+        }
+
+        void advance(float height) {
+            y -= height;
+        }
+
+        /** Makes sure the next line fits on the current page. */
+        void ensureLine() throws IOException {
+            if (y < MARGIN_BOTTOM) {
+                newPage();
             }
         }
-        
-        if (currentLine.length() > 0) {
-            lines.add(currentLine.toString());
+
+        private void newPage() throws IOException {
+            close();
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            y = page.getMediaBox().getHeight() - MARGIN_TOP;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+                contentStream = null;
+            }
         }
-        
-        return lines;
     }
-    
+
     /**
      * Helper class to hold parsed cover letter parts
      */
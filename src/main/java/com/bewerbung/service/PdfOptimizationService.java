@@ -0,0 +1,300 @@
+package com.bewerbung.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Post-processing that makes PDFs smaller for download, with one size/quality profile per output:
+ * <ul>
+ *   <li>{@code lebenslauf} — Chrome / wkhtmltopdf output embeds the uploaded photo at full
+ *   resolution. Images drawn at fewer than their pixels at pdf.optimize.lebenslauf.dpi are
+ *   downsampled and re-encoded (JPEG at the profile quality, lossless when the image has
+ *   transparency); the file is rewritten with compressed object streams and replaced only if it
+ *   got smaller.</li>
+ *   <li>{@code cover} — the PDFBox cover letter has no images and already embeds a font subset;
+ *   the profile decides whether it is saved with compressed object streams.</li>
+ * </ul>
+ * Fonts embedded by Chrome are already subsets and are left as they are.
+ */
+@Service
+public class PdfOptimizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfOptimizationService.class);
+    /** Downsample only when the image has at least this many times the target pixels. */
+    private static final float MIN_DOWNSAMPLE_RATIO = 1.2f;
+
+    public static final String COVER = "cover";
+    public static final String LEBENSLAUF = "lebenslauf";
+
+    private final boolean enabled;
+    private final Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    public PdfOptimizationService(@Value("${pdf.optimize.enabled:true}") boolean enabled,
+                                  @Value("${pdf.optimize.cover.object-streams:true}") boolean coverObjectStreams,
+                                  @Value("${pdf.optimize.lebenslauf.dpi:150}") int lebenslaufDpi,
+                                  @Value("${pdf.optimize.lebenslauf.jpeg-quality:0.8}") float lebenslaufJpegQuality,
+                                  @Value("${pdf.optimize.lebenslauf.object-streams:true}") boolean lebenslaufObjectStreams) {
+        this.enabled = enabled;
+        profiles.put(COVER, new Profile(COVER, 0, 1f, coverObjectStreams));
+        profiles.put(LEBENSLAUF, new Profile(LEBENSLAUF, lebenslaufDpi, lebenslaufJpegQuality, lebenslaufObjectStreams));
+    }
+
+    /** Identifies the output of a profile; part of cache keys and manifests of optimized PDFs. */
+    public String fingerprint(String profileName) {
+        Profile profile = profile(profileName);
+        return enabled
+                ? String.format(Locale.ROOT, "%s-%d-%.2f-%s", profile.name, profile.dpi, profile.jpegQuality, profile.objectStreams)
+                : "off";
+    }
+
+    /** How PDFBox should save documents of the profile. */
+    public CompressParameters compressParameters(String profileName) {
+        return !enabled || profile(profileName).objectStreams
+                ? CompressParameters.DEFAULT_COMPRESSION
+                : CompressParameters.NO_COMPRESSION;
+    }
+
+    /**
+     * Optimizes the PDF file in place (atomically). Failures are logged and leave the file untouched:
+     * an unoptimized PDF is still a valid download.
+     */
+    public void optimizeFile(Path pdf, String profileName) {
+        if (!enabled) return;
+        Profile profile = profile(profileName);
+        long started = System.nanoTime();
+        Path temp = null;
+        try {
+            long before = Files.size(pdf);
+            int downsampled;
+            temp = Files.createTempFile(pdf.toAbsolutePath().getParent(), "optimize_", ".tmp");
+            try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+                downsampled = profile.dpi > 0 ? downsampleImages(document, profile) : 0;
+                document.save(temp.toFile(), compressParameters(profileName));
+            }
+            long after = Files.size(temp);
+            profile.files.incrementAndGet();
+            profile.bytesBefore.addAndGet(before);
+            profile.imagesDownsampled.addAndGet(downsampled);
+            if (after < before) {
+                Files.move(temp, pdf, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                temp = null;
+                profile.bytesAfter.addAndGet(after);
+                logger.info("PDF optimized ({}): {} -> {} bytes, {} image(s) downsampled in {} ms",
+                        profile.name, before, after, downsampled, (System.nanoTime() - started) / 1_000_000);
+            } else {
+                profile.bytesAfter.addAndGet(before);
+                profile.notSmaller.incrementAndGet();
+                logger.debug("PDF optimization ({}) did not reduce {} ({} -> {} bytes), keeping original", profile.name, pdf, before, after);
+            }
+        } catch (IOException | RuntimeException e) {
+            profile.failures.incrementAndGet();
+            logger.warn("PDF optimization ({}) failed for {}: {}", profile.name, pdf, e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.debug("Could not delete {}: {}", temp, e.getMessage());
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        profiles.forEach((name, profile) -> stats.put(name, profile.getStats()));
+        return stats;
+    }
+
+    private Profile profile(String name) {
+        Profile profile = profiles.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown PDF optimization profile: " + name);
+        }
+        return profile;
+    }
+
+    /** Replaces images drawn at more pixels than the profile DPI needs; returns how many were replaced. */
+    private int downsampleImages(PDDocument document, Profile profile) throws IOException {
+        DisplaySizeCollector collector = new DisplaySizeCollector();
+        for (PDPage page : document.getPages()) {
+            collector.processPage(page);
+        }
+        Map<COSBase, PDImageXObject> replacements = new IdentityHashMap<>();
+        Set<COSBase> visitedForms = new HashSet<>();
+        for (PDPage page : document.getPages()) {
+            if (page.getResources() != null) {
+                replaceImages(document, page.getResources(), collector.sizes, replacements, visitedForms, profile);
+            }
+        }
+        return (int) replacements.values().stream().filter(Objects::nonNull).count();
+    }
+
+    private void replaceImages(PDDocument document, PDResources resources, Map<COSBase, float[]> sizes,
+                               Map<COSBase, PDImageXObject> replacements, Set<COSBase> visitedForms,
+                               Profile profile) throws IOException {
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xobject = resources.getXObject(name);
+            if (xobject instanceof PDImageXObject image) {
+                COSBase key = image.getCOSObject();
+                if (!replacements.containsKey(key)) {
+                    replacements.put(key, downsample(document, image, sizes.get(key), profile));
+                }
+                PDImageXObject replacement = replacements.get(key);
+                if (replacement != null) {
+                    resources.put(name, replacement);
+                }
+            } else if (xobject instanceof PDFormXObject form && form.getResources() != null
+                    && visitedForms.add(form.getCOSObject())) {
+                replaceImages(document, form.getResources(), sizes, replacements, visitedForms, profile);
+            }
+        }
+    }
+
+    /** Smaller re-encoded copy of the image, or null when it is not worth replacing. */
+    private static PDImageXObject downsample(PDDocument document, PDImageXObject image, float[] displaySize,
+                                             Profile profile) throws IOException {
+        if (displaySize == null || image.isStencil() || image.getBitsPerComponent() == 1) return null;
+        int targetWidth = Math.max(1, Math.round(displaySize[0] / 72f * profile.dpi));
+        int targetHeight = Math.max(1, Math.round(displaySize[1] / 72f * profile.dpi));
+        float scale = Math.max((float) targetWidth / image.getWidth(), (float) targetHeight / image.getHeight());
+        if (scale * MIN_DOWNSAMPLE_RATIO > 1f) return null;
+
+        BufferedImage source = image.getImage();
+        BufferedImage scaled = scale(source, Math.max(1, Math.round(source.getWidth() * scale)),
+                Math.max(1, Math.round(source.getHeight() * scale)));
+        PDImageXObject replacement = scaled.getColorModel().hasAlpha()
+                ? LosslessFactory.createFromImage(document, scaled)
+                : JPEGFactory.createFromImage(document, scaled, profile.jpegQuality);
+        if (replacement.getCOSObject().getLength() >= image.getCOSObject().getLength()) return null;
+        logger.debug("Image {}x{} -> {}x{} ({} -> {} bytes)", image.getWidth(), image.getHeight(),
+                scaled.getWidth(), scaled.getHeight(), image.getCOSObject().getLength(), replacement.getCOSObject().getLength());
+        return replacement;
+    }
+
+    /** Halves with bilinear filtering while possible (keeps quality for large ratios), then scales to the exact size. */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+                : source.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        int w = current.getWidth();
+        int h = current.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    /** Largest size (in points) each image is drawn at, collected from the page content streams. */
+    private static final class DisplaySizeCollector extends PDFStreamEngine {
+        private final Map<COSBase, float[]> sizes = new IdentityHashMap<>();
+
+        private DisplaySizeCollector() {
+            addOperator(new Concatenate(this));
+            addOperator(new Save(this));
+            addOperator(new Restore(this));
+            addOperator(new DrawObject(this));
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if ("Do".equals(operator.getName()) && !operands.isEmpty() && operands.get(0) instanceof COSName name
+                    && getResources() != null && getResources().getXObject(name) instanceof PDImageXObject image) {
+                Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+                float[] size = sizes.computeIfAbsent(image.getCOSObject(), k -> new float[2]);
+                size[0] = Math.max(size[0], Math.abs(ctm.getScalingFactorX()));
+                size[1] = Math.max(size[1], Math.abs(ctm.getScalingFactorY()));
+                return;
+            }
+            super.processOperator(operator, operands);
+        }
+    }
+
+    private static final class Profile {
+        private final String name;
+        private final int dpi;
+        private final float jpegQuality;
+        private final boolean objectStreams;
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytesBefore = new AtomicLong();
+        private final AtomicLong bytesAfter = new AtomicLong();
+        private final AtomicLong imagesDownsampled = new AtomicLong();
+        private final AtomicLong notSmaller = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        private Profile(String name, int dpi, float jpegQuality, boolean objectStreams) {
+            this.name = name;
+            this.dpi = Math.max(0, dpi);
+            this.jpegQuality = Math.min(1f, Math.max(0.1f, jpegQuality));
+            this.objectStreams = objectStreams;
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long in = bytesBefore.get();
+            long out = bytesAfter.get();
+            stats.put("dpi", dpi);
+            stats.put("jpegQuality", jpegQuality);
+            stats.put("objectStreams", objectStreams);
+            stats.put("files", files.get());
+            stats.put("bytesBefore", in);
+            stats.put("bytesAfter", out);
+            stats.put("savedRatio", in > 0 ? Math.round((in - out) * 1000.0 / in) / 1000.0 : 0.0);
+            stats.put("imagesDownsampled", imagesDownsampled.get());
+            stats.put("notSmaller", notSmaller.get());
+            stats.put("failures", failures.get());
+            return stats;
+        }
+    }
+}
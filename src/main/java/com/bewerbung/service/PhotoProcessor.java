@@ -0,0 +1,220 @@
+package com.bewerbung.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Обработка фото при загрузке: одно декодирование, поворот по EXIF Orientation, обрезка по центру
+ * до квадрата (рамка фото в Lebenslauf — 46×46 мм, object-fit: cover), уменьшение до photo.print.max-px
+ * (46 мм при 300 dpi ≈ 543 px) и JPEG без метаданных (EXIF, GPS, миниатюры не переносятся).
+ * Прозрачность заливается белым. Размеры читаются из заголовка до декодирования: картинка больше
+ * photo.max-pixels отклоняется, чтобы маленький файл (5 МБ JPEG) не развернулся в сотни МБ в куче.
+ */
+@Component
+public class PhotoProcessor {
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final int boxPx;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    public PhotoProcessor(@Value("${photo.print.max-px:543}") int boxPx,
+                          @Value("${photo.print.jpeg-quality:0.85}") float jpegQuality,
+                          @Value("${photo.max-pixels:40000000}") long maxPixels) {
+        this.boxPx = boxPx;
+        this.jpegQuality = Math.min(1f, Math.max(0.1f, jpegQuality));
+        this.maxPixels = maxPixels;
+    }
+
+    public int getBoxPx() {
+        return boxPx;
+    }
+
+    /**
+     * Проверяет размеры по заголовку, не декодируя картинку; IllegalArgumentException, если пикселей
+     * больше photo.max-pixels. Формат, который ImageIO не читает, пропускается (печатной копии не будет).
+     */
+    public void checkDimensions(byte[] upload) {
+        try {
+            read(upload, false);
+        } catch (IOException e) {
+            // Повреждённый заголовок: печатная копия не получится, хранится только оригинал
+        }
+    }
+
+    /** Готовая к печати копия (JPEG) или null, если формат не читается ImageIO или обработка выключена. */
+    public byte[] process(byte[] upload) throws IOException {
+        if (boxPx <= 0) return null;
+        BufferedImage source = read(upload, true);
+        if (source == null) return null;
+        BufferedImage oriented = orient(source, readExifOrientation(upload));
+        int side = Math.min(oriented.getWidth(), oriented.getHeight());
+        BufferedImage square = oriented.getSubimage(
+                (oriented.getWidth() - side) / 2, (oriented.getHeight() - side) / 2, side, side);
+        int target = Math.min(side, boxPx);
+        return writeJpeg(downscale(square, target, target));
+    }
+
+    /** Картинка через ImageReader: сначала размеры из заголовка, потом (decode) сами пиксели. */
+    private BufferedImage read(byte[] upload, boolean decode) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(upload))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (maxPixels > 0 && width * height > maxPixels) {
+                    throw new IllegalArgumentException(String.format(
+                            "Photo is too large: %d x %d px (max %.0f megapixels)", width, height, maxPixels / 1e6));
+                }
+                return decode ? reader.read(0) : null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Уменьшение вдвое за шаг, пока не близко к цели: заметно чище одного шага bicubic. */
+    static BufferedImage downscale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    /** JPEG без метаданных: IIOImage без metadata даёт только заголовок JFIF. */
+    private byte[] writeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) throw new IOException("No JPEG writer available");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /** Поворот/отражение по значению EXIF Orientation (1 — как есть, 2–8 — см. спецификацию EXIF). */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) return image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.translate(w, 0); t.scale(-1, 1); }
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 4 -> { t.translate(0, h); t.scale(1, -1); }
+            case 5 -> { t.rotate(Math.PI / 2); t.scale(1, -1); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 7 -> { t.translate(h, w); t.rotate(Math.PI / 2); t.scale(-1, 1); }
+            case 8 -> { t.translate(0, w); t.rotate(-Math.PI / 2); }
+            default -> { }
+        }
+        BufferedImage result = new BufferedImage(swap ? h : w, swap ? w : h,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.drawImage(image, t, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * EXIF Orientation из сегмента APP1 JPEG-файла; 1, если его нет (PNG, GIF, JPEG без EXIF)
+     * или данные повреждены.
+     */
+    static int readExifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) return 1;
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xFF) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) break; // начало данных изображения
+            int segment = pos + 4;
+            if (marker == 0xE1 && length >= 16 && segment + 6 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                return readTiffOrientation(jpeg, segment + 6, Math.min(jpeg.length, pos + 2 + length));
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean little = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        if (!little && !(data[tiff] == 'M' && data[tiff + 1] == 'M')) return 1;
+        long ifd = tiff + readInt(data, tiff + 4, little);
+        if (ifd < tiff || ifd + 2 > end) return 1;
+        int entries = readShort(data, (int) ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) break;
+            if (readShort(data, entry, little) == EXIF_ORIENTATION_TAG) {
+                int value = readShort(data, entry + 8, little);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean little) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return little ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean little) {
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = data[offset + (little ? 3 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
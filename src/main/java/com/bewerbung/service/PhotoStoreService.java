@@ -0,0 +1,332 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.PhotoBlobEntity;
+import com.bewerbung.repository.PhotoBlobRepository;
+import com.bewerbung.service.SessionStorageService.PhotoData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище фото по хэшу содержимого (SHA-256) загрузки: одинаковые загрузки разных сессий хранятся один раз.
+ * При загрузке {@link PhotoProcessor} готовит копию для печати (повёрнутый по EXIF квадрат photo.print.max-px,
+ * JPEG без метаданных) — её используют все рендеры. Оригинал хранится только по запросу (keepOriginal или
+ * photo.keep-original) либо когда печатную копию сделать не удалось. Вариант, которого нет, заменяется
+ * другим. Содержимое по хэшу не меняется, поэтому байты и data URI кэшируются без инвалидации.
+ * <p>
+ * Режим БД — таблица BEWERB_PHOTO_BLOB; файловый режим — data/_photos/{hash}.pack.
+ */
+@Service
+public class PhotoStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoStoreService.class);
+    private static final Path PHOTO_DIR = Paths.get("data", "_photos");
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    public enum Variant {
+        ORIGINAL, PRINT;
+
+        public static Variant parse(String value) {
+            return value != null && value.equalsIgnoreCase("original") ? ORIGINAL : PRINT;
+        }
+    }
+
+    @Autowired(required = false)
+    private PhotoBlobRepository photoBlobRepository;
+
+    private final PhotoProcessor photoProcessor;
+    private final boolean keepOriginalByDefault;
+    /** Ключ — "{hash}:{variant}". */
+    private final ByteWeightedCache<String, PhotoData> photos;
+    private final ByteWeightedCache<String, String> dataUris;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dataUriEncodings = new AtomicLong();
+    private final AtomicLong originalsDropped = new AtomicLong();
+    private final AtomicLong uploadBytes = new AtomicLong();
+    private final AtomicLong printBytes = new AtomicLong();
+
+    public PhotoStoreService(PhotoProcessor photoProcessor,
+                             @Value("${photo.keep-original:false}") boolean keepOriginalByDefault,
+                             @Value("${photo.cache.max-bytes:33554432}") long cacheMaxBytes) {
+        this.photoProcessor = photoProcessor;
+        this.keepOriginalByDefault = keepOriginalByDefault;
+        this.photos = new ByteWeightedCache<>("photo", cacheMaxBytes / 2, Duration.ofHours(1),
+                photo -> photo.getBytes() != null ? photo.getBytes().length : 0);
+        this.dataUris = new ByteWeightedCache<>("photo-data-uri", cacheMaxBytes / 2, Duration.ofHours(1),
+                uri -> uri.length());
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    /**
+     * Сохраняет фото вместе с оригиналом (перенос и старые данные, где оригинал уже был); возвращает хэш.
+     */
+    public String put(byte[] bytes, String mimeType) {
+        return save(bytes, mimeType, true);
+    }
+
+    /**
+     * Сохраняет загруженное фото, если такого содержимого ещё нет; возвращает его хэш (хэш загруженных байтов).
+     * keepOriginal — хранить и оригинал, а не только печатную копию. Слишком большие по пикселям
+     * картинки отклоняются (IllegalArgumentException) до декодирования.
+     */
+    public String put(byte[] bytes, String mimeType, boolean keepOriginal) {
+        photoProcessor.checkDimensions(bytes);
+        return save(bytes, mimeType, keepOriginal);
+    }
+
+    private String save(byte[] bytes, String mimeType, boolean keepOriginal) {
+        String mime = mimeType != null ? mimeType : "image/jpeg";
+        String hash = ArtifactManifestService.sha256(bytes);
+        if (exists(hash)) {
+            deduplicated.incrementAndGet();
+            // То же фото раньше загрузили без оригинала: дописываем его, раз оригинал теперь нужен
+            if ((keepOriginal || keepOriginalByDefault) && load(hash, Variant.ORIGINAL) == null) {
+                storeOriginal(hash, bytes, mime);
+            }
+            return hash;
+        }
+        PhotoData print = renderPrintVariant(bytes);
+        // Без печатной копии (формат не читается ImageIO) показать можно только оригинал
+        boolean storeOriginal = keepOriginal || keepOriginalByDefault || print == null;
+        store(hash, storeOriginal ? bytes : null, mime, print);
+        stored.incrementAndGet();
+        uploadBytes.addAndGet(bytes.length);
+        printBytes.addAndGet(print != null ? print.getBytes().length : bytes.length);
+        if (!storeOriginal) {
+            originalsDropped.incrementAndGet();
+        }
+        logger.info("Photo stored: upload {} bytes, print copy {} bytes, original {}", bytes.length,
+                print != null ? print.getBytes().length : bytes.length, storeOriginal ? "kept" : "not kept");
+        return hash;
+    }
+
+    private void store(String hash, byte[] original, String mime, PhotoData print) {
+        if (photoBlobRepository != null) {
+            PhotoBlobEntity e = new PhotoBlobEntity();
+            e.setContentHash(hash);
+            if (original != null) {
+                e.setMimeType(mime);
+                e.setContent(original);
+            }
+            if (print != null) {
+                e.setPrintContent(print.getBytes());
+                e.setPrintMimeType(print.getMimeType());
+            }
+            try {
+                photoBlobRepository.save(e);
+            } catch (DataIntegrityViolationException ex) {
+                // Та же фотография сохранена параллельным запросом
+                logger.debug("Photo {} already stored", hash);
+            }
+        } else {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            if (original != null) {
+                entries.put("original", original);
+                entries.put("original.mime", mime.getBytes(StandardCharsets.UTF_8));
+            }
+            if (print != null) {
+                entries.put("print", print.getBytes());
+                entries.put("print.mime", print.getMimeType().getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                PackedSessionFile.writeEntries(packFile(hash), entries);
+            } catch (IOException ex) {
+                logger.error("Failed to store photo {}", hash, ex);
+                throw new RuntimeException("Failed to store photo", ex);
+            }
+        }
+    }
+
+    /** Добавляет оригинал к уже сохранённому фото (печатная копия не меняется). */
+    private void storeOriginal(String hash, byte[] original, String mime) {
+        if (photoBlobRepository != null) {
+            photoBlobRepository.findById(hash).ifPresent(e -> {
+                e.setMimeType(mime);
+                e.setContent(original);
+                photoBlobRepository.save(e);
+            });
+        } else {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            entries.put("original", original);
+            entries.put("original.mime", mime.getBytes(StandardCharsets.UTF_8));
+            try {
+                PackedSessionFile.writeEntries(packFile(hash), entries);
+            } catch (IOException ex) {
+                logger.error("Failed to store original of photo {}", hash, ex);
+                throw new RuntimeException("Failed to store photo", ex);
+            }
+        }
+        // В кэше мог остаться "оригинала нет"
+        photos.invalidate(hash + ":" + Variant.ORIGINAL);
+        dataUris.invalidate(hash + ":" + Variant.ORIGINAL);
+        logger.info("Original kept for already stored photo ({} bytes)", original.length);
+    }
+
+    /**
+     * Оригинал или печатная копия. Если варианта нет (оригинал не хранится; печатной копии нет у форматов,
+     * которые не читает ImageIO), отдаётся другой.
+     */
+    public Optional<PhotoData> get(String hash, Variant variant) {
+        if (!isValidHash(hash)) return Optional.empty();
+        PhotoData photo = photos.get(hash + ":" + variant, k -> load(hash, variant));
+        if (photo == null) {
+            Variant other = variant == Variant.PRINT ? Variant.ORIGINAL : Variant.PRINT;
+            photo = photos.get(hash + ":" + other, k -> load(hash, other));
+        }
+        return Optional.ofNullable(photo);
+    }
+
+    /** data:{mime};base64,... — кодируется один раз на хэш и вариант. */
+    public Optional<String> getDataUri(String hash, Variant variant) {
+        if (!isValidHash(hash)) return Optional.empty();
+        return Optional.ofNullable(dataUris.get(hash + ":" + variant, k -> get(hash, variant)
+                .map(photo -> {
+                    dataUriEncodings.incrementAndGet();
+                    return "data:" + photo.getMimeType() + ";base64," + Base64.getEncoder().encodeToString(photo.getBytes());
+                })
+                .orElse(null)));
+    }
+
+    /** Фото хранятся в Oracle (BEWERB_PHOTO_BLOB), а не в data/_photos/. */
+    public boolean isDatabaseBacked() {
+        return photoBlobRepository != null;
+    }
+
+    /**
+     * Переносит фото из data/_photos/ в текущее хранилище (миграция сессий из файлов в Oracle).
+     * false — фото нет ни там, ни там.
+     */
+    public boolean importFromFiles(String hash) {
+        if (!isValidHash(hash)) return false;
+        if (exists(hash)) return true;
+        try {
+            Path file = packFile(hash);
+            byte[] original = PackedSessionFile.readEntry(file, "original");
+            byte[] print = PackedSessionFile.readEntry(file, "print");
+            if (original == null && print == null) return false;
+            byte[] mime = PackedSessionFile.readEntry(file, "original.mime");
+            byte[] printMime = PackedSessionFile.readEntry(file, "print.mime");
+            // Хэш остаётся прежним (хэш загрузки), даже если оригинал не хранился
+            store(hash, original, mime != null ? new String(mime, StandardCharsets.UTF_8) : "image/jpeg",
+                    print != null ? new PhotoData(print, printMime != null ? new String(printMime, StandardCharsets.UTF_8) : "image/jpeg") : null);
+            stored.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to import photo {} from files", hash, e);
+            return false;
+        }
+    }
+
+    /** Режим БД: удаляет фото без ссылок из сессий, загруженные раньше cutoff. */
+    public int deleteUnreferencedRows(Instant cutoff) {
+        if (photoBlobRepository == null) return 0;
+        int deleted = photoBlobRepository.deleteUnreferenced(cutoff);
+        if (deleted > 0) {
+            photos.invalidateAll();
+            dataUris.invalidateAll();
+        }
+        return deleted;
+    }
+
+    /** Файловый режим: удаляет data/_photos/{hash}.pack, которых нет в referenced и которые старше cutoff. */
+    public int deleteUnreferencedFiles(Set<String> referenced, Instant cutoff, LongConsumer reclaimedBytes) throws IOException {
+        if (photoBlobRepository != null || !Files.isDirectory(PHOTO_DIR)) return 0;
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(PHOTO_DIR)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".pack")) continue;
+                String hash = name.substring(0, name.length() - ".pack".length());
+                if (referenced.contains(hash) || Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) continue;
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                    reclaimedBytes.accept(size);
+                    photos.invalidateIf(key -> key.startsWith(hash));
+                    dataUris.invalidateIf(key -> key.startsWith(hash));
+                }
+            }
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stored", stored.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("dataUriEncodings", dataUriEncodings.get());
+        stats.put("printBoxPx", photoProcessor.getBoxPx());
+        stats.put("originalsDropped", originalsDropped.get());
+        stats.put("uploadBytes", uploadBytes.get());
+        stats.put("printBytes", printBytes.get());
+        stats.put("photoCache", photos.getStats());
+        stats.put("dataUriCache", dataUris.getStats());
+        return stats;
+    }
+
+    private boolean exists(String hash) {
+        if (photoBlobRepository != null) {
+            return photoBlobRepository.existsById(hash);
+        }
+        return Files.exists(packFile(hash));
+    }
+
+    private PhotoData load(String hash, Variant variant) {
+        if (photoBlobRepository != null) {
+            return (variant == Variant.PRINT ? photoBlobRepository.findPrint(hash) : photoBlobRepository.findOriginal(hash))
+                    .filter(v -> v.getContent() != null)
+                    .map(v -> new PhotoData(v.getContent(), v.getMimeType() != null ? v.getMimeType() : "image/jpeg", hash))
+                    .orElse(null);
+        }
+        String entry = variant == Variant.PRINT ? "print" : "original";
+        try {
+            byte[] bytes = PackedSessionFile.readEntry(packFile(hash), entry);
+            if (bytes == null) return null;
+            byte[] mime = PackedSessionFile.readEntry(packFile(hash), entry + ".mime");
+            return new PhotoData(bytes, mime != null ? new String(mime, StandardCharsets.UTF_8) : "image/jpeg", hash);
+        } catch (IOException e) {
+            logger.warn("Failed to read photo {}", hash, e);
+            return null;
+        }
+    }
+
+    /** Копия для печати или null, если формат не читается ImageIO. */
+    private PhotoData renderPrintVariant(byte[] bytes) {
+        try {
+            byte[] jpeg = photoProcessor.process(bytes);
+            return jpeg != null ? new PhotoData(jpeg, "image/jpeg") : null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not create print copy of photo: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Path packFile(String hash) {
+        return PHOTO_DIR.resolve(hash + ".pack");
+    }
+}
@@ -0,0 +1,297 @@
+package com.bewerbung.service;
+
+import com.bewerbung.model.ReviewEntry;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Журнал отзывов файлового режима: data/{sessionId}/reviews.jsonl, один JSON-объект на строку,
+ * только дозапись. Добавление отзыва не читает журнал и не переписывает его, поэтому стоит O(1).
+ * <p>
+ * Все дозаписи делает один поток (group commit): пока идёт fsync одной порции, новые отзывы копятся
+ * в очереди и уходят следующей порцией с одним fsync на файл. {@link #append} возвращается, когда
+ * строка уже на диске; параллельные отзывы одной сессии не теряются. По таймауту отзыв, который ещё
+ * не взят в запись, снимается с очереди, поэтому ошибка означает "не сохранён" и повтор не даёт дубля.
+ * <p>
+ * Чтение кэшируется по файлу; при росте журнала дочитывается только хвост. Строка без завершающего
+ * перевода строки (оборванная сбоем запись) пропускается; следующая дозапись начинается с перевода
+ * строки, чтобы не склеиться с ней.
+ */
+@Component
+public class ReviewLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewLog.class);
+    static final String LOG_FILE = "reviews.jsonl";
+    private static final Gson GSON = new Gson();
+    private static final long APPEND_TIMEOUT_SECONDS = 10;
+
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final ByteWeightedCache<Path, Snapshot> cache;
+    private final int maxBatch;
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong tailReads = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public ReviewLog(@Value("${review.log.max-batch:256}") int maxBatch,
+                     @Value("${review.log.cache.max-bytes:4194304}") long cacheMaxBytes) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.cache = new ByteWeightedCache<>("reviews", cacheMaxBytes, Duration.ofMinutes(30), Snapshot::weight);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::writeLoop, "review-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * Дописывает отзыв в журнал и ждёт, пока порция с ним будет сброшена на диск. Если за таймаут
+     * запись не началась, отзыв снимается с очереди; если уже началась — дожидаемся её результата.
+     */
+    public void append(Path file, ReviewEntry entry) {
+        if (!running) {
+            throw new IllegalStateException("Review log is shut down");
+        }
+        PendingAppend pending = new PendingAppend(file, GSON.toJson(entry) + "\n");
+        queue.add(pending);
+        try {
+            pending.done.get(APPEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            appends.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving review", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to save review: " + file, e.getCause());
+        } catch (TimeoutException e) {
+            if (pending.claimed.compareAndSet(false, true)) {
+                queue.remove(pending);
+                throw new RuntimeException("Timed out saving review, not saved: " + file, e);
+            }
+            awaitStartedWrite(pending, file);
+        }
+    }
+
+    /** Запись уже идёт (fsync медленный): отменить её нельзя, ждём результат без таймаута. */
+    private void awaitStartedWrite(PendingAppend pending, Path file) {
+        try {
+            pending.done.get();
+            appends.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving review", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to save review: " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Все отзывы журнала по порядку. legacy — отзывы старого формата (reviews.json), читаются один
+     * раз при первой загрузке и стоят перед записями журнала.
+     */
+    public List<ReviewEntry> read(Path file, Supplier<List<ReviewEntry>> legacy) {
+        Snapshot snapshot = cache.get(file, k -> load(file, new Snapshot(legacy.get(), 0, 0)));
+        long size = sizeOf(file);
+        if (size != snapshot.scannedSize) {
+            Snapshot updated = size > snapshot.length ? load(file, snapshot) : load(file, new Snapshot(legacy.get(), 0, 0));
+            cache.invalidate(file);
+            snapshot = cache.get(file, k -> updated);
+        }
+        return snapshot.entries;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batchCount = batches.get();
+        stats.put("appends", appends.get());
+        stats.put("batches", batchCount);
+        stats.put("fsyncs", fsyncs.get());
+        stats.put("avgBatchSize", batchCount > 0 ? Math.round(appends.get() * 100.0 / batchCount) / 100.0 : 0.0);
+        stats.put("queued", queue.size());
+        stats.put("tailReads", tailReads.get());
+        stats.put("cache", cache.getStats());
+        return stats;
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (!running) break;
+                continue;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+        // Отзывы, пришедшие после остановки, не теряются молча: вызывающий получит ошибку
+        PendingAppend left;
+        while ((left = queue.poll()) != null) {
+            left.done.completeExceptionally(new IllegalStateException("Review log is shut down"));
+        }
+    }
+
+    /** Строки одного файла — одна запись и один fsync. */
+    private void writeBatch(List<PendingAppend> batch) {
+        // Снятые по таймауту не пишутся; остальные больше снять нельзя
+        batch.removeIf(pending -> !pending.claimed.compareAndSet(false, true));
+        if (batch.isEmpty()) return;
+        batches.incrementAndGet();
+        Map<Path, List<PendingAppend>> byFile = new LinkedHashMap<>();
+        for (PendingAppend pending : batch) {
+            byFile.computeIfAbsent(pending.file, f -> new ArrayList<>()).add(pending);
+        }
+        byFile.forEach((file, appendsToFile) -> {
+            StringBuilder lines = new StringBuilder();
+            appendsToFile.forEach(pending -> lines.append(pending.line));
+            try {
+                Files.createDirectories(file.getParent());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    long position = channel.size();
+                    if (!endsWithNewline(channel, position)) {
+                        // Оборванная сбоем строка: закрываем её, иначе первый отзыв порции склеится с ней
+                        lines.insert(0, '\n');
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    channel.force(false);
+                }
+                fsyncs.incrementAndGet();
+                appendsToFile.forEach(pending -> pending.done.complete(null));
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to append {} review(s) to {}", appendsToFile.size(), file, e);
+                appendsToFile.forEach(pending -> pending.done.completeExceptionally(e));
+            }
+        });
+    }
+
+    /** Пустой файл или последний байт — перевод строки. Пишет только поток журнала, так что size() — конец. */
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        if (size == 0) return true;
+        ByteBuffer last = ByteBuffer.allocate(1);
+        return channel.read(last, size - 1) == 1 && last.get(0) == '\n';
+    }
+
+    /** Дочитывает журнал с позиции base.length; только строки, завершённые переводом строки. */
+    private Snapshot load(Path file, Snapshot base) {
+        long size = sizeOf(file);
+        if (size <= base.length) return new Snapshot(base.entries, base.length, size);
+        byte[] tail = new byte[(int) (size - base.length)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(tail);
+            channel.position(base.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read review log {}", file, e);
+            return base;
+        }
+        if (base.length > 0) tailReads.incrementAndGet();
+        List<ReviewEntry> entries = new ArrayList<>(base.entries);
+        int lineStart = 0;
+        for (int i = 0; i < tail.length; i++) {
+            if (tail[i] != '\n') continue;
+            String line = new String(tail, lineStart, i - lineStart, StandardCharsets.UTF_8).trim();
+            lineStart = i + 1;
+            if (line.isEmpty()) continue;
+            try {
+                ReviewEntry entry = GSON.fromJson(line, ReviewEntry.class);
+                if (entry != null) entries.add(entry);
+            } catch (JsonParseException e) {
+                logger.warn("Skipping malformed line in review log {}", file);
+            }
+        }
+        return new Snapshot(entries, base.length + lineStart, size);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Прочитанные отзывы: length — байты полных строк журнала, scannedSize — размер файла при чтении
+     * (больше length, если в конце оборванная строка).
+     */
+    private static final class Snapshot {
+        private final List<ReviewEntry> entries;
+        private final long length;
+        private final long scannedSize;
+
+        private Snapshot(List<ReviewEntry> entries, long length, long scannedSize) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.length = length;
+            this.scannedSize = scannedSize;
+        }
+
+        private long weight() {
+            long weight = 0;
+            for (ReviewEntry entry : entries) {
+                weight += 64 + 2L * (entry.getReview() != null ? entry.getReview().length() : 0);
+            }
+            return weight;
+        }
+    }
+
+    private static final class PendingAppend {
+        private final Path file;
+        private final String line;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        /** Кто первым взял отзыв: поток записи (пишет) или вызывающий по таймауту (отменяет). */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PendingAppend(Path file, String line) {
+            this.file = file;
+            this.line = line;
+        }
+    }
+}
@@ -6,10 +6,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.List;
 
 @Service
 public class ReviewStorageService {
     private static final Logger logger = LoggerFactory.getLogger(ReviewStorageService.class);
+    private static final int MAX_PAGE_SIZE = 200;
 
     private final EmailService emailService;
     private final SessionStorageService sessionStorage;
@@ -37,5 +39,13 @@ public class ReviewStorageService {
         emailService.sendReviewEmail(trimmedReview, createdAt, userInfo, source);
         return entry;
     }
+
+    /** Отзывы сессии постранично; limit ограничен MAX_PAGE_SIZE. */
+    public List<ReviewEntry> getReviews(String sessionId, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("offset must be >= 0 and limit > 0");
+        }
+        return sessionStorage.getReviews(sessionId, offset, Math.min(limit, MAX_PAGE_SIZE));
+    }
 }
 
@@ -0,0 +1,334 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.repository.SessionArtifactRepository;
+import com.bewerbung.repository.SessionDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Удаляет устаревшие сессии по расписанию: каталоги data/{sessionId}/ и output/{sessionId}/,
+ * отрендеренные PDF старше retention.pdf-ttl-days и, в режиме БД, строки BEWERB_SESSION_DATA /
+ * BEWERB_SESSION_ARTIFACT, сессии встроенного хранилища MVStore, а также фото из {@link PhotoStoreService},
+ * на которые больше не ссылается ни одна сессия. Работает порциями (retention.batch-size) с паузой между ними и
+ * ограничением числа порций за один проход, чтобы не нагружать диск и БД.
+ */
+@Service
+public class SessionRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRetentionService.class);
+    private static final String DATA_DIR = "data";
+    private static final String OUTPUT_DIR = "output";
+    /** Фото моложе этого не удаляются: ссылка сессии пишется уже после сохранения фото. */
+    private static final Duration PHOTO_GRACE = Duration.ofDays(1);
+
+    @Autowired(required = false)
+    private SessionDataRepository sessionDataRepository;
+
+    @Autowired(required = false)
+    private SessionArtifactRepository sessionArtifactRepository;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    private final SessionStorageService sessionStorage;
+    private final PhotoStoreService photoStore;
+    private final Environment environment;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.session-ttl-days:30}")
+    private long sessionTtlDays;
+
+    @Value("${retention.pdf-ttl-days:7}")
+    private long pdfTtlDays;
+
+    @Value("${retention.batch-size:100}")
+    private int batchSize;
+
+    @Value("${retention.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${retention.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+    private final AtomicLong totalSessionsDeleted = new AtomicLong();
+    private final AtomicLong totalBytesReclaimed = new AtomicLong();
+
+    public SessionRetentionService(SessionStorageService sessionStorage, PhotoStoreService photoStore,
+                                   Environment environment) {
+        this.sessionStorage = sessionStorage;
+        this.photoStore = photoStore;
+        this.environment = environment;
+    }
+
+    @Scheduled(initialDelayString = "${retention.initial-delay-ms:300000}", fixedDelayString = "${retention.interval-ms:3600000}")
+    public void sweep() {
+        if (!enabled) return;
+        long started = System.nanoTime();
+        RunStats stats = new RunStats();
+        Instant now = Instant.now();
+        try {
+            sweepSessionDirectories(now.minus(Duration.ofDays(sessionTtlDays)), stats);
+            sweepPdfs(now.minus(Duration.ofDays(pdfTtlDays)), stats);
+            if (sessionStorage.isDatabaseStorage() && sessionDataRepository != null && sessionArtifactRepository != null) {
+                sweepDatabaseSessions(now.minus(Duration.ofDays(sessionTtlDays)), stats);
+                sweepDatabaseArtifacts(now, stats);
+            }
+            sweepStoreSessions(now.minus(Duration.ofDays(sessionTtlDays)), stats);
+            sweepPhotos(now.minus(PHOTO_GRACE), stats);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Session retention sweep interrupted");
+        } catch (Exception e) {
+            logger.error("Session retention sweep failed: {}", e.getMessage(), e);
+        }
+        long durationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        totalSessionsDeleted.addAndGet(stats.sessionDirs + stats.dbSessions + stats.storeSessions);
+        totalBytesReclaimed.addAndGet(stats.bytes);
+        lastRun = stats.toMap(now, durationMs);
+        if (stats.sessionDirs + stats.dbSessions + stats.storeSessions + stats.pdfs + stats.dbArtifacts + stats.photos > 0) {
+            logger.info("Session retention: removed {} session dirs, {} PDFs, {} DB sessions, {} DB artifacts, {} store sessions, {} photos; reclaimed {} bytes in {} ms",
+                    stats.sessionDirs, stats.pdfs, stats.dbSessions, stats.dbArtifacts, stats.storeSessions, stats.photos, stats.bytes, durationMs);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("sessionTtlDays", sessionTtlDays);
+        metrics.put("pdfTtlDays", pdfTtlDays);
+        metrics.put("totalSessionsDeleted", totalSessionsDeleted.get());
+        metrics.put("totalBytesReclaimed", totalBytesReclaimed.get());
+        metrics.put("lastRun", lastRun);
+        return metrics;
+    }
+
+    /** data/{id}/ и output/{id}/ без изменений дольше срока хранения сессии. */
+    private void sweepSessionDirectories(Instant cutoff, RunStats stats) throws IOException, InterruptedException {
+        Map<String, Instant> lastModified = new LinkedHashMap<>();
+        for (String base : List.of(DATA_DIR, OUTPUT_DIR)) {
+            for (Path dir : sessionDirectories(Paths.get(base))) {
+                lastModified.merge(dir.getFileName().toString(), newestModification(dir), (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+        List<String> expired = lastModified.entrySet().stream()
+                .filter(e -> e.getValue().isBefore(cutoff))
+                .map(Map.Entry::getKey)
+                .toList();
+        int batches = 0;
+        for (int from = 0; from < expired.size() && batches < maxBatchesPerRun; from += batchSize, batches++) {
+            if (batches > 0) Thread.sleep(batchPauseMs);
+            for (String sessionDir : expired.subList(from, Math.min(from + batchSize, expired.size()))) {
+                stats.bytes += deleteTree(Paths.get(DATA_DIR, sessionDir)) + deleteTree(Paths.get(OUTPUT_DIR, sessionDir));
+                sessionStorage.evictFromCache(sessionDir);
+                stats.sessionDirs++;
+            }
+        }
+    }
+
+    /** Отрендеренные PDF (и старые .sha256) живых сессий: пересоздаются по запросу. */
+    private void sweepPdfs(Instant cutoff, RunStats stats) throws IOException, InterruptedException {
+        int deletedInBatch = 0;
+        int batches = 0;
+        for (Path dir : sessionDirectories(Paths.get(OUTPUT_DIR))) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                    if (!(name.endsWith(".pdf") || name.endsWith(".sha256")) || !Files.isRegularFile(file)) continue;
+                    if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) continue;
+                    long size = Files.size(file);
+                    if (Files.deleteIfExists(file)) {
+                        stats.bytes += size;
+                        stats.pdfs++;
+                    }
+                    if (++deletedInBatch >= batchSize) {
+                        if (++batches >= maxBatchesPerRun) return;
+                        deletedInBatch = 0;
+                        Thread.sleep(batchPauseMs);
+                    }
+                }
+            }
+        }
+    }
+
+    private void sweepDatabaseSessions(Instant cutoff, RunStats stats) throws InterruptedException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<String> sessionIds = sessionDataRepository.findExpiredSessionIds(cutoff, PageRequest.of(0, batchSize));
+            if (sessionIds.isEmpty()) return;
+            tx.executeWithoutResult(status -> {
+                stats.bytes += sessionArtifactRepository.sumContentLengthBySessionIds(sessionIds).longValue();
+                stats.dbArtifacts += sessionArtifactRepository.deleteBySessionIds(sessionIds);
+                stats.dbSessions += sessionDataRepository.deleteBySessionIds(sessionIds);
+            });
+            sessionIds.forEach(sessionStorage::evictFromCache);
+            if (sessionIds.size() < batchSize) return;
+            Thread.sleep(batchPauseMs);
+        }
+    }
+
+    /** Бэкенды, которые удаляют устаревшие сессии сами (встроенное key-value хранилище). */
+    private void sweepStoreSessions(Instant cutoff, RunStats stats) throws InterruptedException {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<String> sessionIds = sessionStorage.deleteSessionsNotModifiedSince(cutoff, batchSize);
+            stats.storeSessions += sessionIds.size();
+            if (sessionIds.size() < batchSize) return;
+            Thread.sleep(batchPauseMs);
+        }
+    }
+
+    /**
+     * Отдельные сроки для типов артефактов (retention.ttl-days.&lt;type&gt;, например lebenslauf_html).
+     * У затронутых сессий удаляется и манифест, чтобы производные документы пересобрались.
+     */
+    private void sweepDatabaseArtifacts(Instant now, RunStats stats) throws InterruptedException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int batches = 0;
+        for (Map.Entry<SessionArtifactType, Long> ttl : artifactTtls().entrySet()) {
+            Instant cutoff = now.minus(Duration.ofDays(ttl.getValue()));
+            while (batches < maxBatchesPerRun) {
+                List<Long> ids = sessionArtifactRepository.findExpiredIds(ttl.getKey(), cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) break;
+                batches++;
+                List<String> sessionIds = new ArrayList<>();
+                tx.executeWithoutResult(status -> {
+                    sessionIds.addAll(sessionArtifactRepository.findSessionIdsByIds(ids));
+                    stats.bytes += sessionArtifactRepository.sumContentLengthByIds(ids).longValue();
+                    stats.dbArtifacts += sessionArtifactRepository.deleteByIds(ids);
+                    if (ttl.getKey() != SessionArtifactType.MANIFEST_JSON) {
+                        sessionArtifactRepository.deleteTypeForSessions(sessionIds, SessionArtifactType.MANIFEST_JSON);
+                    }
+                });
+                sessionIds.forEach(sessionStorage::evictFromCache);
+                if (ids.size() < batchSize) break;
+                Thread.sleep(batchPauseMs);
+            }
+        }
+    }
+
+    /** Фото без ссылок из сессий (после удаления сессий или замены фото). */
+    private void sweepPhotos(Instant cutoff, RunStats stats) throws IOException {
+        if (sessionStorage.isDatabaseStorage()) {
+            if (transactionManager == null) return;
+            Integer deleted = new TransactionTemplate(transactionManager).execute(status -> photoStore.deleteUnreferencedRows(cutoff));
+            stats.photos += deleted != null ? deleted : 0;
+            return;
+        }
+        if (photoStore.isDatabaseBacked()) {
+            // Фото в Oracle, а сессии в другом бэкенде: ссылки не видны запросу к БД, не удаляем ничего
+            return;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (String sessionId : sessionStorage.listSessionIds()) {
+            sessionStorage.getPhotoHash(sessionId).ifPresent(referenced::add);
+        }
+        stats.photos += photoStore.deleteUnreferencedFiles(referenced, cutoff, bytes -> stats.bytes += bytes);
+    }
+
+    /** Только типы с заданным сроком короче срока хранения сессии. */
+    private Map<SessionArtifactType, Long> artifactTtls() {
+        Map<SessionArtifactType, Long> ttls = new EnumMap<>(SessionArtifactType.class);
+        for (SessionArtifactType type : SessionArtifactType.values()) {
+            Long days = environment.getProperty("retention.ttl-days." + type.name().toLowerCase(Locale.ROOT), Long.class);
+            if (days != null && days < sessionTtlDays) {
+                ttls.put(type, days);
+            }
+        }
+        return ttls;
+    }
+
+    /** Подкаталоги сессий; служебные каталоги (output/_default и т.п.) начинаются с "_". */
+    private List<Path> sessionDirectories(Path base) throws IOException {
+        if (!Files.isDirectory(base)) return List.of();
+        try (Stream<Path> dirs = Files.list(base)) {
+            return dirs.filter(Files::isDirectory)
+                    .filter(dir -> !dir.getFileName().toString().startsWith("_"))
+                    .toList();
+        }
+    }
+
+    private Instant newestModification(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.map(this::modificationTime).max(Comparator.naturalOrder()).orElse(Instant.EPOCH);
+        }
+    }
+
+    private Instant modificationTime(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime().toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    /** Удаляет каталог целиком; возвращает освобождённые байты. */
+    private long deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return 0;
+        long bytes = 0;
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                bytes += Files.size(path);
+            }
+            Files.deleteIfExists(path);
+        }
+        return bytes;
+    }
+
+    private static final class RunStats {
+        private long sessionDirs;
+        private long pdfs;
+        private long dbSessions;
+        private long dbArtifacts;
+        private long storeSessions;
+        private long photos;
+        private long bytes;
+
+        private Map<String, Object> toMap(Instant startedAt, long durationMs) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", startedAt.toString());
+            map.put("durationMs", durationMs);
+            map.put("sessionDirsDeleted", sessionDirs);
+            map.put("pdfsDeleted", pdfs);
+            map.put("dbSessionsDeleted", dbSessions);
+            map.put("dbArtifactsDeleted", dbArtifacts);
+            map.put("storeSessionsDeleted", storeSessions);
+            map.put("photosDeleted", photos);
+            map.put("bytesReclaimed", bytes);
+            return map;
+        }
+    }
+}
@@ -1,141 +1,243 @@
 package com.bewerbung.service;
 
-import com.bewerbung.entity.SessionDataEntity;
-import com.bewerbung.entity.SessionReviewEntity;
+import com.bewerbung.entity.SessionArtifactType;
 import com.bewerbung.model.ReviewEntry;
-import com.bewerbung.repository.SessionDataRepository;
-import com.bewerbung.repository.SessionReviewRepository;
+import com.bewerbung.repository.SessionArtifactWrite;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
- * Единое хранилище данных по сессиям: при наличии Oracle — в БД, иначе — в файлах data/{sessionId}/ и output/{sessionId}/.
+ * Единое хранилище данных по сессиям поверх выбранного бэкенда {@link SessionStore}
+ * (session.storage.backend): файлы data/{sessionId}/session.pack, Oracle или встроенное
+ * key-value хранилище MVStore. Здесь — L1-кэш чтений, сжатие текстов, unit of work для пакетной
+ * записи и фото по хэшу; бэкенд только читает и пишет артефакты.
  */
 @Service
 public class SessionStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(SessionStorageService.class);
-    private static final String DATA_DIR = "data";
-    private static final String OUTPUT_DIR = "output";
 
-    @Autowired(required = false)
-    private SessionDataRepository sessionDataRepository;
+    /** Прочитанные и несохранённые артефакты сессий текущего запроса. */
+    private static final ThreadLocal<Map<String, Map<SessionArtifactType, PendingArtifact>>> UNIT_OF_WORK = new ThreadLocal<>();
+
+    /** L1-кэш чтений: ключ — "{sessionId}:{type}", сбрасывается при записи. */
+    private final ByteWeightedCache<String, Object> cache;
+
+    /** Сжатие текстов перед записью в бэкенд; несжатые (старые) данные читаются как есть. */
+    private final TextCompressionCodec codec;
+
+    private final PhotoStoreService photoStore;
+    private final List<SessionStore> stores;
+    private final String backend;
+
+    /** Бэкенд, выбранный при старте. */
+    private SessionStore store;
+
+    public SessionStorageService(PhotoStoreService photoStore, List<SessionStore> stores,
+                                 @Value("${session.storage.backend:auto}") String backend,
+                                 @Value("${session.cache.max-bytes:67108864}") long cacheMaxBytes,
+                                 @Value("${session.cache.ttl-minutes:30}") long cacheTtlMinutes,
+                                 @Value("${session.compression.min-bytes:1024}") int compressionMinBytes,
+                                 @Value("${session.compression.level:6}") int compressionLevel) {
+        this.cache = new ByteWeightedCache<>("session", cacheMaxBytes, Duration.ofMinutes(cacheTtlMinutes),
+                SessionStorageService::weigh);
+        this.codec = new TextCompressionCodec(compressionMinBytes, compressionLevel);
+        this.photoStore = photoStore;
+        this.stores = stores;
+        this.backend = backend;
+    }
+
+    /** auto — Oracle, если настроен, иначе файлы; явно заданный, но недоступный бэкенд — ошибка запуска. */
+    @PostConstruct
+    public void selectStore() {
+        String name = backend == null || backend.isBlank() || "auto".equalsIgnoreCase(backend)
+                ? (findStore("oracle").isPresent() ? "oracle" : "files")
+                : backend.trim().toLowerCase(Locale.ROOT);
+        store = findStore(name).orElseThrow(() -> new IllegalStateException(
+                "Session storage backend '" + name + "' is not available (oracle requires profile 'oracle')"));
+        switch (store.getName()) {
+            case "oracle" -> logger.info("Session storage: database (Oracle). Data persists after session end.");
+            case "files" -> logger.warn("Session storage: files (data/, output/). To store data in database and persist after session end, set ORACLE_JDBC_URL, ORACLE_USER, ORACLE_PASSWORD, TNS_ADMIN; profile 'oracle' will be auto-activated.");
+            default -> logger.info("Session storage: {} (embedded key-value store).", store.getName());
+        }
+    }
+
+    /** Бэкенд по имени (files, oracle, mvstore), если он есть в контексте. */
+    public Optional<SessionStore> findStore(String name) {
+        return stores.stream().filter(s -> s.getName().equalsIgnoreCase(name)).findFirst();
+    }
 
-    @Autowired(required = false)
-    private SessionReviewRepository sessionReviewRepository;
+    public SessionStore getStore() {
+        return store;
+    }
 
     public boolean isDatabaseStorage() {
-        return sessionDataRepository != null;
+        return "oracle".equals(store.getName());
     }
 
-    @PostConstruct
-    public void logStorageMode() {
-        if (isDatabaseStorage()) {
-            logger.info("Session storage: database (Oracle). Data persists after session end.");
-        } else {
-            logger.warn("Session storage: files (data/, output/). To store data in database and persist after session end, set ORACLE_JDBC_URL, ORACLE_USER, ORACLE_PASSWORD, TNS_ADMIN; profile 'oracle' will be auto-activated.");
+    private boolean isFileStorage() {
+        return store instanceof FileSessionStore;
+    }
+
+    /**
+     * Начинает unit of work для текущего потока (один HTTP-запрос): изменения сессий копятся в памяти,
+     * чтения видят их, а {@link #endUnitOfWork()} записывает изменённые артефакты одним вызовом бэкенда —
+     * в Oracle одним JDBC-батчем MERGE, в файлах одной перезаписью session.pack с одним fsync.
+     */
+    public void beginUnitOfWork() {
+        if (UNIT_OF_WORK.get() == null) {
+            UNIT_OF_WORK.set(new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения одной транзакцией и закрывает unit of work. Ошибка записи
+     * пробрасывается как IllegalStateException, чтобы клиент получил 5xx, а не 200 без сохранения.
+     */
+    public void endUnitOfWork() {
+        Map<String, Map<SessionArtifactType, PendingArtifact>> unitOfWork = UNIT_OF_WORK.get();
+        if (unitOfWork == null) return;
+        UNIT_OF_WORK.remove();
+        try {
+            flush(unitOfWork);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Failed to save session data", e);
+        } finally {
+            unitOfWork.forEach((sessionId, artifacts) -> artifacts.forEach((type, artifact) -> {
+                if (artifact.dirty) cache.invalidate(cacheKey(sessionId, type));
+            }));
+        }
+    }
+
+    private void flush(Map<String, Map<SessionArtifactType, PendingArtifact>> unitOfWork) {
+        List<SessionArtifactWrite> writes = new ArrayList<>();
+        unitOfWork.forEach((sessionId, artifacts) -> artifacts.forEach((type, artifact) -> {
+            if (artifact.dirty) writes.add(toWrite(sessionId, type, artifact));
+        }));
+        if (writes.isEmpty()) return;
+        store.write(writes);
+        logger.debug("Unit of work flushed {} session artifact(s) to {}", writes.size(), store.getName());
+    }
+
+    /** Убирает из L1-кэша все данные сессии (после удаления сессии по сроку хранения). */
+    public void evictFromCache(String sessionId) {
+        String prefix = sessionId + ":";
+        cache.invalidateIf(key -> key.startsWith(prefix));
+    }
+
+    /** Счётчики L1-кэша: попадания, промахи, занятая память. */
+    public Map<String, Object> getCacheStats() {
+        return cache.getStats();
+    }
+
+    /** Сжатие записанных текстов: байты до и после, число сжатых и несжатых записей. */
+    public Map<String, Object> getCompressionStats() {
+        return codec.getStats();
+    }
+
+    /** Все сессии текущего бэкенда. */
+    public List<String> listSessionIds() {
+        return store.listSessionIds();
+    }
+
+    /** Удаляет сессии бэкенда без изменений с cutoff (если бэкенд умеет это сам) и сбрасывает их из кэша. */
+    public List<String> deleteSessionsNotModifiedSince(Instant cutoff, int limit) {
+        List<String> deleted = store.deleteSessionsNotModifiedSince(cutoff, limit);
+        deleted.forEach(this::evictFromCache);
+        return deleted;
+    }
+
+    /**
+     * Копирует сессию из другого бэкенда в текущий: тексты, ссылку на фото и отзывы.
+     * Возвращает число перенесённых артефактов. Отзывы добавляются, поэтому повторный перенос той же
+     * сессии их дублирует.
+     */
+    public int importSession(SessionStore source, String sessionId) {
+        if (source == store) return 0;
+        List<SessionArtifactWrite> writes = new ArrayList<>();
+        for (SessionArtifactType type : SessionArtifactType.values()) {
+            if (type.isBinary()) continue;
+            String text = source.readText(sessionId, type);
+            if (text != null) writes.add(toWrite(sessionId, type, PendingArtifact.changed(text)));
+        }
+        PhotoData photo = source.readPhoto(sessionId);
+        if (photo != null) {
+            String hash = photo.getHash();
+            if (hash == null && photo.getBytes() != null && photo.getBytes().length > 0) {
+                hash = photoStore.put(photo.getBytes(), photo.getMimeType());
+            } else if (hash != null && !photoStore.importFromFiles(hash)) {
+                logger.warn("Photo {} of session {} not found in photo store; reference copied as is", hash, sessionId);
+            }
+            if (hash != null) {
+                writes.add(toWrite(sessionId, SessionArtifactType.PHOTO, PendingArtifact.changedPhoto(hash, photo.getMimeType())));
+            }
+        }
+        store.write(writes);
+        for (ReviewEntry review : source.getReviews(sessionId)) {
+            store.addReview(sessionId, review);
         }
+        evictFromCache(sessionId);
+        return writes.size();
     }
 
     // --- vacancy ---
     public void setVacancy(String sessionId, String text) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setVacancyText(text);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, DATA_DIR), "vacancy.txt", text);
-        }
+        writeText(sessionId, SessionArtifactType.VACANCY, text);
     }
 
     public String getVacancy(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return "";
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getVacancyText)
-                    .orElse(null);
-        }
-        return readFile(sessionDir(sessionId, DATA_DIR), "vacancy.txt");
+        return readText(sessionId, SessionArtifactType.VACANCY);
     }
 
     // --- cv ---
     public void setCv(String sessionId, String text) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setCvText(text);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, DATA_DIR), "cv.txt", text);
-        }
+        writeText(sessionId, SessionArtifactType.CV, text);
     }
 
     public String getCv(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return "";
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getCvText)
-                    .orElse(null);
-        }
-        return readFile(sessionDir(sessionId, DATA_DIR), "cv.txt");
+        return readText(sessionId, SessionArtifactType.CV);
     }
 
     // --- state json ---
     public void setStateJson(String sessionId, String json) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setStateJson(json);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, DATA_DIR), "state.json", json);
-        }
+        writeText(sessionId, SessionArtifactType.STATE_JSON, json);
     }
 
     public String getStateJson(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return null;
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getStateJson)
-                    .orElse(null);
-        }
-        return readFile(sessionDir(sessionId, DATA_DIR), "state.json");
+        return readText(sessionId, SessionArtifactType.STATE_JSON);
     }
 
     // --- anschreiben (data path and content) ---
     public void setAnschreibenTxt(String sessionId, String pathOrContent) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setAnschreibenTxt(pathOrContent);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, DATA_DIR), "anschreiben.txt", pathOrContent != null ? pathOrContent : "");
-        }
+        writeText(sessionId, SessionArtifactType.ANSCHREIBEN_TXT, pathOrContent);
     }
 
-    /** Путь к файлу с копией Anschreiben (для чтения по этому пути) или логический ключ в БД. */
+    /** Путь к файлу с копией Anschreiben (для чтения по этому пути) или логический ключ в бэкенде. */
     public String getAnschreibenPath(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return "";
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getAnschreibenTxt)
-                    .orElse("");
+        if (!isFileStorage()) {
+            return Objects.requireNonNullElse(readText(sessionId, SessionArtifactType.ANSCHREIBEN_TXT), "");
         }
         String stateJson = getStateJson(sessionId);
         if (stateJson != null && !stateJson.isBlank()) {
@@ -144,16 +246,14 @@ public class SessionStorageService {
                 if (o != null && o.has("anschreibenFile")) return o.get("anschreibenFile").getAsString();
             } catch (Exception ignored) { }
         }
-        return sessionDir(sessionId, DATA_DIR).resolve("anschreiben.txt").toString();
+        return FileSessionStore.sessionDir(sessionId, "data").resolve("anschreiben.txt").toString();
     }
 
     /** Сохранить путь к файлу Anschreiben в state (для совместимости с логикой change detection). */
     public void setAnschreibenPath(String sessionId, String path) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setAnschreibenTxt(path);
-            sessionDataRepository.save(e);
+        if (!isFileStorage()) {
+            writeText(sessionId, SessionArtifactType.ANSCHREIBEN_TXT, path);
         } else {
             com.google.gson.JsonObject o = getStateJsonAsObject(sessionId);
             o.addProperty("anschreibenFile", path != null ? path : "");
@@ -175,210 +275,246 @@ public class SessionStorageService {
     // --- output: anschreiben.md ---
     public void setAnschreibenMd(String sessionId, String content) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setAnschreibenMd(content);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, OUTPUT_DIR), "anschreiben.md", content);
-        }
+        writeText(sessionId, SessionArtifactType.ANSCHREIBEN_MD, content);
     }
 
     public String getAnschreibenMd(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return null;
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getAnschreibenMd)
-                    .orElse(null);
-        }
-        return readFile(sessionDir(sessionId, OUTPUT_DIR), "anschreiben.md");
+        return readText(sessionId, SessionArtifactType.ANSCHREIBEN_MD);
     }
 
     // --- output: lebenslauf-filled.html ---
     public void setLebenslaufHtml(String sessionId, String content) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setLebenslaufHtml(content);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, OUTPUT_DIR), "lebenslauf-filled.html", content);
-        }
+        writeText(sessionId, SessionArtifactType.LEBENSLAUF_HTML, content);
     }
 
     public String getLebenslaufHtml(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return null;
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .map(SessionDataEntity::getLebenslaufHtml)
-                    .orElse(null);
-        }
-        return readFile(sessionDir(sessionId, OUTPUT_DIR), "lebenslauf-filled.html");
+        return readText(sessionId, SessionArtifactType.LEBENSLAUF_HTML);
     }
 
     // --- output: notes.json ---
     public void setNotesJson(String sessionId, String json) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setNotesJson(json);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, OUTPUT_DIR), "notes.json", json);
-        }
+        writeText(sessionId, SessionArtifactType.NOTES_JSON, json);
     }
 
     // --- analysis ---
     public void setAnalysisMd(String sessionId, String content) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setAnalysisMd(content);
-            sessionDataRepository.save(e);
-        } else {
-            writeFile(sessionDir(sessionId, OUTPUT_DIR), "analysis.md", content);
-        }
+        writeText(sessionId, SessionArtifactType.ANALYSIS_MD, content);
     }
 
-    // --- photo ---
-    public void setPhoto(String sessionId, byte[] bytes, String mimeType) {
+    public String getAnalysisMd(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return null;
+        return readText(sessionId, SessionArtifactType.ANALYSIS_MD);
+    }
+
+    // --- artifact manifest (input hashes behind derived artifacts) ---
+    public void setManifestJson(String sessionId, String json) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionDataEntity e = getOrCreate(sessionId);
-            e.setPhotoBlob(bytes);
-            e.setPhotoMime(mimeType);
-            sessionDataRepository.save(e);
-        } else {
-            Path dir = sessionDir(sessionId, DATA_DIR);
-            Path file = dir.resolve("photo.bin");
-            try {
-                Files.createDirectories(dir);
-                Files.write(file, bytes != null ? bytes : new byte[0]);
-                if (mimeType != null) {
-                    Files.writeString(dir.resolve("photo.mime"), mimeType, StandardCharsets.UTF_8);
-                }
-            } catch (IOException ex) {
-                logger.error("Failed to save session photo to file", ex);
-                throw new RuntimeException("Failed to save session photo", ex);
-            }
-        }
+        writeText(sessionId, SessionArtifactType.MANIFEST_JSON, json);
+    }
+
+    public String getManifestJson(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return null;
+        return readText(sessionId, SessionArtifactType.MANIFEST_JSON);
+    }
+
+    // --- photo ---
+    /**
+     * Сохраняет фото в {@link PhotoStoreService} (по хэшу, без дублей) и ссылку на него в сессии.
+     * keepOriginal — хранить и оригинал загрузки, а не только копию для печати.
+     * Возвращает хэш фото или null, если фото пустое (ссылка удаляется).
+     */
+    public String setPhoto(String sessionId, byte[] bytes, String mimeType, boolean keepOriginal) {
+        if (sessionId == null || sessionId.isBlank()) return null;
+        String hash = bytes != null && bytes.length > 0 ? photoStore.put(bytes, mimeType, keepOriginal) : null;
+        write(sessionId, SessionArtifactType.PHOTO, PendingArtifact.changedPhoto(hash, mimeType));
+        return hash;
     }
 
     public Optional<PhotoData> getPhoto(String sessionId) {
+        return getPhotoRef(sessionId).flatMap(ref -> photoStore.get(ref.getHash(), PhotoStoreService.Variant.ORIGINAL)
+                .map(photo -> new PhotoData(photo.getBytes(), ref.getMimeType(), ref.getHash())));
+    }
+
+    /** Хэш фото сессии без чтения самого фото. */
+    public Optional<String> getPhotoHash(String sessionId) {
+        return getPhotoRef(sessionId).map(PhotoData::getHash);
+    }
+
+    /** Ссылка на фото сессии (хэш и MIME, без байтов). */
+    private Optional<PhotoData> getPhotoRef(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return Optional.empty();
-        if (isDatabaseStorage()) {
-            return sessionDataRepository.findBySessionId(sessionId)
-                    .filter(e -> e.getPhotoBlob() != null && e.getPhotoBlob().length > 0)
-                    .map(e -> new PhotoData(e.getPhotoBlob(), e.getPhotoMime() != null ? e.getPhotoMime() : "image/jpeg"));
-        }
-        Path dir = sessionDir(sessionId, DATA_DIR);
-        Path file = dir.resolve("photo.bin");
-        if (!Files.exists(file)) return Optional.empty();
-        try {
-            byte[] bytes = Files.readAllBytes(file);
-            String mime = "image/jpeg";
-            Path mimeFile = dir.resolve("photo.mime");
-            if (Files.exists(mimeFile)) {
-                mime = Files.readString(mimeFile, StandardCharsets.UTF_8).trim();
-            }
-            return Optional.of(new PhotoData(bytes, mime));
-        } catch (IOException e) {
-            logger.warn("Failed to read session photo", e);
-            return Optional.empty();
+        return readPhotoRef(sessionId);
+    }
+
+    /**
+     * Ссылка на фото. Фото, сохранённые до хранилища по хэшу (байты прямо в сессии),
+     * при первом чтении кладутся в {@link PhotoStoreService}, чтобы и они были доступны по хэшу.
+     */
+    private PhotoData photoRef(String hash, byte[] legacyBytes, String mimeType) {
+        String mime = mimeType != null ? mimeType : "image/jpeg";
+        if (hash == null) {
+            if (legacyBytes == null || legacyBytes.length == 0) return null;
+            hash = photoStore.put(legacyBytes, mime);
         }
+        return new PhotoData(null, mime, hash);
     }
 
     public static final class PhotoData {
         private final byte[] bytes;
         private final String mimeType;
+        private final String hash;
 
         public PhotoData(byte[] bytes, String mimeType) {
+            this(bytes, mimeType, null);
+        }
+
+        public PhotoData(byte[] bytes, String mimeType, String hash) {
             this.bytes = bytes;
             this.mimeType = mimeType;
+            this.hash = hash;
         }
         public byte[] getBytes() { return bytes; }
         public String getMimeType() { return mimeType; }
+        /** SHA-256 содержимого в {@link PhotoStoreService}; null, если неизвестен. */
+        public String getHash() { return hash; }
     }
 
     // --- reviews ---
     public void addReview(String sessionId, String reviewText, String source) {
         if (sessionId == null || sessionId.isBlank()) return;
-        if (isDatabaseStorage()) {
-            SessionReviewEntity e = new SessionReviewEntity();
-            e.setSessionId(sessionId);
-            e.setReviewText(reviewText);
-            e.setSource(source);
-            sessionReviewRepository.save(e);
-        } else {
-            List<ReviewEntry> list = getReviewsInternal(sessionId);
-            list.add(new ReviewEntry(reviewText, Instant.now().toString(), source));
-            writeReviewsFile(sessionId, list);
-        }
+        store.addReview(sessionId, new ReviewEntry(reviewText, Instant.now().toString(), source));
     }
 
     public List<ReviewEntry> getReviews(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) return new ArrayList<>();
-        if (isDatabaseStorage()) {
-            return sessionReviewRepository.findBySessionIdOrderByCreatedAtAsc(sessionId).stream()
-                    .map(r -> new ReviewEntry(r.getReviewText(), r.getCreatedAt() != null ? r.getCreatedAt().toString() : "", r.getSource()))
-                    .collect(Collectors.toList());
-        }
-        return getReviewsInternal(sessionId);
+        return store.getReviews(sessionId);
     }
 
-    private List<ReviewEntry> getReviewsInternal(String sessionId) {
-        String json = readFile(sessionDir(sessionId, DATA_DIR), "reviews.json");
-        if (json == null || json.trim().isEmpty()) return new ArrayList<>();
-        try {
-            com.google.gson.Gson gson = new com.google.gson.Gson();
-            com.google.gson.reflect.TypeToken<List<ReviewEntry>> type = new com.google.gson.reflect.TypeToken<List<ReviewEntry>>() {};
-            List<ReviewEntry> list = gson.fromJson(json, type.getType());
-            return list != null ? list : new ArrayList<>();
-        } catch (Exception e) {
-            logger.warn("Failed to parse reviews.json for session {}", sessionId, e);
-            return new ArrayList<>();
+    /** Страница отзывов сессии (offset, limit) в порядке добавления. */
+    public List<ReviewEntry> getReviews(String sessionId, int offset, int limit) {
+        if (sessionId == null || sessionId.isBlank()) return new ArrayList<>();
+        return store.getReviews(sessionId, offset, limit);
+    }
+
+    /** Текст артефакта; внутри unit of work читается из бэкенда один раз и видит несохранённые изменения. */
+    private String readText(String sessionId, SessionArtifactType type) {
+        Map<SessionArtifactType, PendingArtifact> pending = pendingArtifacts(sessionId);
+        if (pending == null) {
+            return loadText(sessionId, type);
         }
+        return pending.computeIfAbsent(type, t -> PendingArtifact.loaded(loadText(sessionId, t))).text;
+    }
+
+    private String loadText(String sessionId, SessionArtifactType type) {
+        return (String) cache.get(cacheKey(sessionId, type), k -> store.readText(sessionId, type));
     }
 
-    private void writeReviewsFile(String sessionId, List<ReviewEntry> list) {
-        com.google.gson.Gson gson = new com.google.gson.GsonBuilder().setPrettyPrinting().create();
-        String json = gson.toJson(list);
-        writeFile(sessionDir(sessionId, DATA_DIR), "reviews.json", json);
+    private PhotoData loadPhotoRef(String sessionId) {
+        return (PhotoData) cache.get(cacheKey(sessionId, SessionArtifactType.PHOTO), k -> {
+            PhotoData photo = store.readPhoto(sessionId);
+            return photo != null ? photoRef(photo.getHash(), photo.getBytes(), photo.getMimeType()) : null;
+        });
     }
 
-    private SessionDataEntity getOrCreate(String sessionId) {
-        return sessionDataRepository.findBySessionId(sessionId)
-                .orElseGet(() -> {
-                    SessionDataEntity e = new SessionDataEntity();
-                    e.setSessionId(sessionId);
-                    return e;
-                });
+    private Optional<PhotoData> readPhotoRef(String sessionId) {
+        Map<SessionArtifactType, PendingArtifact> pending = pendingArtifacts(sessionId);
+        if (pending == null) {
+            return Optional.ofNullable(loadPhotoRef(sessionId));
+        }
+        PendingArtifact artifact = pending.computeIfAbsent(SessionArtifactType.PHOTO, t -> {
+            PhotoData photo = loadPhotoRef(sessionId);
+            return photo != null
+                    ? PendingArtifact.loadedPhoto(photo.getHash(), photo.getMimeType())
+                    : PendingArtifact.loadedPhoto(null, null);
+        });
+        return artifact.contentHash != null
+                ? Optional.of(new PhotoData(null, artifact.mimeType != null ? artifact.mimeType : "image/jpeg", artifact.contentHash))
+                : Optional.empty();
     }
 
-    private Path sessionDir(String sessionId, String baseDir) {
-        String safe = sessionId.replaceAll("[^A-Za-z0-9_-]", "_");
-        return Paths.get(baseDir, safe);
+    /** Записывает артефакт сразу или, внутри unit of work, откладывает до {@link #endUnitOfWork()}. */
+    private void writeText(String sessionId, SessionArtifactType type, String text) {
+        write(sessionId, type, PendingArtifact.changed(text));
     }
 
-    private void writeFile(Path dir, String fileName, String content) {
+    private void write(String sessionId, SessionArtifactType type, PendingArtifact artifact) {
+        Map<SessionArtifactType, PendingArtifact> pending = pendingArtifacts(sessionId);
+        if (pending != null) {
+            pending.put(type, artifact);
+            return;
+        }
         try {
-            Files.createDirectories(dir);
-            Path file = dir.resolve(fileName);
-            Files.writeString(file, content != null ? content : "", StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            logger.error("Failed to write {} for session", fileName, e);
-            throw new RuntimeException("Failed to write session file: " + fileName, e);
+            store.write(List.of(toWrite(sessionId, type, artifact)));
+        } finally {
+            cache.invalidate(cacheKey(sessionId, type));
         }
     }
 
-    private String readFile(Path dir, String fileName) {
-        Path file = dir.resolve(fileName);
-        if (!Files.exists(file)) return null;
-        try {
-            return Files.readString(file, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            logger.warn("Failed to read {} for session", fileName, e);
-            return null;
+    private Map<SessionArtifactType, PendingArtifact> pendingArtifacts(String sessionId) {
+        Map<String, Map<SessionArtifactType, PendingArtifact>> unitOfWork = UNIT_OF_WORK.get();
+        return unitOfWork != null ? unitOfWork.computeIfAbsent(sessionId, id -> new EnumMap<>(SessionArtifactType.class)) : null;
+    }
+
+    /**
+     * Артефакт в виде для хранения: длинный текст сжат (в Oracle — в binary_content, text_content = NULL),
+     * короткий — как есть; фото — только ссылка content_hash на {@link PhotoStoreService}.
+     */
+    private SessionArtifactWrite toWrite(String sessionId, SessionArtifactType type, PendingArtifact artifact) {
+        if (type.isBinary()) {
+            return SessionArtifactWrite.photoRef(sessionId, type, artifact.contentHash, artifact.mimeType);
+        }
+        if (artifact.text != null) {
+            byte[] stored = codec.encode(artifact.text);
+            if (TextCompressionCodec.isCompressed(stored)) {
+                return SessionArtifactWrite.text(sessionId, type, null, stored);
+            }
         }
+        return SessionArtifactWrite.text(sessionId, type, artifact.text, null);
+    }
+
+    /** Текст артефакта или, для фото, ссылка на него (хэш в {@link PhotoStoreService} и MIME). */
+    private static final class PendingArtifact {
+        private final String text;
+        private final String mimeType;
+        private final String contentHash;
+        private final boolean dirty;
+
+        private PendingArtifact(String text, String mimeType, String contentHash, boolean dirty) {
+            this.text = text;
+            this.mimeType = mimeType;
+            this.contentHash = contentHash;
+            this.dirty = dirty;
+        }
+
+        private static PendingArtifact loaded(String text) {
+            return new PendingArtifact(text, null, null, false);
+        }
+
+        private static PendingArtifact changed(String text) {
+            return new PendingArtifact(text, null, null, true);
+        }
+
+        private static PendingArtifact loadedPhoto(String contentHash, String mimeType) {
+            return new PendingArtifact(null, mimeType, contentHash, false);
+        }
+
+        private static PendingArtifact changedPhoto(String contentHash, String mimeType) {
+            return new PendingArtifact(null, mimeType, contentHash, true);
+        }
+    }
+
+    private static String cacheKey(String sessionId, SessionArtifactType type) {
+        return sessionId + ":" + type;
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof String text) return 2L * text.length();
+        if (value instanceof PhotoData photo) return photo.getBytes() != null ? photo.getBytes().length : 0;
+        return 0;
     }
 }
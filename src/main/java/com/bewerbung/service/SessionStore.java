@@ -0,0 +1,55 @@
+package com.bewerbung.service;
+
+import com.bewerbung.entity.SessionArtifactType;
+import com.bewerbung.model.ReviewEntry;
+import com.bewerbung.repository.SessionArtifactWrite;
+import com.bewerbung.service.SessionStorageService.PhotoData;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Бэкенд хранения данных сессий (SPI для {@link SessionStorageService}): файлы, Oracle или встроенное
+ * key-value хранилище. Сервис выбирает один по session.storage.backend и отвечает за кэш, сжатие
+ * текстов, unit of work и фото; бэкенд только читает и пишет артефакты.
+ */
+public interface SessionStore {
+
+    /** Имя бэкенда для session.storage.backend, логов и миграции: files, oracle, mvstore. */
+    String getName();
+
+    /** Текст артефакта (сжатые данные уже распакованы) или null. */
+    String readText(String sessionId, SessionArtifactType type);
+
+    /**
+     * Фото сессии: ссылка (хэш в {@link PhotoStoreService} и MIME) или, для данных старого формата,
+     * байты прямо в сессии; null, если фото нет.
+     */
+    PhotoData readPhoto(String sessionId);
+
+    /** Записывает артефакты (тексты в виде для хранения, фото — ссылкой) и обновляет время изменения сессий. */
+    void write(List<SessionArtifactWrite> writes);
+
+    void addReview(String sessionId, ReviewEntry review);
+
+    List<ReviewEntry> getReviews(String sessionId);
+
+    /** Отзывы с offset, не больше limit, в порядке добавления. */
+    default List<ReviewEntry> getReviews(String sessionId, int offset, int limit) {
+        List<ReviewEntry> all = getReviews(sessionId);
+        int from = Math.min(Math.max(0, offset), all.size());
+        return new ArrayList<>(all.subList(from, Math.min(all.size(), from + Math.max(0, limit))));
+    }
+
+    /** Все сессии бэкенда (для миграции и поиска используемых фото). */
+    List<String> listSessionIds();
+
+    /**
+     * Удаляет до limit сессий без изменений с cutoff и возвращает их id. Файлы и Oracle чистит
+     * {@link SessionRetentionService} сам, поэтому по умолчанию ничего не делает.
+     */
+    default List<String> deleteSessionsNotModifiedSince(Instant cutoff, int limit) {
+        return List.of();
+    }
+}
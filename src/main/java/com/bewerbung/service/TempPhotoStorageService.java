@@ -6,7 +6,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Base64;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,13 +16,25 @@ public class TempPhotoStorageService {
     private static final Logger logger = LoggerFactory.getLogger(TempPhotoStorageService.class);
     private static final long MAX_FILE_SIZE_BYTES = 5L * 1024 * 1024;
 
+    /** Путь эндпоинта GenerateController, отдающего фото по хэшу. */
+    public static final String PHOTO_URL_PREFIX = "/api/generate/photo/";
+
     private final SessionStorageService sessionStorage;
+    private final ArtifactManifestService artifactManifest;
+    private final PhotoStoreService photoStore;
 
-    public TempPhotoStorageService(SessionStorageService sessionStorage) {
+    public TempPhotoStorageService(SessionStorageService sessionStorage, ArtifactManifestService artifactManifest,
+                                   PhotoStoreService photoStore) {
         this.sessionStorage = sessionStorage;
+        this.artifactManifest = artifactManifest;
+        this.photoStore = photoStore;
     }
 
-    public String saveTemporaryPhoto(String sessionId, MultipartFile photo) {
+    /**
+     * Сохраняет фото сессии: для рендеров хранится обработанная копия (см. {@link PhotoProcessor}),
+     * оригинал — только при keepOriginal.
+     */
+    public String saveTemporaryPhoto(String sessionId, MultipartFile photo, boolean keepOriginal) {
         validatePhoto(photo);
         if (sessionId == null || sessionId.isBlank()) {
             throw new IllegalArgumentException("Session ID is required for photo upload");
@@ -31,7 +42,8 @@ public class TempPhotoStorageService {
         try {
             byte[] bytes = photo.getInputStream().readAllBytes();
             String mimeType = normalizeMimeType(photo.getContentType());
-            sessionStorage.setPhoto(sessionId, bytes, mimeType);
+            String hash = sessionStorage.setPhoto(sessionId, bytes, mimeType, keepOriginal);
+            artifactManifest.recordPhoto(sessionId, hash);
             String fileName = "cv-photo-" + UUID.randomUUID() + resolveExtension(photo.getOriginalFilename());
             logger.info("CV photo saved for session");
             return fileName;
@@ -41,16 +53,38 @@ public class TempPhotoStorageService {
         }
     }
 
+    /**
+     * Data URI печатной копии фото сессии (для рендереров без доступа к серверу, например wkhtmltopdf).
+     * Кодируется один раз на фото и берётся из кэша {@link PhotoStoreService}.
+     */
     public Optional<String> getCurrentPhotoDataUri(String sessionId) {
         if (sessionId == null || sessionId.isBlank()) {
             return Optional.empty();
         }
-        return sessionStorage.getPhoto(sessionId)
-                .map(photo -> {
-                    String encoded = Base64.getEncoder().encodeToString(photo.getBytes());
-                    String mime = photo.getMimeType() != null ? photo.getMimeType() : "image/jpeg";
-                    return "data:" + mime + ";base64," + encoded;
-                });
+        return sessionStorage.getPhotoHash(sessionId)
+                .flatMap(hash -> photoStore.getDataUri(hash, PhotoStoreService.Variant.PRINT));
+    }
+
+    /**
+     * Постоянный URL фото сессии по хэшу содержимого ({@value #PHOTO_URL_PREFIX}{hash}); браузер и Chrome
+     * кэшируют его по ETag, а HTML не раздувается base64.
+     */
+    public Optional<String> getCurrentPhotoUrl(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return Optional.empty();
+        }
+        return sessionStorage.getPhotoHash(sessionId).map(hash -> PHOTO_URL_PREFIX + hash);
+    }
+
+    /**
+     * Принадлежит ли фото с этим хэшем сессии. Фото дедуплицируются между пользователями, поэтому
+     * знания хэша недостаточно для выдачи.
+     */
+    public boolean isCurrentPhoto(String sessionId, String hash) {
+        if (sessionId == null || sessionId.isBlank() || hash == null) {
+            return false;
+        }
+        return sessionStorage.getPhotoHash(sessionId).map(hash::equals).orElse(false);
     }
 
     private void validatePhoto(MultipartFile photo) {
@@ -0,0 +1,128 @@
+package com.bewerbung.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие текстовых данных сессии перед записью в файл или БД.
+ * Тексты от порога (session.compression.min-bytes) сжимаются Deflate и помечаются заголовком
+ * <pre>0xFF 'B' 'Z' codec:byte | rawLength:int | payload</pre>
+ * Байт 0xFF не встречается в UTF-8, поэтому данные без заголовка (старые или короткие) читаются как обычный текст.
+ */
+class TextCompressionCodec {
+
+    private static final byte[] MAGIC = {(byte) 0xFF, 'B', 'Z'};
+    private static final byte CODEC_DEFLATE = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 4;
+
+    private final int minBytes;
+    private final int level;
+
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong compressedWrites = new AtomicLong();
+    private final AtomicLong plainWrites = new AtomicLong();
+
+    TextCompressionCodec(int minBytes, int level) {
+        this.minBytes = minBytes;
+        this.level = level;
+    }
+
+    /** Сжатые байты с заголовком или UTF-8 как есть, если текст короткий или сжатие не помогает. */
+    byte[] encode(String text) {
+        byte[] raw = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        byte[] stored = raw;
+        if (minBytes >= 0 && raw.length >= minBytes) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                stored = compressed;
+            }
+        }
+        rawBytes.addAndGet(raw.length);
+        storedBytes.addAndGet(stored.length);
+        (stored == raw ? plainWrites : compressedWrites).incrementAndGet();
+        return stored;
+    }
+
+    /** Текст из сохранённых байтов; без заголовка — обычный UTF-8. */
+    static String decode(byte[] stored) {
+        if (stored == null) return null;
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        ByteBuffer header = ByteBuffer.wrap(stored, MAGIC.length, HEADER_SIZE - MAGIC.length);
+        byte codec = header.get();
+        int rawLength = header.getInt();
+        if (codec != CODEC_DEFLATE) {
+            throw new IllegalStateException("Unknown compression codec: " + codec);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, HEADER_SIZE, stored.length - HEADER_SIZE);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new IllegalStateException("Compressed data truncated: " + length + " of " + rawLength + " bytes");
+            }
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static boolean isCompressed(byte[] stored) {
+        return stored.length >= HEADER_SIZE && stored[0] == MAGIC[0] && stored[1] == MAGIC[1] && stored[2] == MAGIC[2];
+    }
+
+    Map<String, Object> getStats() {
+        long raw = rawBytes.get();
+        long stored = storedBytes.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("codec", "deflate");
+        stats.put("minBytes", minBytes);
+        stats.put("level", level);
+        stats.put("rawBytesWritten", raw);
+        stats.put("storedBytesWritten", stored);
+        stats.put("savedBytes", raw - stored);
+        stats.put("ratio", raw > 0 ? Math.round(stored * 1000.0 / raw) / 1000.0 : 1.0);
+        stats.put("compressedWrites", compressedWrites.get());
+        stats.put("plainWrites", plainWrites.get());
+        return stats;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + raw.length / 3);
+            out.write(MAGIC, 0, MAGIC.length);
+            out.write(CODEC_DEFLATE);
+            out.write(ByteBuffer.allocate(4).putInt(raw.length).array(), 0, 4);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.bewerbung.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy line breaking for the PDFBox cover letter.
+ * <p>
+ * Each word is measured exactly once and the width of a line is kept as a running sum (words plus
+ * the spaces between them), so a paragraph costs O(characters) width lookups instead of re-measuring
+ * the whole growing line for every word. Lines are returned as substrings of the paragraph; no
+ * intermediate strings are built while breaking.
+ */
+final class TextLayout {
+
+    /** Width of {@code text[start, end)} in points at the size being laid out. */
+    @FunctionalInterface
+    interface WidthMeasure {
+        float width(String text, int start, int end) throws IOException;
+    }
+
+    private TextLayout() {
+    }
+
+    /**
+     * Breaks one paragraph (no line feeds) into lines no wider than maxWidth. Words are separated by
+     * spaces; runs of spaces inside a line are kept, leading and trailing spaces are dropped. A word
+     * wider than maxWidth gets a line of its own.
+     */
+    static List<String> breakLines(String paragraph, float maxWidth, WidthMeasure measure) throws IOException {
+        List<String> lines = new ArrayList<>();
+        int length = paragraph.length();
+        float spaceWidth = measure.width(" ", 0, 1);
+        int lineStart = -1;
+        int lineEnd = 0;
+        float lineWidth = 0;
+        int i = 0;
+        while (i < length) {
+            while (i < length && paragraph.charAt(i) == ' ') i++;
+            if (i == length) break;
+            int wordStart = i;
+            while (i < length && paragraph.charAt(i) != ' ') i++;
+            float wordWidth = measure.width(paragraph, wordStart, i);
+            if (lineStart < 0) {
+                lineStart = wordStart;
+                lineWidth = wordWidth;
+            } else {
+                float extended = lineWidth + (wordStart - lineEnd) * spaceWidth + wordWidth;
+                if (extended > maxWidth) {
+                    lines.add(paragraph.substring(lineStart, lineEnd));
+                    lineStart = wordStart;
+                    lineWidth = wordWidth;
+                } else {
+                    lineWidth = extended;
+                }
+            }
+            lineEnd = i;
+        }
+        if (lineStart >= 0) {
+            lines.add(paragraph.substring(lineStart, lineEnd));
+        }
+        return lines;
+    }
+}